@@ -0,0 +1,72 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.model;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures handing out and looking up photo ids, single-threaded and under contention.
+ * Run with ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhotoIdBenchmark {
+
+	/**
+	 * Number of existing ids to look up
+	 */
+	@Param({ "100000" })
+	public int existingIds;
+
+	/**
+	 *
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		PhotoId.setCurrentIdFromInt(existingIds);
+	}
+
+	/**
+	 *
+	 */
+	@Benchmark
+	public PhotoId getNextId() {
+		return PhotoId.getNextId();
+	}
+
+	/**
+	 *
+	 */
+	@Benchmark
+	@Threads(8)
+	public PhotoId getNextIdContended() {
+		return PhotoId.getNextId();
+	}
+
+	/**
+	 *
+	 */
+	@Benchmark
+	public PhotoId getIdFromInt() {
+		return PhotoId.getIdFromInt(1 + ThreadLocalRandom.current().nextInt(existingIds));
+	}
+
+	/**
+	 *
+	 */
+	@Benchmark
+	@Threads(8)
+	public PhotoId getIdFromIntContended() {
+		return PhotoId.getIdFromInt(1 + ThreadLocalRandom.current().nextInt(existingIds));
+	}
+
+}
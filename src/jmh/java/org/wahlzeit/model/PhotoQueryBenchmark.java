@@ -0,0 +1,107 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.model;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the latency of photo queries on a synthetic catalogue.
+ *
+ * The catalogue has noPhotos photos by 10,000 users, each with 3 to 8 tags drawn from a vocabulary of
+ * 20,000 tags with a Zipf-like distribution (tag1 is the most common), and a tenth of them made with
+ * one of 20 CGI programs. Run with ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx2g" })
+public class PhotoQueryBenchmark {
+
+	/**
+	 *
+	 */
+	@Param({ "1000000" })
+	public int noPhotos;
+
+	/**
+	 *
+	 */
+	@Param({
+		"tag1",
+		"tag1 tag2",
+		"tag1 NOT tag2",
+		"tag5 NOT (tag1 OR tag2)",
+		"tag100 OR tag200 OR tag300",
+		"tag1 NOT tag3 NOT tag7",
+		"un:user42",
+		"un:user42 NOT tag1",
+		"sw:software3 tag10",
+		"tag12*",
+		"tag12* NOT tag1",
+		"tag19999 tag1"
+	})
+	public String query;
+
+	/**
+	 *
+	 */
+	protected PhotoTagIndex index;
+	protected PhotoQuery photoQuery;
+
+	/**
+	 *
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		index = createCatalogue(noPhotos, new Random(42));
+		photoQuery = PhotoQuery.parse(query);
+	}
+
+	/**
+	 *
+	 */
+	@Benchmark
+	public int[] getPhotoIds() {
+		return index.getPhotoIds(photoQuery);
+	}
+
+	/**
+	 *
+	 */
+	protected static PhotoTagIndex createCatalogue(int noPhotos, Random random) {
+		int noTags = 20000;
+		double[] cumulativeWeights = new double[noTags];
+		double sum = 0;
+		for (int i = 0; i < noTags; i++) {
+			sum += 1.0 / (i + 1);
+			cumulativeWeights[i] = sum;
+		}
+
+		PhotoTagIndex result = new PhotoTagIndex();
+		Set<String> tags = new HashSet<String>();
+		for (int photoId = 1; photoId <= noPhotos; photoId++) {
+			tags.clear();
+			String owner = "user" + random.nextInt(10000);
+			tags.add("un:" + owner);
+			tags.add("tg:" + owner);
+			for (int i = 3 + random.nextInt(6); i > 0; i--) {
+				int pos = Arrays.binarySearch(cumulativeWeights, random.nextDouble() * sum);
+				tags.add("tg:tag" + (((pos >= 0) ? pos : -pos - 1) + 1));
+			}
+			if (random.nextInt(10) == 0) {
+				tags.add("sw:software" + random.nextInt(20));
+			}
+			result.add(photoId, tags);
+		}
+		return result;
+	}
+
+}
@@ -24,6 +24,7 @@ public class AgentManager {
 	 */
 	protected static void initInstance() {
 		getInstance().addAgent(new NotifyAboutPraiseAgent());
+		getInstance().addAgent(new SavePraiseAgent());
 	}
 	
 	/**
@@ -0,0 +1,36 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.agents;
+
+import org.wahlzeit.model.*;
+import org.wahlzeit.services.*;
+
+/**
+ * Periodically adds the praise given since the last run to the photo rows.
+ */
+public class SavePraiseAgent extends Agent {
+
+	/**
+	 * 
+	 */
+	public static final String NAME = "SavePraise";
+	
+	/**
+	 * 
+	 */
+	public SavePraiseAgent() {
+		initialize(NAME, SysConfig.getPraiseSavePeriod());
+	}
+	
+	/**
+	 * 
+	 */
+	protected void doRun() {
+		PhotoManager.getInstance().savePraise();
+		SessionManager.getThreadLocalSession().returnDatabaseConnection();
+	}
+	
+}
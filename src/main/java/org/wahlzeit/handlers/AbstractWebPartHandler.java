@@ -66,9 +66,16 @@ public abstract class AbstractWebPartHandler implements WebPartHandler {
 		}
 		return result;
 	}
-	
+
 	/**
-	 * 
+	 * @return the software name of a CGIPhoto, or the empty string for other photos
+	 */
+	protected String getSoftwareName(Photo photo) {
+		return (photo instanceof CGIPhoto) ? ((CGIPhoto) photo).getSoftwareName() : "";
+	}
+
+	/**
+	 *
 	 */
 	protected String getPhotoSummary(UserSession us, Photo photo) {
 		return photo.getSummary(us.cfg());
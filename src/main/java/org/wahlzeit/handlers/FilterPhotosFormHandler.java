@@ -30,7 +30,7 @@ public class FilterPhotosFormHandler extends AbstractWebFormHandler {
 		PhotoFilter filter = us.getPhotoFilter();
 			
 		part.maskAndAddString(PhotoFilter.USER_NAME, filter.getUserName());
-		part.maskAndAddString(PhotoFilter.TAGS, filter.getTags().asString());
+		part.maskAndAddString(PhotoFilter.TAGS, filter.getQuery().getSource());
 	}
 	
 	/**
@@ -46,12 +46,12 @@ public class FilterPhotosFormHandler extends AbstractWebFormHandler {
 		
 		String tags = us.getAsString(args, PhotoFilter.TAGS);
 		if (StringUtil.isLegalTagsString(tags)) {
-			filter.setTags(new Tags(tags));
+			filter.setQuery(PhotoQuery.parseLeniently(tags));
 		}
 		
 		UserLog.logPerformedAction("FilterPhotos");
 		
 		return PartUtil.SHOW_PHOTO_PAGE_NAME;
 	}
-	
+
 }
@@ -45,7 +45,7 @@ public class FilterPhotosPageHandler extends AbstractWebPageHandler {
 
 		String tags = us.getAsString(args, PhotoFilter.TAGS);
 		if (StringUtil.isLegalTagsString(tags)) {
-			filter.setTags(new Tags(tags));
+			filter.setQuery(PhotoQuery.parseLeniently(tags));
 		}
 
 		return PartUtil.SHOW_PHOTO_PAGE_NAME;
@@ -43,6 +43,70 @@ public class ShowAdminPageHandler extends AbstractWebPageHandler implements WebF
 			page.addStringFromArgs(args, "photoId");
 			page.addWritable("object", makeAdminUserPhoto(us));
 		}
+		
+		page.addString("statistics", makeStatistics());
+	}
+	
+	/**
+	 * 
+	 */
+	protected String makeStatistics() {
+		DatabaseConnectionPool.Stats stats = DatabaseConnection.getPool().getStats();
+		StringBuilder result = new StringBuilder();
+		result.append("<table class=\"form\" width=\"960\">");
+		appendStatisticsRow(result, "DB connections (active/idle/max)", stats.getActive() + " / " + stats.getIdle() + " / " + stats.getMaxSize());
+		appendStatisticsRow(result, "DB connection waiters", String.valueOf(stats.getWaiters()));
+		appendStatisticsRow(result, "DB connection wait times", stats.getWaitTimeHistogramAsString());
+		appendStatisticsRow(result, "DB connections (created/evicted/invalid)", stats.getCreated() + " / " + stats.getEvicted() + " / " + stats.getInvalid());
+		appendStatisticsRow(result, "DB connection timeouts/leaks", stats.getTimeouts() + " / " + stats.getLeaks());
+		DatabaseConnectionPool replicaPool = DatabaseConnection.getReplicaPool();
+		if (replicaPool != null) {
+			DatabaseConnectionPool.Stats replicaStats = replicaPool.getStats();
+			appendStatisticsRow(result, "DB replica connections (active/idle/max)", replicaStats.getActive() + " / " + replicaStats.getIdle() + " / " + replicaStats.getMaxSize());
+			appendStatisticsRow(result, "DB replica connection timeouts/leaks", replicaStats.getTimeouts() + " / " + replicaStats.getLeaks());
+		}
+		appendStatisticsRow(result, "DB queries (replica/primary after write/primary)", QueryRouter.getReplicaReads() + " / " + QueryRouter.getStickyReads() + " / " + QueryRouter.getPrimaryReads());
+		appendStatisticsRow(result, "DB writes", String.valueOf(QueryRouter.getWrites()));
+		appendStatisticsRow(result, "DB update conflicts", String.valueOf(ObjectManager.getUpdateConflictCount()));
+		appendStatisticsRow(result, "DB request transactions (committed/rolled back/objects saved)", UnitOfWork.getCommitCount() + " / "
+			+ UnitOfWork.getRollbackCount() + " / " + UnitOfWork.getSavedObjectCount());
+		WriteBehindQueue queue = WriteBehindQueue.getInstance();
+		if (queue != null) {
+			appendStatisticsRow(result, "Write-behind queue (waiting/queued/coalesced/declined)", queue.getQueueSize() + " / " + queue.getQueuedCount()
+				+ " / " + queue.getCoalescedCount() + " / " + queue.getDeclinedCount());
+			appendStatisticsRow(result, "Write-behind (written/failed/transactions)", queue.getWrittenCount() + " / " + queue.getFailedCount()
+				+ " / " + queue.getTransactionCount());
+		}
+		PhotoTagIndex tagIndex = PhotoManager.getInstance().getPhotoTagIndex();
+		appendStatisticsRow(result, "Tag index (photos/tags)", tagIndex.getNoPhotos() + " / " + tagIndex.getNoTags());
+		PhotoFilterCache filterCache = PhotoManager.getInstance().getPhotoFilterCache();
+		appendStatisticsRow(result, "Filter cache (size/hits/misses)", filterCache.getSize() + " / " + filterCache.getHitCount()
+			+ " / " + filterCache.getMissCount());
+		appendStatisticsRow(result, "DB statement cache (hits/misses/evictions)", StatementCache.getTotalHits() + " / " + StatementCache.getTotalMisses()
+			+ " / " + StatementCache.getTotalEvictions() + String.format(" (hit rate %.1f%%)", 100.0 * StatementCache.getTotalHitRate()));
+		for (ObjectCache.Stats cacheStats : ObjectCache.getAllStats()) {
+			appendStatisticsRow(result, "Cached " + cacheStats.getName() + " (size/max)", cacheStats.getSize() + " / " + cacheStats.getCapacity());
+			appendStatisticsRow(result, "Cached " + cacheStats.getName() + " (hits/misses/evictions)",
+				cacheStats.getHits() + " / " + cacheStats.getMisses() + " / " + cacheStats.getEvictions()
+				+ String.format(" (hit rate %.1f%%)", 100.0 * cacheStats.getHitRate()));
+		}
+		for (NegativeLookupCache lookups : NegativeLookupCache.getAll()) {
+			appendStatisticsRow(result, "Unknown " + lookups.getName() + " (filtered/remembered/false positives)",
+				lookups.getFilterHits() + " / " + lookups.getCacheHits() + " / " + lookups.getFalsePositives());
+		}
+		for (QueryStats queryStats : QueryStats.getTopByTotalTime(10)) {
+			appendStatisticsRow(result, queryStats.getSql(), queryStats.getStatsAsString());
+		}
+		result.append("</table>");
+		return result.toString();
+	}
+	
+	/**
+	 * 
+	 */
+	protected void appendStatisticsRow(StringBuilder sb, String name, String value) {
+		sb.append("<tr><td align=\"left\" width=\"40%\">").append(HtmlUtil.asBold(HtmlUtil.maskForWeb(name) + ":")).append("</td>");
+		sb.append("<td align=\"left\">").append(HtmlUtil.maskForWeb(value)).append("</td></tr>");
 	}
 	
 	/**
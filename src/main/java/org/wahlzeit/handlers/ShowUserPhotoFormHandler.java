@@ -27,8 +27,7 @@ public class ShowUserPhotoFormHandler extends AbstractWebFormHandler {
 	 * 
 	 */
 	protected void doMakeWebPart(UserSession us, WebPart part) {
-		Photo _photo = us.getPhoto();
-		CGIPhoto photo = new CGIPhoto(_photo);
+		Photo photo = us.getPhoto();
 
 		String id = photo.getId().asString();
 		part.addString(Photo.ID, id);
@@ -40,7 +39,7 @@ public class ShowUserPhotoFormHandler extends AbstractWebFormHandler {
 		tags = !StringUtil.isNullOrEmptyString(tags) ? tags : us.cfg().getNoTags();
 		part.maskAndAddString(Photo.TAGS, tags);
 
-		part.maskAndAddString(CGIPhoto.SOFTWARE, photo.getSoftwareName());
+		part.maskAndAddString(CGIPhoto.SOFTWARE, getSoftwareName(photo));
 		
 		String photoStatus = us.cfg().asValueString(photo.getStatus());
 		part.addString(Photo.STATUS, photoStatus);
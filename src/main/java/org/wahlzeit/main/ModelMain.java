@@ -22,16 +22,25 @@ public abstract class ModelMain extends AbstractMain {
 	 * 
 	 */
 	protected void startUp(String rootDir) throws Exception {
+		installPhotoManager();
 		super.startUp(rootDir);
 
 		if (!hasGlobals()) {
 			tearDownDatabase();
 			setUpDatabase();
 		}
+		migrateDatabase();
 		
  		loadGlobals();
-
-		PhotoFactory.initialize();
+	}
+	
+	/**
+	 * Installs the CGI photo classes before anything asks for the PhotoFactory or the PhotoManager,
+	 * so that every photo, whether read or created, is a CGIPhoto in the one photo cache.
+	 */
+	protected void installPhotoManager() {
+		CGIPhotoFactory.initialize();
+		PhotoManager.setInstance(new CGIPhotoManager());
 	}
 	
 	/**
@@ -50,6 +59,7 @@ public abstract class ModelMain extends AbstractMain {
 	 */
 	protected void shutDown() throws Exception {
 		saveAll();
+		IdAllocator.setInstance(null);
 
 		super.shutDown();
 	}
@@ -61,6 +71,15 @@ public abstract class ModelMain extends AbstractMain {
 		runScript("CreateTables.sql");
 	}
 	
+	/**
+	 * Applies the migration scripts the database has not seen yet, see MigrationRunner
+	 */
+	public void migrateDatabase() throws SQLException {
+		DatabaseConnection dbc = mainSession.ensureDatabaseConnection();
+		MigrationRunner runner = new MigrationRunner(dbc.getRdbmsConnection(), SysConfig.getScriptsDir());
+		runner.migrate();
+	}
+	
 	/**
 	 * 
 	 */
@@ -129,12 +148,34 @@ public abstract class ModelMain extends AbstractMain {
 		}
 		
 		stmt.close();
+
+		int idBlockSize = SysConfig.getIdBlockSize();
+		if (idBlockSize > 0) {
+			IdAllocator.setInstance(new IdAllocator(idBlockSize));
+			SysLog.logSysInfo("allocating ids in blocks of " + idBlockSize);
+		}
+	}
+
+	/**
+	 * Within a UnitOfWork, the globals are saved once, when the unit of work commits
+	 */
+	public void saveGlobals() throws SQLException {
+		UnitOfWork unitOfWork = SessionManager.getUnitOfWork();
+		if (unitOfWork != null) {
+			unitOfWork.registerAction("globals", new UnitOfWork.Action() {
+				public void perform() throws SQLException {
+					writeGlobals();
+				}
+			});
+		} else {
+			writeGlobals();
+		}
 	}
 
 	/**
 	 *
 	 */
-	public synchronized void saveGlobals() throws SQLException {
+	protected synchronized void writeGlobals() throws SQLException {
 		DatabaseConnection dbc = SessionManager.getDatabaseConnection();
 		Connection conn = dbc.getRdbmsConnection();
 
@@ -144,24 +185,27 @@ public abstract class ModelMain extends AbstractMain {
 		Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
 		ResultSet rset = stmt.executeQuery(query);
 		if (rset.next()) {
-			int lastUserId = User.getLastUserId();
-			rset.updateInt("last_user_id", lastUserId);
-			SysLog.logSysInfo("saved global variable lastUserId: " + lastUserId);
-			int lastPhotoId = PhotoId.getCurrentIdAsInt();
-			rset.updateInt("last_photo_id", lastPhotoId);
-			SysLog.logSysInfo("saved global variable lastPhotoId: " + lastPhotoId);
-			int lastCaseId = Case.getLastCaseId().asInt();
-			rset.updateInt("last_case_id", lastCaseId);
-			SysLog.logSysInfo("saved global variable lastCaseId: " + lastCaseId);
 			int lastSessionId = AbstractServlet.getLastSessionId();
 			rset.updateInt("last_session_id", lastSessionId);
 			SysLog.logSysInfo("saved global variable lastSessionId: " + lastSessionId);
-			int lastCoordinateId = CartesianCoordinate.getLastCoordinateId().asInt();
-			rset.updateInt("last_coordinate_id", lastCoordinateId);
-			SysLog.logSysInfo("saved global variable lastCoordinateId: " + lastCoordinateId);
-			int lastLocationId = Location.getLastLocationId().asInt();
-			rset.updateInt("last_location_id", lastLocationId);
-			SysLog.logSysInfo("saved global variable lastLocationId: " + lastLocationId);
+			if (IdAllocator.getInstance() == null) {
+				// with an IdAllocator, these columns hold the ids reserved by all nodes and only grow in the database
+				int lastUserId = User.getLastUserId();
+				rset.updateInt("last_user_id", lastUserId);
+				SysLog.logSysInfo("saved global variable lastUserId: " + lastUserId);
+				int lastPhotoId = PhotoId.getCurrentIdAsInt();
+				rset.updateInt("last_photo_id", lastPhotoId);
+				SysLog.logSysInfo("saved global variable lastPhotoId: " + lastPhotoId);
+				int lastCaseId = Case.getLastCaseId().asInt();
+				rset.updateInt("last_case_id", lastCaseId);
+				SysLog.logSysInfo("saved global variable lastCaseId: " + lastCaseId);
+				int lastCoordinateId = CartesianCoordinate.getLastCoordinateId().asInt();
+				rset.updateInt("last_coordinate_id", lastCoordinateId);
+				SysLog.logSysInfo("saved global variable lastCoordinateId: " + lastCoordinateId);
+				int lastLocationId = Location.getLastLocationId().asInt();
+				rset.updateInt("last_location_id", lastLocationId);
+				SysLog.logSysInfo("saved global variable lastLocationId: " + lastLocationId);
+			}
 			rset.updateRow();
 		} else {
 			SysLog.logSysError("Could not save globals!");
@@ -176,6 +220,7 @@ public abstract class ModelMain extends AbstractMain {
 	public void saveAll() throws SQLException {
 		PhotoCaseManager.getInstance().savePhotoCases();
 		PhotoManager.getInstance().savePhotos();			
+		PhotoManager.getInstance().savePraise();
 		UserManager.getInstance().saveUsers();
 		LocationManager.getInstance().saveLocations();
 		CoordinateManager.getInstance().saveCoordinates();
@@ -210,7 +255,9 @@ public abstract class ModelMain extends AbstractMain {
 		SysLog.logQuery(query);
 
 		Statement stmt = conn.createStatement();
+		long start = System.nanoTime();
 		stmt.execute(query);
+		QueryStats.forSql("script " + new File(fullFileName).getName()).record(System.nanoTime() - start, stmt.getUpdateCount(), fullFileName);
 	}
 	
 }
@@ -73,6 +73,27 @@ public class ServiceMain extends ModelMain {
 		configureWebPartHandlers();
 		configureLanguageModels();
 
+		if (SysConfig.isDbPreloadPhotos()) {
+			PhotoManager.getInstance().loadPhotos();
+		}
+
+		PhotoManager.getInstance().loadPhotoTagIndex();
+
+		if (SysConfig.isNegativeLookupFilters()) {
+			if (IdAllocator.getInstance() == null) {
+				PhotoManager.getInstance().loadPhotoIdFilter();
+				UserManager.getInstance().loadUserTagFilter();
+			} else {
+				SysLog.logSysInfo("negative lookup filters are off, as other nodes may add photos and users");
+			}
+		}
+
+		if (SysConfig.isWriteBehind()) {
+			WriteBehindQueue queue = WriteBehindQueue.createFromSysConfig();
+			WriteBehindQueue.setInstance(queue);
+			queue.start();
+		}
+
 		AgentManager am = AgentManager.getInstance();
 		am.startAllThreads();
 	}
@@ -83,6 +104,12 @@ public class ServiceMain extends ModelMain {
 	public void shutDown() throws Exception {
 		AgentManager am = AgentManager.getInstance();
 		am.stopAllThreads();
+		
+		WriteBehindQueue queue = WriteBehindQueue.getInstance();
+		if (queue != null) {
+			WriteBehindQueue.setInstance(null);
+			queue.shutDown();
+		}
 				
 		super.shutDown();
 	}
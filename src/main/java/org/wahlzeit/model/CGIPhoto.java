@@ -31,12 +31,15 @@ import static org.wahlzeit.utils.AssertUtil.*;
  *         createPhoto:58, CGIPhotoFactory (org.wahlzeit.model)
  *           < init >:43, CGIPhoto (org.wahlzeit.model)
  * </code></pre>
- * <p>Object instantiation during display (bottom is most recent):
+ * <p>Object instantiation when read from the database (bottom is most recent):
  * <pre><code>
- *   doMakeWebPart:31, ShowUserPhotoFormHandler (org.wahlzeit.handlers)
- *     < init >:43, CGIPhoto (org.wahlzeit.model) (*)
+ *   getPhotoFromId, PhotoManager (org.wahlzeit.model)
+ *     readPhotos, PhotoManager (org.wahlzeit.model)
+ *       createObject, PhotoManager (org.wahlzeit.model)
+ *         createPhoto, CGIPhotoFactory (org.wahlzeit.model)
+ *           < init >, CGIPhoto (org.wahlzeit.model)
  * </code></pre>
- * (*) uses a copy constructor that replaces a Photo with a CGIPhoto instance.
+ * Handlers display the cached CGIPhoto instance; they do not copy it.
  * </p>
  * <h3/>
  * <h2>Object Creation Solution</h2>
@@ -105,7 +108,8 @@ public class CGIPhoto extends Photo {
     public CGIPhoto(ResultSet rset) throws SQLException {
         super(rset);
         SysLog.logSysInfo("CGIPhoto(ResultSet rset) constructor called.");
-        CGISoftwareManager.getInstance().createCGISoftware(rset.getString("software_name"));
+        // field initializers run after super(rset), so the software read in readFrom has been reset
+        software = getCGISoftwareFromString(rset.getString("software_name"));
     }
 
     /**
@@ -155,6 +159,8 @@ public class CGIPhoto extends Photo {
      */
     public void setSoftwareName(String softwareName) {
         this.software = getCGISoftwareFromString(softwareName);
+        incWriteCount("software_name");
+        PhotoManager.getInstance().reindexPhoto(this);
         assertClassInvariants();
     }
 
@@ -36,6 +36,8 @@ public class CGIPhotoFactory extends PhotoFactory {
             throw new IllegalStateException("attempt to initialize CGIPhotoFactory twice");
         }
 
+        // also serve as the PhotoFactory, so that photos read from the database are CGIPhotos
+        PhotoFactory.setInstance(cgiPhotoFactory);
         instance = cgiPhotoFactory;
 
         assertNotNull(instance);
@@ -63,4 +65,8 @@ public class CGIPhotoFactory extends PhotoFactory {
         return new CGIPhoto(rs);
     }
 
+    public PhotoTagCollector createPhotoTagCollector() {
+        return new CGIPhotoTagCollector();
+    }
+
 }
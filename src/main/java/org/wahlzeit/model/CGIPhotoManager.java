@@ -1,6 +1,5 @@
 package org.wahlzeit.model;
 
-import org.wahlzeit.main.ServiceMain;
 import org.wahlzeit.services.SysLog;
 import static org.wahlzeit.utils.AssertUtil.*;
 
@@ -9,21 +8,30 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
 
+/**
+ * The application's PhotoManager, installed by ModelMain. Photos are created by the CGIPhotoFactory,
+ * so the shared photo cache holds CGIPhotos, and this class only adds typed access to them.
+ */
 public class CGIPhotoManager extends PhotoManager {
 
-    protected static final CGIPhotoManager instance = new CGIPhotoManager();
-    protected Map<PhotoId, CGIPhoto> photoCache = new HashMap<>();
-
     public PreparedStatement exposeReadingStatement(String stmt) throws SQLException {
         return getReadingStatement(stmt);
     }
 
+    /**
+     * @throws IllegalStateException if the installed PhotoManager is not a CGIPhotoManager
+     */
     public static CGIPhotoManager getMyInstance() {
-        return instance;
+        PhotoManager result = PhotoManager.getInstance();
+        if (!(result instanceof CGIPhotoManager)) {
+            throw new IllegalStateException("PhotoManager is not a CGIPhotoManager; see ModelMain.installPhotoManager");
+        }
+
+        return (CGIPhotoManager) result;
     }
 
     protected CGIPhoto doGetPhotoFromId(PhotoId id) {
-        return photoCache.get(id);
+        return (CGIPhoto) photoCache.get(id);
     }
 
     /**
@@ -35,82 +43,31 @@ public class CGIPhotoManager extends PhotoManager {
 
         assertNotNull(id);
 
-        if (id.isNullId()) {
-            return null;
-        }
-
-        CGIPhoto result = doGetPhotoFromId(id);
-        if (result == null) {
-            try {
-                PreparedStatement stmt = getReadingStatement("SELECT * FROM photos WHERE id = ?");
-                Photo _photo = (Photo) readObject(stmt, id.asInt());
-                result = new CGIPhoto(_photo);
-            } catch (SQLException sex) {
-                SysLog.logThrowable(sex);
-            }
-            if (result != null) {
-                doAddPhoto(result);
-            }
-        }
-
-        return result;
-    }
-
-    protected void doAddPhoto(CGIPhoto myPhoto) {
-        photoCache.put(myPhoto.getId(), myPhoto);
-    }
-
-    /**
-     * @Preconditions: photo != null
-     * @Postconditions:
-     * @Invariants:
-     */
-    public void addPhoto(CGIPhoto photo) {
-
-        assertNotNull(photo);
-
-        PhotoId id = photo.getId();
-        assertIsNewPhoto(id);
-        doAddPhoto(photo);
-
-        try {
-            PreparedStatement stmt = getReadingStatement("INSERT INTO photos(id) VALUES(?)");
-            createObject(photo, stmt, id.asInt());
-            ServiceMain.getInstance().saveGlobals();
-        } catch (SQLException sex) {
-            SysLog.logThrowable(sex);
-        }
+        return (CGIPhoto) super.getPhotoFromId(id);
     }
 
     public Set<CGIPhoto> findPhotosBySoftware(String softwareName) {
 
-        Set<CGIPhoto> result = new HashSet<>();
+        Set<Photo> photos = new HashSet<>();
 
         try {
-            PreparedStatement stmt = getReadingStatement("SELECT * FROM photos WHERE software_name = ?");
-            readObjects(result, stmt, softwareName);
+            PreparedStatement stmt = getReadingStatement(getPhotosQuery("WHERE photos.software_name = ?"));
+            stmt.setString(1, softwareName);
+            readPhotos(photos, stmt);
         } catch (SQLException sex) {
             SysLog.logThrowable(sex);
         }
 
-        for (CGIPhoto cgiPhoto : result) {
-            doAddPhoto(cgiPhoto);
+        Set<CGIPhoto> result = new HashSet<>();
+        for (Photo photo : photos) {
+            result.add((CGIPhoto) photo);
         }
 
         return result;
     }
 
     public CGIPhoto getVisiblePhoto(PhotoFilter filter) {
-
-        CGIPhoto result = getPhotoFromFilter(filter);
-
-        if(result == null) {
-            java.util.List<PhotoId> list = getFilteredPhotoIds(filter);
-            filter.setDisplayablePhotoIds(list);
-            result = getPhotoFromFilter(filter);
-        }
-
-        return result;
+        return (CGIPhoto) super.getVisiblePhoto(filter);
     }
 
     /**
@@ -122,19 +79,7 @@ public class CGIPhotoManager extends PhotoManager {
 
         assertNotNull(filter);
 
-        PhotoId id = filter.getRandomDisplayablePhotoId();
-
-        CGIPhoto result = getPhotoFromId(id);
-
-        while((result != null) && !result.isVisible()) {
-            id = filter.getRandomDisplayablePhotoId();
-            result = getPhotoFromId(id);
-            if ((result != null) && !result.isVisible()) {
-                filter.addProcessedPhoto(result);
-            }
-        }
-
-        return result;
+        return (CGIPhoto) super.getPhotoFromFilter(filter);
     }
 
     public CGIPhoto createPhoto(File file) throws Exception {
@@ -143,14 +88,4 @@ public class CGIPhotoManager extends PhotoManager {
         addPhoto(result);
         return result;
     }
-
-    public void savePhoto(CGIPhoto photo) {
-
-        try {
-            PreparedStatement stmt = getUpdatingStatement("SELECT * FROM photos WHERE id = ?");
-            updateObject(photo, stmt);
-        } catch (SQLException sex) {
-            SysLog.logThrowable(sex);
-        }
-    }
 }
@@ -0,0 +1,24 @@
+package org.wahlzeit.model;
+
+import org.wahlzeit.utils.StringUtil;
+
+import java.util.Set;
+
+/**
+ * Collects the tags of a photo, and for CGIPhotos also the software the image was made with, as "sw:" tag,
+ * so that photo queries can select by software.
+ */
+public class CGIPhotoTagCollector extends PhotoTagCollector {
+
+    public void collect(Set<String> tags, Photo photo) {
+        super.collect(tags, photo);
+
+        if (photo instanceof CGIPhoto) {
+            String softwareName = ((CGIPhoto) photo).getSoftwareName();
+            if (!StringUtil.isNullOrEmptyString(softwareName)) {
+                tags.add(PhotoQuery.SOFTWARE_FIELD + ":" + Tags.asTag(softwareName));
+            }
+        }
+    }
+
+}
@@ -21,16 +21,14 @@ import org.wahlzeit.services.SysLog;
  *               createInstance:8, CGISoftwareType (org.wahlzeit.model)
  *                 < init >:14, CGISoftware (org.wahlzeit.model)
  * </code></pre>
- * <p>Object instantiation during display (bottom is most recent):
+ * <p>Object instantiation when read from the database (bottom is most recent):
  * <pre><code>
- *   doMakeWebPart:31, ShowUserPhotoFormHandler (org.wahlzeit.handlers)
- *     < init >:43, CGIPhoto (org.wahlzeit.model) (*)
- *       createCGISoftware:58, CGISoftwareManager (org.wahlzeit.model)
- *       createCGISoftware:51, CGISoftwareManager (org.wahlzeit.model)
- *         createInstance:14, CGISoftwareType (org.wahlzeit.model)
- *           < init >:14, CGISoftware (org.wahlzeit.model)
+ *   createPhoto, CGIPhotoFactory (org.wahlzeit.model)
+ *     < init >, CGIPhoto (org.wahlzeit.model)
+ *       createCGISoftware, CGISoftwareManager (org.wahlzeit.model)
+ *         createInstance, CGISoftwareType (org.wahlzeit.model)
+ *           < init >, CGISoftware (org.wahlzeit.model)
  * </code></pre>
- * (*) uses a copy constructor that replaces a Photo with a CGIPhoto instance.
  * </p>
  * <h3/>
  * <h2>Object Creation Solution</h2>
@@ -8,6 +8,8 @@ import java.util.Objects;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.wahlzeit.services.IdAllocator;
+
 import static org.wahlzeit.utils.AssertUtil.*;
 
 public class CartesianCoordinate extends AbstractCoordinate {
@@ -27,6 +29,19 @@ public class CartesianCoordinate extends AbstractCoordinate {
         z = rset.getDouble("z");
     }
 
+    /**
+     * Recreates a persisted coordinate; it keeps its id and is not dirty
+     */
+    private CartesianCoordinate(CoordinateId myId, double x, double y, double z) {
+
+        assertNotNull(myId);
+
+        id = myId;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
     /**
      * @Preconditions: myId != null
      * @Postconditions: this.id == myId && this.writeCount == old(this.writeCount) + 1
@@ -89,7 +104,7 @@ public class CartesianCoordinate extends AbstractCoordinate {
      * @Preconditions: Double.isFinite(x) &&
      *                 Double.isFinite(y) &&
      *                 Double.isFinite(z)
-     * @Postconditions: this.id == this.lastCoordinateId + 1 &&
+     * @Postconditions: this.id == this.lastCoordinateId &&
      *                  this.writeCount == old(this.writeCount) + 1 &&
      *                  this.x >= 0 &&
      *                  this.y >= 0 &&
@@ -175,8 +190,15 @@ public class CartesianCoordinate extends AbstractCoordinate {
         return id;
     }
 
-    static CoordinateId getNextCoordinateId() {
+    /**
+     * 
+     */
+    static synchronized CoordinateId getNextCoordinateId() {
 
+        IdAllocator allocator = IdAllocator.getInstance();
+        if (allocator != null) {
+            return lastCoordinateId = new CoordinateId(allocator.getNextId(IdAllocator.COORDINATE_IDS));
+        }
         if (lastCoordinateId == null) {
             return lastCoordinateId = CoordinateId.NULL_ID;
         }
@@ -262,6 +284,23 @@ public class CartesianCoordinate extends AbstractCoordinate {
         return result;
     }
 
+    /**
+     * @Preconditions: id != null
+     * @Postconditions: result.id == id
+     * @Invariants:
+     */
+    public static CartesianCoordinate loadCartesianCoordinate(CoordinateId id, double x, double y, double z) {
+
+        CartesianCoordinate result = new CartesianCoordinate(id, x, y, z);
+        String key = makeKey(x, y, z);
+        synchronized (CartesianCoordinate.class) {
+            if (!allCartesianCoordinates.containsKey(key)) {
+                allCartesianCoordinates.put(key, result);
+            }
+        }
+        return result;
+    }
+
     public static CartesianCoordinate getCartesianCoordinate(ResultSet rset) throws SQLException {
 
         double x = rset.getDouble("x");
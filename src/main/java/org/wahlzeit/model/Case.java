@@ -4,13 +4,15 @@
 
 package org.wahlzeit.model;
 
+import java.sql.*;
+
 import org.wahlzeit.services.*;
 
 /**
  * A case is a user complaint, most notably about an inappropriate photo.
  * Subclasses capture the specifics of different types of cases; here only an id is provided.
  */
-public abstract class Case extends DataObject {
+public abstract class Case extends DataObject implements Versioned {
 	
 	/**
 	 * 0 is never returned, first value is 1
@@ -35,7 +37,34 @@ public abstract class Case extends DataObject {
 	 * @methodtype idiom
 	 */
 	public static synchronized CaseId getNextCaseId() {
-		return lastCaseId = lastCaseId.getNextId();
+		IdAllocator allocator = IdAllocator.getInstance();
+		return lastCaseId = (allocator != null) ? new CaseId(allocator.getNextId(IdAllocator.CASE_IDS)) : lastCaseId.getNextId();
+	}
+
+	/**
+	 * 
+	 */
+	protected int version = 0;
+	
+	/**
+	 * @methodtype get
+	 */
+	public int getVersion() {
+		return version;
+	}
+	
+	/**
+	 * @methodtype set
+	 */
+	public void setVersion(int newVersion) {
+		version = newVersion;
+	}
+	
+	/**
+	 * This case's values win over those of the newer row.
+	 */
+	public void mergeWith(ResultSet rset) throws SQLException {
+		version = rset.getInt(VERSION);
 	}
 
 }
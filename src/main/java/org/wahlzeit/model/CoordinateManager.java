@@ -1,6 +1,9 @@
 package org.wahlzeit.model;
 
+import org.wahlzeit.services.ObjectCache;
 import org.wahlzeit.services.ObjectManager;
+import org.wahlzeit.services.Persistent;
+import org.wahlzeit.services.SysConfig;
 import org.wahlzeit.services.SysLog;
 import org.wahlzeit.utils.PatternInstance;
 
@@ -9,8 +12,6 @@ import static org.wahlzeit.utils.AssertUtil.*;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
 
 @PatternInstance(
     patternName = "Mediator",
@@ -26,12 +27,35 @@ public class CoordinateManager extends ObjectManager {
         return instance;
     }
 
-    protected Map<CoordinateId, Coordinate> coordinateCache = new HashMap<>();
+    protected ObjectCache<CoordinateId, Coordinate> coordinateCache = new ObjectCache<>("coordinates", SysConfig.CACHE_COORDINATES_SIZE);
 
     @Override
     protected Coordinate createObject(ResultSet rset) throws SQLException {
 
-        return CartesianCoordinate.getCartesianCoordinate(rset);
+        return CartesianCoordinate.loadCartesianCoordinate(
+            CoordinateId.getIdFromInt(rset.getInt("id")), rset.getDouble("x"), rset.getDouble("y"), rset.getDouble("z"));
+    }
+
+    /**
+     * Takes the coordinate from the c_-prefixed columns of a joined row, see PhotoManager.
+     *
+     * @return the cached coordinate, or null if the row has none
+     */
+    protected Coordinate hydrateCoordinate(ResultSet rset) throws SQLException {
+
+        int id = rset.getInt("c_id");
+        if (rset.wasNull()) {
+            return null;
+        }
+
+        CoordinateId coordinateId = CoordinateId.getIdFromInt(id);
+        Coordinate result = coordinateCache.get(coordinateId);
+        if (result == null) {
+            result = coordinateCache.putIfAbsent(coordinateId, CartesianCoordinate.loadCartesianCoordinate(
+                coordinateId, rset.getDouble("c_x"), rset.getDouble("c_y"), rset.getDouble("c_z")));
+        }
+
+        return result;
     }
 
     public static final Coordinate getCoordinate(CoordinateId id) {
@@ -47,7 +71,7 @@ public class CoordinateManager extends ObjectManager {
 
         assertNotNull(id);
 
-        if (CoordinateId.NULL_ID == id) {
+        if (CoordinateId.NULL_ID.equals(id)) {
             return null;
         }
 
@@ -61,7 +85,11 @@ public class CoordinateManager extends ObjectManager {
                 SysLog.logThrowable(sex);
             }
             if (result != null) {
-                coordinateCache.put(result.getId(), result);
+                result = coordinateCache.putIfAbsent(result.getId(), result);
+                // coordinates are immutable values, so they only get dirty on construction
+                if (result.isDirty()) {
+                    markDirty(result);
+                }
             }
         }
 
@@ -70,11 +98,15 @@ public class CoordinateManager extends ObjectManager {
 
     public void saveCoordinates() {
         try {
-            PreparedStatement stmt = getUpdatingStatement("SELECT * FROM coordinates WHERE id = ?");
-            updateObjects(coordinateCache.values(), stmt);
+            updateDirtyObjects("coordinates");
         } catch (SQLException sex) {
             SysLog.logThrowable(sex);
         }
     }
 
+    @Override
+    protected boolean isManaged(Persistent obj) {
+        return (obj instanceof Coordinate) && (coordinateCache.peek(((Coordinate) obj).getId()) == obj);
+    }
+
 }
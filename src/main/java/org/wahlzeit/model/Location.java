@@ -1,6 +1,8 @@
 package org.wahlzeit.model;
 
 import org.wahlzeit.services.DataObject;
+import org.wahlzeit.services.IdAllocator;
+import org.wahlzeit.services.ObjectManager;
 import static org.wahlzeit.utils.AssertUtil.*;
 
 import java.sql.PreparedStatement;
@@ -41,9 +43,17 @@ public class Location extends DataObject {
         incWriteCount();
     }
 
+    /**
+     * Recreates a persisted location; it is not dirty
+     */
+    protected Location(LocationId myId, Coordinate myCoordinate) {
+        id = myId;
+        coordinate = myCoordinate;
+    }
+
     /**
      * @Preconditions: coordinate != null
-     * @Postconditions: this.coordinate == coordinate && this.id == lastLocationId + 1
+     * @Postconditions: this.coordinate == coordinate && this.id > old(lastLocationId)
      * @Invariants:
      */
     public Location(Coordinate coordinate) {
@@ -55,7 +65,7 @@ public class Location extends DataObject {
         this.coordinate = coordinate;
         id = getNextLocationId();
 
-        assertPlusOne(id.asInt(), oldLastLocationId.asInt());
+        assertGreater(id.asInt(), oldLastLocationId.asInt());
 
         incWriteCount();
     }
@@ -90,6 +100,11 @@ public class Location extends DataObject {
         return id;
     }
 
+    @Override
+    protected ObjectManager getObjectManager() {
+        return LocationManager.getInstance();
+    }
+
     // --- Persistent Interface Overrides ---
 
     @Override
@@ -134,8 +149,15 @@ public class Location extends DataObject {
 
     // --- Static Getters/Setters For LastLocationID ---
 
+    /**
+     * 
+     */
     public static synchronized LocationId getNextLocationId() {
 
+        IdAllocator allocator = IdAllocator.getInstance();
+        if (allocator != null) {
+            return lastLocationId = new LocationId(allocator.getNextId(IdAllocator.LOCATION_IDS));
+        }
         if (lastLocationId == null) {
             return lastLocationId = LocationId.NULL_ID;
         }
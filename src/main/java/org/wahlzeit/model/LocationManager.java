@@ -1,7 +1,9 @@
 package org.wahlzeit.model;
 
+import org.wahlzeit.services.ObjectCache;
 import org.wahlzeit.services.ObjectManager;
 import org.wahlzeit.services.Persistent;
+import org.wahlzeit.services.SysConfig;
 import org.wahlzeit.services.SysLog;
 import org.wahlzeit.utils.PatternInstance;
 
@@ -24,7 +26,7 @@ public class LocationManager extends ObjectManager {
         return instance;
     }
 
-    protected Map<LocationId, Location> locationCache = new HashMap<>();
+    protected ObjectCache<LocationId, Location> locationCache = new ObjectCache<>("locations", SysConfig.CACHE_LOCATIONS_SIZE);
 
     @Override
     protected Location createObject(ResultSet rset) throws SQLException {
@@ -37,7 +39,7 @@ public class LocationManager extends ObjectManager {
 
     private Location getLocationFromId(LocationId id) {
 
-        if (LocationId.NULL_ID == id) {
+        if (LocationId.NULL_ID.equals(id)) {
             return null;
         }
 
@@ -51,38 +53,120 @@ public class LocationManager extends ObjectManager {
                 SysLog.logThrowable(sex);
             }
             if (result != null) {
-                locationCache.put(result.getId(), result);
+                result = locationCache.putIfAbsent(result.getId(), result);
             }
         }
 
         return result;
     }
 
+    /**
+     * Takes the location and its coordinate from the l_- and c_-prefixed columns of a joined row, see PhotoManager.
+     */
+    protected void hydrateLocation(ResultSet rset) throws SQLException {
+
+        int id = rset.getInt("l_id");
+        if (rset.wasNull()) {
+            return;
+        }
+
+        LocationId locationId = LocationId.getIdFromInt(id);
+        if (locationCache.peek(locationId) == null) {
+            Coordinate coordinate = CoordinateManager.getInstance().hydrateCoordinate(rset);
+            locationCache.putIfAbsent(locationId, new Location(locationId, coordinate));
+        }
+    }
+
+    public void loadLocations(Collection<Location> result) {
+        try {
+            PreparedStatement stmt = getReadingStatement("SELECT * FROM locations");
+            readObjects(result, stmt);
+            for (Location location : result) {
+                if (locationCache.putIfAbsent(location.getId(), location) != location) {
+                    SysLog.logSysInfo("location", location.getIdAsString(), "location had already been loaded");
+                }
+            }
+        } catch (SQLException sex) {
+            SysLog.logThrowable(sex);
+        }
+
+        SysLog.logSysInfo("loaded all locations");
+    }
+
     public void saveLocations() {
         try {
-            PreparedStatement stmt = getUpdatingStatement("SELECT * FROM locations WHERE id = ?");
-            updateObjects(locationCache.values(), stmt);
+            updateDirtyObjects("locations");
         } catch (SQLException sex) {
             SysLog.logThrowable(sex);
         }
     }
 
+    @Override
+    protected boolean isManaged(Persistent obj) {
+        return (obj instanceof Location) && (locationCache.peek(((Location) obj).getId()) == obj);
+    }
+
+    /**
+     * Upserts the location row and its coordinate row of a photo, if they changed since they were last written.
+     */
+    public void saveLocationRow(Location location) throws SQLException {
+
+        if (location.isDirty()) {
+            int writeCount = location.getWriteCount();
+            PreparedStatement stmt = getReadingStatement(
+                "INSERT INTO locations(id, coordinate) VALUES(?, ?) "
+                + "ON CONFLICT (id) DO UPDATE SET coordinate = EXCLUDED.coordinate");
+            stmt.setInt(1, location.getId().asInt());
+            stmt.setInt(2, (location.getCoordinate() == null) ? 0 : location.getCoordinate().getId().asInt());
+
+            SysLog.logQuery(stmt);
+            stmt.executeUpdate();
+            location.resetWriteCount(writeCount);
+        }
+
+        updateDependents(location);
+    }
+
+    /**
+     * Marks the location row and its coordinate row as unwritten again, after the transaction that wrote them was rolled back.
+     */
+    public void rollbackLocationRow(Location location) {
+        location.incWriteCount();
+        rollbackDependents(location);
+    }
+
+    @Override
+    protected void rollbackDependents(Persistent obj) {
+        Coordinate coordinate = ((Location) obj).getCoordinate();
+        if (coordinate != null) {
+            coordinate.incWriteCount();
+        }
+    }
+
+    /**
+     * Coordinates are immutable values, so a coordinate row only needs writing while the coordinate is new.
+     */
     @Override
     protected void updateDependents(Persistent obj) throws SQLException {
 
         Location location = (Location) obj;
         Coordinate coordinate = location.getCoordinate();
 
-        PreparedStatement stmt = getReadingStatement("DELETE FROM coordinates WHERE id = ?");
-        deleteObject(coordinate, stmt);
+        if (coordinate == null || !coordinate.isDirty()) {
+            return;
+        }
 
-        stmt = getReadingStatement("INSERT INTO coordinates VALUES(?, ?, ?, ?)");
+        CartesianCoordinate cartesian = coordinate.asCartesianCoordinate();
+        PreparedStatement stmt = getReadingStatement(
+            "INSERT INTO coordinates(id, x, y, z) VALUES(?, ?, ?, ?) "
+            + "ON CONFLICT (id) DO UPDATE SET x = EXCLUDED.x, y = EXCLUDED.y, z = EXCLUDED.z");
         stmt.setInt(1, coordinate.getId().asInt());
-        stmt.setDouble(2, coordinate.asCartesianCoordinate().getX());
-        stmt.setDouble(3, coordinate.asCartesianCoordinate().getY());
-        stmt.setDouble(4, coordinate.asCartesianCoordinate().getZ());
+        stmt.setDouble(2, cartesian.getX());
+        stmt.setDouble(3, cartesian.getY());
+        stmt.setDouble(4, cartesian.getZ());
 
         SysLog.logQuery(stmt);
         stmt.executeUpdate();
+        coordinate.resetWriteCount();
     }
 }
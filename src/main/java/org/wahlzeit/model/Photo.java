@@ -7,6 +7,8 @@ package org.wahlzeit.model;
 
 import java.sql.*;
 import java.net.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import org.wahlzeit.services.*;
 import org.wahlzeit.utils.*;
@@ -14,7 +16,7 @@ import org.wahlzeit.utils.*;
 /**
  * A photo represents a user-provided (uploaded) photo.
  */
-public class Photo extends DataObject {
+public class Photo extends DataObject implements Versioned {
 
 	/**
 	 * 
@@ -75,17 +77,35 @@ public class Photo extends DataObject {
 
 	protected Location location = null;
 
+	/**
+	 * Tags in the tags table as of the last save; null if not known
+	 */
+	protected transient Set<String> persistedTags = null;
+
 	/**
 	 * 
 	 */
 	protected PhotoStatus status = PhotoStatus.VISIBLE;
 	
 	/**
-	 * 
+	 * Praise as read from the photo's row, less the praise given here and saved since
 	 */
 	protected int praiseSum = 10;
 	protected int noVotes = 1;
 	
+	/**
+	 * Praise given here; PhotoManager.savePraise() adds what has not been saved yet to the row
+	 */
+	protected final transient LongAdder localPraiseSum = new LongAdder();
+	protected final transient LongAdder localNoVotes = new LongAdder();
+	protected transient volatile long savedLocalPraiseSum = 0;
+	protected transient volatile long savedLocalNoVotes = 0;
+	
+	/**
+	 * 
+	 */
+	protected int version = 0;
+	
 	/**
 	 * 
 	 */
@@ -117,6 +137,13 @@ public class Photo extends DataObject {
 		readFrom(rset);
 	}
 
+	/**
+	 * 
+	 */
+	protected ObjectManager getObjectManager() {
+		return PhotoManager.getInstance();
+	}
+	
 	/**
 	 * 
 	 * @methodtype get
@@ -145,11 +172,12 @@ public class Photo extends DataObject {
 		tags = new Tags(rset.getString("tags"));
 
 		status = PhotoStatus.getFromInt(rset.getInt("status"));
-		praiseSum = rset.getInt("praise_sum");
-		noVotes = rset.getInt("no_votes");
+		readPraiseFrom(rset);
 
 		creationTime = rset.getLong("creation_time");
 
+		version = rset.getInt(VERSION);
+
 		maxPhotoSize = PhotoSize.getFromWidthHeight(width, height);
 
 		location = LocationManager.getLocation(LocationId.getIdFromInt(rset.getInt("location")));
@@ -170,8 +198,6 @@ public class Photo extends DataObject {
 		rset.updateInt("height", height);
 		rset.updateString("tags", tags.asString());
 		rset.updateInt("status", status.asInt());
-		rset.updateInt("praise_sum", praiseSum);
-		rset.updateInt("no_votes", noVotes);
 		rset.updateLong("creation_time", creationTime);
 		rset.updateInt("location", hasLocation() ? location.getId().asInt() : 0);
 	}
@@ -183,6 +209,36 @@ public class Photo extends DataObject {
 		stmt.setInt(pos, id.asInt());
 	}
 	
+	/**
+	 * @methodtype get
+	 */
+	public int getVersion() {
+		return version;
+	}
+	
+	/**
+	 * @methodtype set
+	 */
+	public void setVersion(int newVersion) {
+		version = newVersion;
+	}
+	
+	/**
+	 * Praise is not written with the row, so the newer row's praise is taken; for all other fields, this photo's values win.
+	 */
+	public void mergeWith(ResultSet rset) throws SQLException {
+		readPraiseFrom(rset);
+		version = rset.getInt(VERSION);
+	}
+	
+	/**
+	 * The row already contains the praise given here and saved
+	 */
+	protected void readPraiseFrom(ResultSet rset) throws SQLException {
+		praiseSum = rset.getInt("praise_sum") - (int) savedLocalPraiseSum;
+		noVotes = rset.getInt("no_votes") - (int) savedLocalNoVotes;
+	}
+	
 	/**
 	 * 
 	 * @methodtype get
@@ -205,7 +261,7 @@ public class Photo extends DataObject {
 	 */
 	public void setOwnerId(int newId) {
 		ownerId = newId;
-		incWriteCount();
+		incWriteCount("owner_id");
 	}
 	
 	/**
@@ -222,7 +278,8 @@ public class Photo extends DataObject {
 	 */
 	public void setOwnerName(String newName) {
 		ownerName = newName;
-		incWriteCount();
+		incWriteCount("owner_name");
+		PhotoManager.getInstance().reindexPhoto(this);
 	}
 	
 	/**
@@ -255,7 +312,7 @@ public class Photo extends DataObject {
 	 */
 	public void setOwnerNotifyAboutPraise(boolean newNotifyAboutPraise) {
 		ownerNotifyAboutPraise = newNotifyAboutPraise;
-		incWriteCount();
+		incWriteCount("owner_notify_about_praise");
 	}
 
 	/**
@@ -272,7 +329,7 @@ public class Photo extends DataObject {
 	 */
 	public void setOwnerEmailAddress(EmailAddress newEmailAddress) {
 		ownerEmailAddress = newEmailAddress;
-		incWriteCount();
+		incWriteCount("owner_email_address");
 	}
 
 	/**
@@ -287,7 +344,7 @@ public class Photo extends DataObject {
 	 */
 	public void setOwnerLanguage(Language newLanguage) {
 		ownerLanguage = newLanguage;
-		incWriteCount();
+		incWriteCount("owner_language");
 	}
 
 	/**
@@ -304,7 +361,7 @@ public class Photo extends DataObject {
 	 */
 	public void setOwnerHomePage(URL newHomePage) {
 		ownerHomePage = newHomePage;
-		incWriteCount();
+		incWriteCount("owner_home_page");
 	}
 	
 	/**
@@ -365,7 +422,7 @@ public class Photo extends DataObject {
 
 		maxPhotoSize = PhotoSize.getFromWidthHeight(width, height);
 
-		incWriteCount();
+		incWriteCount("width", "height");
 	}
 	
 	/**
@@ -390,7 +447,7 @@ public class Photo extends DataObject {
 	 * @methodtype get
 	 */
 	public double getPraise() {
-		return (double) praiseSum / noVotes;
+		return (double) (praiseSum + localPraiseSum.sum()) / (noVotes + localNoVotes.sum());
 	}
 	
 	/**
@@ -405,9 +462,31 @@ public class Photo extends DataObject {
 	 * 
 	 */
 	public void addToPraise(int value) {
-		praiseSum += value;
-		noVotes += 1;
-		incWriteCount();
+		localPraiseSum.add(value);
+		localNoVotes.increment();
+		PhotoManager.getInstance().addPraisedPhoto(this);
+	}
+	
+	/**
+	 * @methodtype get
+	 */
+	public long getUnsavedPraiseSum() {
+		return localPraiseSum.sum() - savedLocalPraiseSum;
+	}
+	
+	/**
+	 * @methodtype get
+	 */
+	public long getUnsavedNoVotes() {
+		return localNoVotes.sum() - savedLocalNoVotes;
+	}
+	
+	/**
+	 * Called by the one thread saving praise, after it added the given praise to the row
+	 */
+	public void praiseWasSaved(long savedPraiseSum, long savedNoVotes) {
+		savedLocalPraiseSum += savedPraiseSum;
+		savedLocalNoVotes += savedNoVotes;
 	}
 	
 	/**
@@ -432,7 +511,8 @@ public class Photo extends DataObject {
 	 */
 	public void setStatus(PhotoStatus newStatus) {
 		status = newStatus;
-		incWriteCount();
+		incWriteCount("status");
+		PhotoManager.getInstance().reindexPhoto(this);
 	}
 	
 	/**
@@ -461,7 +541,23 @@ public class Photo extends DataObject {
 
 	public void setLocation(Location newLocation) {
 		location = newLocation;
-		incWriteCount();
+		incWriteCount("location");
+	}
+
+	/**
+	 * 
+	 * @methodtype get
+	 */
+	public Set<String> getPersistedTags() {
+		return persistedTags;
+	}
+
+	/**
+	 * 
+	 * @methodtype set
+	 */
+	public void setPersistedTags(Set<String> newPersistedTags) {
+		persistedTags = newPersistedTags;
 	}
 
 	/**
@@ -470,7 +566,8 @@ public class Photo extends DataObject {
 	 */
 	public void setTags(Tags newTags) {
 		tags = newTags;
-		incWriteCount();
+		incWriteCount("tags");
+		PhotoManager.getInstance().reindexPhoto(this);
 	}
 	
 	/**
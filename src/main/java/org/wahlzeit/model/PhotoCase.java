@@ -7,6 +7,7 @@ package org.wahlzeit.model;
 
 import java.sql.*;
 
+import org.wahlzeit.services.*;
 
 /**
  * A photo case is a case where someone flagged a photo as inappropriate.
@@ -53,6 +54,13 @@ public class PhotoCase extends Case {
 		readFrom(rset);
 	}
 	
+	/**
+	 * 
+	 */
+	protected ObjectManager getObjectManager() {
+		return PhotoCaseManager.getInstance();
+	}
+	
 	/**
 	 * 
 	 */
@@ -74,6 +82,8 @@ public class PhotoCase extends Case {
 		
 		wasDecided = rset.getBoolean("was_decided");
 		decidedOn = rset.getLong("decision_time");
+		
+		version = rset.getInt(VERSION);
 	}
 	
 	/**
@@ -132,7 +142,7 @@ public class PhotoCase extends Case {
 =	 */
 	public void setFlagger(String newFlagger) {
 		flagger = newFlagger;
-		incWriteCount();
+		incWriteCount("flagger");
 	}
 	
 	/**
@@ -147,7 +157,7 @@ public class PhotoCase extends Case {
 =	 */
 	public void setReason(FlagReason newReason) {
 		reason = newReason;
-		incWriteCount();
+		incWriteCount("reason");
 	}
 	
 	/**
@@ -162,7 +172,7 @@ public class PhotoCase extends Case {
 =	 */
 	public void setExplanation(String newExplanation) {
 		explanation = newExplanation;
-		incWriteCount();
+		incWriteCount("explanation");
 	}
 	
 	/**
@@ -178,7 +188,7 @@ public class PhotoCase extends Case {
 	public void setDecided() {
 		wasDecided = true;
 		decidedOn = System.currentTimeMillis();
-		incWriteCount();
+		incWriteCount("was_decided", "decision_time");
 	}
 	
 	/**
@@ -93,25 +93,38 @@ public class PhotoCaseManager extends ObjectManager {
 	public void addPhotoCase(PhotoCase myCase) {
 		openPhotoCases.put(myCase.getId(), myCase);
 		try {
-			PreparedStatement stmt1 = getReadingStatement("INSERT INTO cases(id) VALUES(?)");
-			createObject(myCase, stmt1, myCase.getId().asInt());
-			PreparedStatement stmt2 = getUpdatingStatement("SELECT * FROM cases WHERE id = ?");
-			updateObject(myCase, stmt2);
+			PreparedStatement stmt = getReadingStatement("INSERT INTO cases(id) VALUES(?)");
+			createObject(myCase, stmt, myCase.getId().asInt());
+			updateObject("cases", myCase);
 			// @FIXME Main.saveGlobals();
 		} catch (SQLException sex) {
 			SysLog.logThrowable(sex);
 		}
 	}
 	
+	/**
+	 * 
+	 */
+	protected void dropObject(Persistent obj) {
+		super.dropObject(obj);
+		PhotoCase myCase = (PhotoCase) obj;
+		if (openPhotoCases.get(myCase.getId()) == myCase) {
+			openPhotoCases.remove(myCase.getId());
+		}
+	}
+	
 	/**
 	 * 
 	 * @methodtype command
 	 */
 	public void removePhotoCase(PhotoCase myCase) {
 		openPhotoCases.remove(myCase.getId());
+		if (saveLater("cases", myCase)) {
+			return;
+		}
+		
 		try {
-			PreparedStatement stmt = getUpdatingStatement("SELECT * FROM cases WHERE id = ?");
-			updateObject(myCase, stmt);
+			updateObject("cases", myCase);
 		} catch (SQLException sex) {
 			SysLog.logThrowable(sex);
 		}
@@ -138,13 +151,26 @@ public class PhotoCaseManager extends ObjectManager {
 	 */
 	public void savePhotoCases() {
 		try {
-			PreparedStatement stmt = getUpdatingStatement("SELECT * FROM cases WHERE id = ?");
-			updateObjects(openPhotoCases.values(), stmt);
+			updateDirtyObjects("cases");
 		} catch (SQLException sex) {
 			SysLog.logThrowable(sex);
 		}
 	}
 	
+	/**
+	 * 
+	 */
+	protected boolean isManaged(Persistent obj) {
+		return (obj instanceof PhotoCase) && (openPhotoCases.get(((PhotoCase) obj).getId()) == obj);
+	}
+	
+	/**
+	 * Cases refer to photos, so they are saved after photos
+	 */
+	protected int getDependencyRank() {
+		return 2;
+	}
+	
 	/**
 	 * 
 	 * @methodtype get
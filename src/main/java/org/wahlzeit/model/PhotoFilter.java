@@ -7,6 +7,8 @@ package org.wahlzeit.model;
 
 import java.util.*;
 
+import org.wahlzeit.utils.IntBitmap;
+import org.wahlzeit.utils.RandomPermutation;
 import org.wahlzeit.utils.StringUtil;
 
 /**
@@ -26,12 +28,19 @@ public class PhotoFilter {
 	 */
 	protected String userName = "";
 	protected Tags tags = Tags.EMPTY_TAGS;
+	protected PhotoQuery query = PhotoQuery.EMPTY_QUERY;
 	
 	/**
-	 * 
+	 * Photo ids as compressed int sets; the displayable ones may be shared with other filters and are not changed
+	 */
+	protected IntBitmap displayablePhotoIds = new IntBitmap();
+	protected IntBitmap processedPhotoIds = new IntBitmap();
+	
+	/**
+	 * Order in which the displayable photo ids are handed out, by rank, and the position in it
 	 */
-	protected List<PhotoId> displayablePhotoIds = new LinkedList<PhotoId>();
-	protected List<PhotoId> processedPhotoIds = new LinkedList<PhotoId>();
+	protected RandomPermutation sampleOrder = new RandomPermutation(0, 0);
+	protected int sampleCursor = 0;
 	
 	/**
 	 * 
@@ -58,7 +67,8 @@ public class PhotoFilter {
 	public void clear() {
         setUserName("");
         setTags(Tags.EMPTY_TAGS);
-		displayablePhotoIds.clear();
+        setQuery(PhotoQuery.EMPTY_QUERY);
+		resetDisplayablePhotoIds();
 		processedPhotoIds.clear();
 	}
 	
@@ -84,6 +94,28 @@ public class PhotoFilter {
 		tags = newTags;
 	}
 	
+	/**
+	 * 
+	 */
+	public PhotoQuery getQuery() {
+		return query;
+	}
+	
+	/**
+	 * 
+	 */
+	public void setQuery(PhotoQuery newQuery) {
+		query = newQuery;
+		resetDisplayablePhotoIds();
+	}
+	
+	/**
+	 * @return the query that photos need to match: user name, tags, and query combined
+	 */
+	public PhotoQuery getPhotoQuery() {
+		return PhotoQuery.and(PhotoQuery.allOf(getFilterConditions()), query);
+	}
+	
 	/**
 	 * 
 	 */
@@ -111,43 +143,47 @@ public class PhotoFilter {
 	}
 	
 	/**
-	 * 
+	 * Hands out each displayable photo id once, in random order, skipping those processed in the meantime
+	 * @return NULL_ID when all have been handed out
 	 */
 	public PhotoId getRandomDisplayablePhotoId() {
-		if (!displayablePhotoIds.isEmpty()) {
-			int size = displayablePhotoIds.size();
-			int index = ((randomNumber.nextInt() % size) + size) / 2;
-			return displayablePhotoIds.get(index);
-		} else {
-			return PhotoId.NULL_ID;
+		while (sampleCursor < sampleOrder.size()) {
+			int photoId = displayablePhotoIds.select(sampleOrder.get(sampleCursor++));
+			if (!processedPhotoIds.contains(photoId)) {
+				return PhotoId.getIdFromInt(photoId);
+			}
 		}
+		
+		return PhotoId.NULL_ID;
 	}
 
 	/**
 	 * 
 	 */
-	public List<PhotoId> getDisplayablePhotoIds() {
+	public IntBitmap getDisplayablePhotoIds() {
 		return displayablePhotoIds;
 	}
 	
 	/**
 	 * 
 	 */
-	public void setDisplayablePhotoIds(List<PhotoId> newPhotoIds) {
+	public void setDisplayablePhotoIds(IntBitmap newPhotoIds) {
 		displayablePhotoIds = newPhotoIds;
+		sampleOrder = new RandomPermutation(newPhotoIds.size(), randomNumber.nextLong());
+		sampleCursor = 0;
 	}
 	
 	/**
 	 * 
 	 */
 	public void resetDisplayablePhotoIds() {
-		displayablePhotoIds = new LinkedList<PhotoId>();
+		setDisplayablePhotoIds(new IntBitmap());
 	}
 	
 	/**
 	 * 
 	 */
-	public List<PhotoId> getProcessedPhotoIds() {
+	public IntBitmap getProcessedPhotoIds() {
 		return processedPhotoIds;
 	}
 	
@@ -155,17 +191,15 @@ public class PhotoFilter {
 	 * 
 	 */
 	public boolean isProcessedPhotoId(PhotoId photoId) {
-		return processedPhotoIds.contains(photoId);
+		return processedPhotoIds.contains(photoId.asInt());
 	}
 	
 	/**
 	 * 
 	 */
 	public void addProcessedPhoto(Photo photo) {
-		processedPhotoIds.add(photo.getId());
-		if (displayablePhotoIds != null) {
-			displayablePhotoIds.remove(photo.getId());
-		}
+		// the displayable ids stay as they are, as the sample order goes by rank
+		processedPhotoIds.add(photo.getId().asInt());
 	}
 	
 }
@@ -0,0 +1,159 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.model;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+import org.wahlzeit.services.*;
+import org.wahlzeit.utils.*;
+
+/**
+ * A process-wide cache of the photo ids that match a photo filter, shared by all sessions.
+ *
+ * Results are keyed by the filter's query in normalized form, see PhotoQuery.asString(), and kept as frozen IntBitmaps,
+ * so sessions can hold on to them without copying; a session only keeps track of the photos it has processed.
+ * Each result carries the PhotoTagIndex version of its query, and is recomputed once that version moved,
+ * i.e. once the tags or the visibility of a photo under one of the query's terms changed.
+ */
+public class PhotoFilterCache {
+
+	/**
+	 *
+	 */
+	protected final PhotoTagIndex index;
+
+	/**
+	 *
+	 */
+	protected final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 *
+	 */
+	protected final LongAdder hits = new LongAdder();
+	protected final LongAdder misses = new LongAdder();
+
+	/**
+	 *
+	 */
+	public PhotoFilterCache(PhotoTagIndex myIndex) {
+		index = myIndex;
+	}
+
+	/**
+	 * @return ids of the photos that meet all of conditions; the result must not be changed
+	 */
+	public IntBitmap getPhotoIds(Collection<String> conditions) {
+		return getPhotoIds(PhotoQuery.allOf(conditions));
+	}
+
+	/**
+	 * @return ids of the photos that match query; the result must not be changed
+	 */
+	public IntBitmap getPhotoIds(PhotoQuery query) {
+		String key = query.asString();
+
+		// the version is taken first, so a result never looks newer than it is
+		long version = index.getVersion(query);
+		Entry entry = entries.get(key);
+		if ((entry != null) && (entry.version == version)) {
+			hits.increment();
+			entry.hits.increment();
+			return entry.photoIds;
+		}
+
+		misses.increment();
+		IntBitmap result = IntBitmap.fromArray(index.getPhotoIds(query)).freeze();
+		putEntry(key, new Entry(query, version, result));
+		return result;
+	}
+
+	/**
+	 * Keeps the newer of entry and the one already there, if any
+	 */
+	protected void putEntry(String key, Entry entry) {
+		int capacity = SysConfig.getCacheFiltersSize();
+		if (!entries.containsKey(key) && (entries.size() >= capacity)) {
+			evictEntries(capacity);
+		}
+
+		entries.merge(key, entry, new BiFunction<Entry, Entry, Entry>() {
+			public Entry apply(Entry oldEntry, Entry newEntry) {
+				return (oldEntry.version > newEntry.version) ? oldEntry : newEntry;
+			}
+		});
+	}
+
+	/**
+	 * Drops the outdated entries, or else the least used half
+	 */
+	protected void evictEntries(int capacity) {
+		List<Map.Entry<String, Entry>> current = new ArrayList<Map.Entry<String, Entry>>();
+		for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+			Entry entry = mapEntry.getValue();
+			if (entry.version != index.getVersion(entry.query)) {
+				entries.remove(mapEntry.getKey(), entry);
+			} else {
+				current.add(mapEntry);
+			}
+		}
+
+		if (current.size() < capacity) {
+			return;
+		}
+
+		Collections.sort(current, new Comparator<Map.Entry<String, Entry>>() {
+			public int compare(Map.Entry<String, Entry> e1, Map.Entry<String, Entry> e2) {
+				return Long.compare(e1.getValue().hits.sum(), e2.getValue().hits.sum());
+			}
+		});
+		for (int i = 0; i < current.size() / 2; i++) {
+			entries.remove(current.get(i).getKey(), current.get(i).getValue());
+		}
+	}
+
+	/**
+	 *
+	 */
+	public int getSize() {
+		return entries.size();
+	}
+
+	/**
+	 *
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 *
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * A shared result and the index version it was computed for
+	 */
+	protected static class Entry {
+
+		protected final PhotoQuery query;
+		protected final long version;
+		protected final IntBitmap photoIds;
+		protected final LongAdder hits = new LongAdder();
+
+		protected Entry(PhotoQuery myQuery, long myVersion, IntBitmap myPhotoIds) {
+			query = myQuery;
+			version = myVersion;
+			photoIds = myPhotoIds;
+		}
+	}
+
+}
@@ -6,23 +6,30 @@
 package org.wahlzeit.model;
 
 import java.util.Random;
+import java.util.concurrent.atomic.*;
+
+import org.wahlzeit.services.IdAllocator;
 
 /**
  * A photo id identifies a photo with a unique number.
  * The number has an equivalent string for web access. 
  * This class also hands out the ids.
+ * 
+ * Id objects are kept in fixed-size chunks that are allocated on first use, so that handing out
+ * and looking up ids needs neither locks nor copying. Ids up to currentId are unique objects per number.
  */
 public class PhotoId {
 	
 	/**
 	 * 0 is never returned from nextValue; first value is 1
 	 */
-	protected static int currentId = 0;
+	protected static final AtomicInteger currentId = new AtomicInteger(0);
 	
 	/**
-	 * 
+	 * Ids per chunk, as a power of two
 	 */
-	public static final int BUFFER_SIZE_INCREMENT = 64;
+	public static final int CHUNK_BITS = 10;
+	public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
 	
 	/**
 	 * 
@@ -30,9 +37,9 @@ public class PhotoId {
 	public static final PhotoId NULL_ID = new PhotoId(0);
 	
 	/**
-	 * 
+	 * Chunk directory; replaced by a larger copy when ids outgrow it, chunks themselves are never copied
 	 */
-	protected static PhotoId[] ids = new PhotoId[BUFFER_SIZE_INCREMENT];
+	protected static volatile AtomicReferenceArray<AtomicReferenceArray<PhotoId>> chunks = new AtomicReferenceArray<AtomicReferenceArray<PhotoId>>(16);
 	
 	/**
 	 * What a hack :-)
@@ -48,51 +55,89 @@ public class PhotoId {
 	 * 
 	 */
 	public static int getCurrentIdAsInt() {
-		return currentId;
+		return currentId.get();
 	}
 	
 	/**
 	 * 
 	 */
-	public static synchronized void setCurrentIdFromInt(int id) {
-		currentId = id;
-		ids = new PhotoId[currentId + BUFFER_SIZE_INCREMENT];
-		ids[0] = NULL_ID;
+	public static void setCurrentIdFromInt(int id) {
+		currentId.set(id);
 	}
 	
 	/**
 	 * 
 	 */
-	public static synchronized int getNextIdAsInt() {
-		currentId += 1;
-		if (currentId >= ids.length) {
-			PhotoId[] nids = new PhotoId[currentId + BUFFER_SIZE_INCREMENT];
-			System.arraycopy(ids, 0, nids, 0, currentId);
-			ids = nids;
+	public static int getNextIdAsInt() {
+		IdAllocator allocator = IdAllocator.getInstance();
+		if (allocator == null) {
+			return currentId.incrementAndGet();
 		}
-		return currentId;
+		
+		int result = allocator.getNextId(IdAllocator.PHOTO_IDS);
+		for (int current = currentId.get(); (current < result) && !currentId.compareAndSet(current, result); ) {
+			current = currentId.get();
+		}
+		return result;
 	}
 
 	/**
 	 * 
 	 */
 	public static PhotoId getIdFromInt(int id) {
-		if ((id < 0) || (id > currentId)) {
+		if (id <= 0) {
 			return NULL_ID;
+		} else if (id > currentId.get()) {
+			// with an IdAllocator, other nodes hand out ids this node has not seen yet
+			return (IdAllocator.getInstance() != null) ? new PhotoId(id) : NULL_ID;
 		}
 		
-		// @FIXME http://en.wikipedia.org/wiki/Double-checked_locking
-		PhotoId result = ids[id];
+		AtomicReferenceArray<PhotoId> chunk = getChunk(id >>> CHUNK_BITS);
+		int index = id & (CHUNK_SIZE - 1);
+		PhotoId result = chunk.get(index);
 		if (result == null) {
-			synchronized(ids) {
-				result = ids[id];
-				if (result == null) {
-					result = new PhotoId(id);
-					ids[id] = result;
-				}
-			}
+			PhotoId newId = new PhotoId(id);
+			result = chunk.compareAndSet(index, null, newId) ? newId : chunk.get(index);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * @return chunk of number i, allocated if need be
+	 */
+	protected static AtomicReferenceArray<PhotoId> getChunk(int i) {
+		AtomicReferenceArray<AtomicReferenceArray<PhotoId>> directory = chunks;
+		if (i >= directory.length()) {
+			directory = growChunks(i + 1);
+		}
+		
+		AtomicReferenceArray<PhotoId> result = directory.get(i);
+		if (result == null) {
+			AtomicReferenceArray<PhotoId> newChunk = new AtomicReferenceArray<PhotoId>(CHUNK_SIZE);
+			result = directory.compareAndSet(i, null, newChunk) ? newChunk : directory.get(i);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Rare, so it may lock. The old directory is filled up before it is copied, so that no chunk
+	 * can still be added to it once the copy is published.
+	 */
+	protected static synchronized AtomicReferenceArray<AtomicReferenceArray<PhotoId>> growChunks(int minLength) {
+		AtomicReferenceArray<AtomicReferenceArray<PhotoId>> directory = chunks;
+		if (minLength <= directory.length()) {
+			return directory;
+		}
+		
+		AtomicReferenceArray<AtomicReferenceArray<PhotoId>> result = new AtomicReferenceArray<AtomicReferenceArray<PhotoId>>(Math.max(2 * directory.length(), minLength));
+		for (int j = 0; j < directory.length(); j++) {
+			directory.compareAndSet(j, null, new AtomicReferenceArray<PhotoId>(CHUNK_SIZE));
+			result.set(j, directory.get(j));
 		}
 		
+		chunks = result;
 		return result;
 	}
 	
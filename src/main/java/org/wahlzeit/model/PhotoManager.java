@@ -8,9 +8,12 @@ package org.wahlzeit.model;
 import java.io.*;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 
 import org.wahlzeit.main.*;
 import org.wahlzeit.services.*;
+import org.wahlzeit.utils.IntBitmap;
 import org.wahlzeit.utils.PatternInstance;
 
 /**
@@ -25,20 +28,43 @@ import org.wahlzeit.utils.PatternInstance;
 public class PhotoManager extends ObjectManager {
 	
 	/**
-	 * 
+	 * Installed by ModelMain at startup, together with the matching PhotoFactory
+	 */
+	protected static volatile PhotoManager instance = new PhotoManager();
+
+	/**
+	 * Photo rows joined with their location and coordinate rows, which come in l_- and c_-prefixed columns
 	 */
-	protected static final PhotoManager instance = new PhotoManager();
+	protected static final String JOINED_PHOTOS_QUERY = "SELECT photos.*, "
+		+ "l.id AS l_id, l.coordinate AS l_coordinate, c.id AS c_id, c.x AS c_x, c.y AS c_y, c.z AS c_z "
+		+ "FROM photos LEFT JOIN locations l ON l.id = photos.location LEFT JOIN coordinates c ON c.id = l.coordinate";
 
 	/**
 	 * In-memory cache for photos
 	 */
-	protected Map<PhotoId, Photo> photoCache = new HashMap<PhotoId, Photo>();
+	protected ObjectCache<PhotoId, Photo> photoCache = new ObjectCache<PhotoId, Photo>("photos", SysConfig.CACHE_PHOTOS_SIZE);
+	
+	/**
+	 * Photos praised since praise was last saved
+	 */
+	protected Set<Photo> praisedPhotos = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Photo ids known not to exist
+	 */
+	protected NegativeLookupCache unknownPhotoIds = new NegativeLookupCache("photo ids");
 	
 	/**
 	 * 
 	 */
 	protected PhotoTagCollector photoTagCollector = null;
 	
+	/**
+	 * Tags of visible photos; answers the queries of photo filters
+	 */
+	protected PhotoTagIndex photoTagIndex = new PhotoTagIndex();
+	protected PhotoFilterCache photoFilterCache = new PhotoFilterCache(photoTagIndex);
+	
 	/**
 	 * 
 	 */
@@ -46,6 +72,13 @@ public class PhotoManager extends ObjectManager {
 		return instance;
 	}
 	
+	/**
+	 * 
+	 */
+	public static void setInstance(PhotoManager newInstance) {
+		instance = newInstance;
+	}
+	
 	/**
 	 * 
 	 */
@@ -78,7 +111,17 @@ public class PhotoManager extends ObjectManager {
 	 * 
 	 */
 	public PhotoManager() {
-		photoTagCollector = PhotoFactory.getInstance().createPhotoTagCollector();
+		// do nothing
+	}
+	
+	/**
+	 * Created lazily, so that the PhotoFactory can still be chosen after the manager exists
+	 */
+	protected synchronized PhotoTagCollector getPhotoTagCollector() {
+		if (photoTagCollector == null) {
+			photoTagCollector = PhotoFactory.getInstance().createPhotoTagCollector();
+		}
+		return photoTagCollector;
 	}
 	
 	/**
@@ -99,16 +142,21 @@ public class PhotoManager extends ObjectManager {
 
 		Photo result = doGetPhotoFromId(id);
 		
-		if (result == null) {
+		String key = String.valueOf(id.asInt());
+		if ((result == null) && unknownPhotoIds.mightExist(key)) {
+			long stamp = unknownPhotoIds.getStamp();
 			try {
-				PreparedStatement stmt = getReadingStatement("SELECT * FROM photos WHERE id = ?");
-				result = (Photo) readObject(stmt, id.asInt());
+				PreparedStatement stmt = getReadingStatement(getPhotosQuery("WHERE photos.id = ?"));
+				stmt.setInt(1, id.asInt());
+				java.util.List<Photo> photos = new ArrayList<Photo>(1);
+				readPhotos(photos, stmt);
+				result = photos.isEmpty() ? null : photos.get(0);
+				if (result == null) {
+					unknownPhotoIds.markAbsent(key, stamp);
+				}
 			} catch (SQLException sex) {
 				SysLog.logThrowable(sex);
 			}
-			if (result != null) {
-				doAddPhoto(result);
-			}
 		}
 		
 		return result;
@@ -140,8 +188,11 @@ public class PhotoManager extends ObjectManager {
 		doAddPhoto(photo);
 
 		try {
-			PreparedStatement stmt = getReadingStatement("INSERT INTO photos(id) VALUES(?)");
+			PreparedStatement stmt = getReadingStatement("INSERT INTO photos(id, praise_sum, no_votes) VALUES(?, ?, ?)");
+			stmt.setInt(2, photo.praiseSum);
+			stmt.setInt(3, photo.noVotes);
 			createObject(photo, stmt, id.asInt());
+			photo.setPersistedTags(new HashSet<String>());
 			ServiceMain.getInstance().saveGlobals();
 		} catch (SQLException sex) {
 			SysLog.logThrowable(sex);
@@ -154,39 +205,289 @@ public class PhotoManager extends ObjectManager {
 	 */
 	protected void doAddPhoto(Photo myPhoto) {
 		photoCache.put(myPhoto.getId(), myPhoto);
+		unknownPhotoIds.add(String.valueOf(myPhoto.getId().asInt()));
+		indexPhoto(myPhoto);
+	}
+	
+	/**
+	 * 
+	 */
+	protected void dropObject(Persistent obj) {
+		super.dropObject(obj);
+		Photo photo = (Photo) obj;
+		if (isManaged(photo)) {
+			photoCache.remove(photo.getId());
+		}
+		photoTagIndex.remove(photo.getId().asInt());
+	}
+	
+	/**
+	 * @methodtype command
+	 *
+	 * Fills the tag index from the tags table, so that photo filters need not go to the database.
+	 */
+	public void loadPhotoTagIndex() {
+		long startTime = System.currentTimeMillis();
+		final PhotoTagIndex index = new PhotoTagIndex();
+		try {
+			// rows come grouped by photo, so each photo is added once with all its tags
+			final Set<String> tags = new HashSet<String>();
+			final int[] lastPhotoId = { 0 };
+			PreparedStatement stmt = getPrimaryReadingStatement("SELECT tags.tag, tags.photo_id, photos.status FROM tags "
+				+ "JOIN photos ON photos.id = tags.photo_id ORDER BY tags.photo_id");
+			readRows(stmt, new RowHandler() {
+				public void handleRow(ResultSet rset) throws SQLException {
+					int photoId = rset.getInt("photo_id");
+					if (photoId != lastPhotoId[0]) {
+						if (!tags.isEmpty()) {
+							index.add(lastPhotoId[0], tags);
+							tags.clear();
+						}
+						lastPhotoId[0] = photoId;
+					}
+					if (PhotoStatus.getFromInt(rset.getInt("status")).isDisplayable()) {
+						tags.add(rset.getString("tag"));
+					}
+				}
+			});
+			if (!tags.isEmpty()) {
+				index.add(lastPhotoId[0], tags);
+			}
+			photoFilterCache = new PhotoFilterCache(index);
+			photoTagIndex = index;
+		} catch (SQLException sex) {
+			SysLog.logThrowable(sex);
+		}
+		
+		long loadTime = System.currentTimeMillis() - startTime;
+		SysLog.logSysInfo("loaded tag index", index.getNoPhotos() + " photos, " + index.getNoTags() + " tags", "in " + loadTime + "ms");
+	}
+	
+	/**
+	 * Brings the tag index up to date after the tags, owner, or status of photo changed
+	 */
+	public void reindexPhoto(Photo photo) {
+		if (isManaged(photo)) {
+			indexPhoto(photo);
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	protected void indexPhoto(Photo photo) {
+		if (photo.isVisible()) {
+			Set<String> tags = new HashSet<String>();
+			getPhotoTagCollector().collect(tags, photo);
+			photoTagIndex.add(photo.getId().asInt(), tags);
+		} else {
+			photoTagIndex.remove(photo.getId().asInt());
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	public PhotoTagIndex getPhotoTagIndex() {
+		return photoTagIndex;
+	}
+	
+	/**
+	 * 
+	 */
+	public PhotoFilterCache getPhotoFilterCache() {
+		return photoFilterCache;
 	}
 
 	/**
 	 * @methodtype command
+	 *
+	 * Fills the filter of existing photo ids, so that lookups of unknown ids need not go to the database.
 	 */
-	public void loadPhotos(Collection<Photo> result) {
+	public void loadPhotoIdFilter() {
+		final BloomFilter filter = unknownPhotoIds.newFilter(PhotoId.getCurrentIdAsInt());
 		try {
-			PreparedStatement stmt = getReadingStatement("SELECT * FROM photos");
-			readObjects(result, stmt);
-			for (Iterator<Photo> i = result.iterator(); i.hasNext(); ) {
-				Photo photo = i.next();
-				if (!doHasPhoto(photo.getId())) {
-					doAddPhoto(photo);
-				} else {
-					SysLog.logSysInfo("photo", photo.getId().asString(), "photo had already been loaded");
+			readRows(getPrimaryReadingStatement("SELECT id FROM photos"), new RowHandler() {
+				public void handleRow(ResultSet rset) throws SQLException {
+					filter.add(String.valueOf(rset.getInt("id")));
 				}
+			});
+			unknownPhotoIds.installFilter(filter);
+			SysLog.logSysInfo("loaded photo id filter with " + filter.getSize() + " ids");
+		} catch (SQLException sex) {
+			SysLog.logThrowable(sex);
+		}
+	}
+
+	/**
+	 * @methodtype command
+	 *
+	 * Loads all photos into the cache only, e.g. to preload it
+	 */
+	public void loadPhotos() {
+		loadPhotos(new Consumer<Photo>() {
+			public void accept(Photo photo) {
+				// do nothing
 			}
+		});
+	}
+	
+	/**
+	 * @methodtype command
+	 */
+	public void loadPhotos(Collection<Photo> result) {
+		loadPhotos(asConsumer(result));
+	}
+	
+	/**
+	 * @methodtype command
+	 */
+	public void loadPhotos(final Consumer<? super Photo> consumer) {
+		long startTime = System.currentTimeMillis();
+		final int[] noPhotos = { 0 };
+		try {
+			PreparedStatement stmt = getReadingStatement(getPhotosQuery(""));
+			readPhotos(new Consumer<Photo>() {
+				public void accept(Photo photo) {
+					noPhotos[0]++;
+					consumer.accept(photo);
+				}
+			}, stmt);
 		} catch (SQLException sex) {
 			SysLog.logThrowable(sex);
 		}
 		
-		SysLog.logSysInfo("loaded all photos");
+		long loadTime = System.currentTimeMillis() - startTime;
+		SysLog.logSysInfo("loaded all photos", String.valueOf(noPhotos[0]), "in " + loadTime + "ms");
+	}
+	
+	/**
+	 * @return the query for photo rows, joined with their locations and coordinates if so configured
+	 */
+	protected String getPhotosQuery(String condition) {
+		String query = SysConfig.isDbJoinedHydration() ? JOINED_PHOTOS_QUERY : "SELECT * FROM photos";
+		return condition.isEmpty() ? query : query + " " + condition;
+	}
+	
+	/**
+	 * Reads the photos from a getPhotosQuery() statement. Photos already in the cache are taken from there,
+	 * others are created by the PhotoFactory and added to it, so each photo exists only once.
+	 * For a joined query, locations and coordinates go into their managers' caches first,
+	 * so that Photo.readFrom finds them without further queries.
+	 */
+	protected void readPhotos(Collection<Photo> result, PreparedStatement stmt) throws SQLException {
+		readPhotos(asConsumer(result), stmt);
+	}
+	
+	/**
+	 * Like readPhotos(Collection, PreparedStatement), but hands each photo to consumer as it is read
+	 */
+	protected void readPhotos(final Consumer<? super Photo> consumer, PreparedStatement stmt) throws SQLException {
+		final boolean isJoined = SysConfig.isDbJoinedHydration();
+		readRows(stmt, new RowHandler() {
+			public void handleRow(ResultSet rset) throws SQLException {
+				Photo photo = photoCache.peek(PhotoId.getIdFromInt(rset.getInt("id")));
+				if (photo == null) {
+					if (isJoined) {
+						LocationManager.getInstance().hydrateLocation(rset);
+					}
+					photo = createObject(rset);
+					photo = photoCache.putIfAbsent(photo.getId(), photo);
+					unknownPhotoIds.add(String.valueOf(photo.getId().asInt()));
+				}
+				consumer.accept(photo);
+			}
+		});
+	}
+	
+	/**
+	 * 
+	 */
+	protected static Consumer<Photo> asConsumer(final Collection<Photo> result) {
+		return new Consumer<Photo>() {
+			public void accept(Photo photo) {
+				result.add(photo);
+			}
+		};
 	}
 	
 	/**
 	 * 
 	 */
 	public void savePhoto(Photo photo) {
+		if (saveLater("photos", photo)) {
+			return;
+		}
+		
+		try {
+			updateObject("photos", photo);
+		} catch (SQLException sex) {
+			SysLog.logThrowable(sex);
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	public void addPraisedPhoto(Photo photo) {
+		praisedPhotos.add(photo);
+	}
+	
+	/**
+	 * Adds the praise given since it was last saved to the photos' rows, in batches.
+	 * Only the deltas are written, so praise given on other nodes is not overwritten.
+	 */
+	public synchronized void savePraise() {
+		java.util.List<Photo> photos = new ArrayList<Photo>();
+		for (Iterator<Photo> i = praisedPhotos.iterator(); i.hasNext(); ) {
+			photos.add(i.next());
+			i.remove();
+		}
+		
+		int batchSize = Math.max(1, SysConfig.getDbBatchSize());
 		try {
-			PreparedStatement stmt = getUpdatingStatement("SELECT * FROM photos WHERE id = ?");
-			updateObject(photo, stmt);
+			for (int from = 0; from < photos.size(); from += batchSize) {
+				savePraise(photos.subList(from, Math.min(from + batchSize, photos.size())));
+			}
 		} catch (SQLException sex) {
 			SysLog.logThrowable(sex);
+			praisedPhotos.addAll(photos);
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	protected void savePraise(java.util.List<Photo> photos) throws SQLException {
+		String sql = "UPDATE photos SET praise_sum = praise_sum + ?, no_votes = no_votes + ? WHERE id = ?";
+		PreparedStatement stmt = getReadingStatement(sql);
+		java.util.List<Photo> batch = new ArrayList<Photo>();
+		java.util.List<long[]> deltas = new ArrayList<long[]>();
+		for (Photo photo : photos) {
+			long[] delta = { photo.getUnsavedPraiseSum(), photo.getUnsavedNoVotes() };
+			if ((delta[0] != 0) || (delta[1] != 0)) {
+				stmt.setInt(1, (int) delta[0]);
+				stmt.setInt(2, (int) delta[1]);
+				photo.writeId(stmt, 3);
+				stmt.addBatch();
+				batch.add(photo);
+				deltas.add(delta);
+			}
+		}
+		
+		if (batch.isEmpty()) {
+			return;
+		}
+		
+		SysLog.logQuery(sql + " [batch of " + batch.size() + "]");
+		int[] counts = stmt.executeBatch();
+		for (int i = 0; i < batch.size(); i++) {
+			Photo photo = batch.get(i);
+			if (counts[i] == 0) {
+				SysLog.logSysError("trying to praise non-existent photo: " + photo.getIdAsString());
+			} else {
+				photo.praiseWasSaved(deltas.get(i)[0], deltas.get(i)[1]);
+			}
 		}
 	}
 	
@@ -195,13 +496,26 @@ public class PhotoManager extends ObjectManager {
 	 */
 	public void savePhotos() {
 		try {
-			PreparedStatement stmt = getUpdatingStatement("SELECT * FROM photos WHERE id = ?");
-			updateObjects(photoCache.values(), stmt);
+			updateDirtyObjects("photos");
 		} catch (SQLException sex) {
 			SysLog.logThrowable(sex);
 		}
 	}
 	
+	/**
+	 * 
+	 */
+	protected boolean isManaged(Persistent obj) {
+		return (obj instanceof Photo) && (photoCache.peek(((Photo) obj).getId()) == obj);
+	}
+	
+	/**
+	 * Photos refer to their owners, so they are saved after users
+	 */
+	protected int getDependencyRank() {
+		return 1;
+	}
+	
 	/**
 	 * @methodtype command
 	 *
@@ -211,15 +525,12 @@ public class PhotoManager extends ObjectManager {
 	public Set<Photo> findPhotosByOwner(String ownerName) {
 		Set<Photo> result = new HashSet<Photo>();
 		try {
-			PreparedStatement stmt = getReadingStatement("SELECT * FROM photos WHERE owner_name = ?");
-			readObjects(result, stmt, ownerName);
+			PreparedStatement stmt = getReadingStatement(getPhotosQuery("WHERE photos.owner_name = ?"));
+			stmt.setString(1, ownerName);
+			readPhotos(result, stmt);
 		} catch (SQLException sex) {
 			SysLog.logThrowable(sex);
 		}
-		
-		for (Iterator<Photo> i = result.iterator(); i.hasNext(); ) {
-			doAddPhoto(i.next());
-		}
 
 		return result;
 	}
@@ -231,8 +542,8 @@ public class PhotoManager extends ObjectManager {
 		Photo result = getPhotoFromFilter(filter);
 		
 		if(result == null) {
-			java.util.List<PhotoId> list = getFilteredPhotoIds(filter);
-			filter.setDisplayablePhotoIds(list);
+			IntBitmap photoIds = getFilteredPhotoIds(filter);
+			filter.setDisplayablePhotoIds(photoIds);
 			result = getPhotoFromFilter(filter);
 		}
 
@@ -243,14 +554,11 @@ public class PhotoManager extends ObjectManager {
 	 * 
 	 */
 	protected Photo getPhotoFromFilter(PhotoFilter filter) {
-		PhotoId id = filter.getRandomDisplayablePhotoId();
-		Photo result = getPhotoFromId(id);
+		// each id comes up once, so this ends after at most all displayable photos
+		Photo result = getPhotoFromId(filter.getRandomDisplayablePhotoId());
 		while((result != null) && !result.isVisible()) {
-			id = filter.getRandomDisplayablePhotoId();
-			result = getPhotoFromId(id);
-			if ((result != null) && !result.isVisible()) {
-				filter.addProcessedPhoto(result);
-			}
+			filter.addProcessedPhoto(result);
+			result = getPhotoFromId(filter.getRandomDisplayablePhotoId());
 		}
 		
 		return result;
@@ -259,93 +567,78 @@ public class PhotoManager extends ObjectManager {
 	/**
 	 * 
 	 */
-	protected java.util.List<PhotoId> getFilteredPhotoIds(PhotoFilter filter) {
-		java.util.List<PhotoId> result = new LinkedList<PhotoId>();
-
-		try {
-			java.util.List<String> filterConditions = filter.getFilterConditions();
-
-			int noFilterConditions = filterConditions.size();
-			PreparedStatement stmt = getUpdatingStatementFromConditions(noFilterConditions);
-			for (int i = 0; i < noFilterConditions; i++) {
-				stmt.setString(i + 1, filterConditions.get(i));
-			}
-			
-			SysLog.logQuery(stmt);
-			ResultSet rset = stmt.executeQuery();
-
-			if (noFilterConditions == 0) {
-				noFilterConditions++;
-			}
-
-			int[] ids = new int[PhotoId.getCurrentIdAsInt() + 1];
-			while(rset.next()) {
-				int id = rset.getInt("photo_id");
-				if (++ids[id] == noFilterConditions) {
-					PhotoId photoId = PhotoId.getIdFromInt(id);
-					if (!filter.isProcessedPhotoId(photoId)) {
-						result.add(photoId);
-					}
-				}
-			}
-		} catch (SQLException sex) {
-			SysLog.logThrowable(sex);
-		}
-		
-		return result;
+	protected IntBitmap getFilteredPhotoIds(PhotoFilter filter) {
+		// the filter skips the photos it has processed
+		return photoFilterCache.getPhotoIds(filter.getPhotoQuery());
 	}
-		
+	
 	/**
 	 * 
 	 */
-	protected PreparedStatement getUpdatingStatementFromConditions(int no) throws SQLException {
-		String query = "SELECT * FROM tags";
-		if (no > 0) {
-			query += " WHERE";
+	protected void updateDependents(Persistent obj) throws SQLException {
+		Photo photo = (Photo) obj;
+		
+		Set<String> tags = new HashSet<String>();
+		getPhotoTagCollector().collect(tags, photo);
+
+		Set<String> persistedTags = photo.getPersistedTags();
+		if (persistedTags == null) {
+			// unknown what the tags table holds, so start over
+			PreparedStatement stmt = getReadingStatement("DELETE FROM tags WHERE photo_id = ?");
+			deleteObject(obj, stmt);
+			updateTags(getReadingStatement("INSERT INTO tags(tag, photo_id) VALUES(?, ?)"), photo, tags);
+		} else {
+			Set<String> removedTags = new HashSet<String>(persistedTags);
+			removedTags.removeAll(tags);
+			updateTags(getReadingStatement("DELETE FROM tags WHERE tag = ? AND photo_id = ?"), photo, removedTags);
+
+			Set<String> addedTags = new HashSet<String>(tags);
+			addedTags.removeAll(persistedTags);
+			updateTags(getReadingStatement("INSERT INTO tags(tag, photo_id) VALUES(?, ?)"), photo, addedTags);
 		}
+		photo.setPersistedTags(tags);
 
-		for (int i = 0; i < no; i++) {
-			if (i > 0) {
-				query += " OR";
-			}
-			query += " (tag = ?)";
+		if (photo.hasLocation()) {
+			LocationManager.getInstance().saveLocationRow(photo.getLocation());
 		}
-		
-		return getUpdatingStatement(query);
 	}
 	
 	/**
-	 * 
+	 * The tags table was written along with the newer row, so the tags saved from here are no longer known
 	 */
-	protected void updateDependents(Persistent obj) throws SQLException {
+	protected void updateReloaded(Persistent obj) {
 		Photo photo = (Photo) obj;
+		photo.setPersistedTags(null);
+		reindexPhoto(photo);
+	}
+	
+	/**
+	 * The tags table and the location rows are as before, so they are written anew with the next save
+	 */
+	protected void rollbackDependents(Persistent obj) {
+		Photo photo = (Photo) obj;
+		photo.setPersistedTags(null);
+		if (photo.hasLocation()) {
+			LocationManager.getInstance().rollbackLocationRow(photo.getLocation());
+		}
+	}
+	
+	/**
+	 * Runs stmt as one batch with (tag, photo id) for each of tags
+	 */
+	protected void updateTags(PreparedStatement stmt, Photo photo, Collection<String> tags) throws SQLException {
+		if (tags.isEmpty()) {
+			return;
+		}
 		
-		PreparedStatement stmt = getReadingStatement("DELETE FROM tags WHERE photo_id = ?");
-		deleteObject(obj, stmt);
-		
-		stmt = getReadingStatement("INSERT INTO tags VALUES(?, ?)");
-		Set<String> tags = new HashSet<String>();
-		photoTagCollector.collect(tags, photo);
-		for (Iterator<String> i = tags.iterator(); i.hasNext(); ) {
-			String tag = i.next();
+		for (String tag : tags) {
 			stmt.setString(1, tag);
 			stmt.setInt(2, photo.getId().asInt());
-			SysLog.logQuery(stmt);
-			stmt.executeUpdate();					
+			stmt.addBatch();
 		}
-
-		Location location = photo.getLocation();
-
-		stmt = getReadingStatement("DELETE FROM locations WHERE id = ?");
-		deleteObject(location, stmt);
-
-		stmt = getReadingStatement("INSERT INTO locations VALUES(?, ?)");
-		stmt.setInt(1, location.getId().asInt());
-		stmt.setInt(2, location.getCoordinate().getId().asInt());
+		
 		SysLog.logQuery(stmt);
-		stmt.executeUpdate();
-
-		LocationManager.getInstance().updateDependents(location);
+		stmt.executeBatch();
 	}
 		
 	/**
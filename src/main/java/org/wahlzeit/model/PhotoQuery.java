@@ -0,0 +1,700 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.model;
+
+import java.util.*;
+
+import org.wahlzeit.services.*;
+
+/**
+ * A boolean query over the tags of the PhotoTagIndex, as entered in the filter form.
+ *
+ * Terms are tags, optionally qualified by un: (owner name), sw: (CGI software) or tg: (tag, the default),
+ * and may end in * to match every tag with that prefix. Terms combine with AND, OR, and NOT, and parentheses;
+ * terms next to each other, or separated by commas, are ANDed, so a plain list of tags means what it always meant.
+ * For example: "landscape NOT sunset", "un:ann (sea OR lake*)", "sw:blender NOT un:bob".
+ *
+ * Parsing yields a normalized tree of ANDs and ORs over terms, in which NOT is folded into the enclosing AND.
+ * Evaluation runs against the posting lists of the index: each AND starts from its most selective part,
+ * as estimated from the current posting list sizes, and narrows the candidates down with the other parts,
+ * the exclusions last; only ORs and prefixes materialize lists of their own.
+ */
+public class PhotoQuery {
+
+	/**
+	 *
+	 */
+	public static final String AND = "AND";
+	public static final String OR = "OR";
+	public static final String NOT = "NOT";
+
+	/**
+	 * Field qualifiers and the tag prefixes they stand for
+	 */
+	public static final String USER_NAME_FIELD = "un";
+	public static final String SOFTWARE_FIELD = "sw";
+	public static final String TAG_FIELD = "tg";
+
+	/**
+	 * Matches all photos
+	 */
+	public static final PhotoQuery EMPTY_QUERY = new PhotoQuery("", new AndNode(new ArrayList<Node>(), new ArrayList<Node>()));
+
+	/**
+	 * The query as entered
+	 */
+	protected final String source;
+
+	/**
+	 *
+	 */
+	protected final Node root;
+
+	/**
+	 *
+	 */
+	protected PhotoQuery(String mySource, Node myRoot) {
+		source = mySource;
+		root = myRoot;
+	}
+
+	/**
+	 * @methodtype factory
+	 * @throws IllegalArgumentException if s is not a well-formed query
+	 */
+	public static PhotoQuery parse(String s) {
+		return new PhotoQuery(s, new Parser(s).parse());
+	}
+
+	/**
+	 * A malformed query is taken as a list of tags, as entered before there were queries
+	 * @methodtype factory
+	 */
+	public static PhotoQuery parseLeniently(String s) {
+		try {
+			return parse(s);
+		} catch (IllegalArgumentException ex) {
+			SysLog.logSysInfo("taking malformed photo query as tags: " + ex.getMessage());
+			String[] tags = new Tags(s).asArray();
+			List<Node> terms = new ArrayList<Node>(tags.length);
+			for (String tag : tags) {
+				terms.add(new TermNode(TAG_FIELD + ":" + tag));
+			}
+			return new PhotoQuery(s, makeAnd(terms));
+		}
+	}
+
+	/**
+	 * @methodtype factory
+	 * @param conditions tags as held by the index, e.g. "un:ann" or "tg:sea"
+	 */
+	public static PhotoQuery allOf(Collection<String> conditions) {
+		List<Node> terms = new ArrayList<Node>(conditions.size());
+		for (String condition : conditions) {
+			terms.add(new TermNode(condition));
+		}
+		return new PhotoQuery("", makeAnd(terms));
+	}
+
+	/**
+	 * @methodtype factory
+	 */
+	public static PhotoQuery and(PhotoQuery q1, PhotoQuery q2) {
+		return new PhotoQuery(q2.source, makeAnd(Arrays.asList(q1.root, q2.root)));
+	}
+
+	/**
+	 *
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 *
+	 */
+	public boolean isEmpty() {
+		return asString().isEmpty();
+	}
+
+	/**
+	 * @return the normalized query; equal for queries that are the same up to order and repetition
+	 */
+	public String asString() {
+		StringBuffer result = new StringBuffer(32);
+		root.appendTo(result);
+		return result.toString();
+	}
+
+	/**
+	 *
+	 */
+	public boolean equals(Object other) {
+		return (other instanceof PhotoQuery) && asString().equals(((PhotoQuery) other).asString());
+	}
+
+	/**
+	 *
+	 */
+	public int hashCode() {
+		return asString().hashCode();
+	}
+
+	/**
+	 *
+	 */
+	public String toString() {
+		return asString();
+	}
+
+	/**
+	 * @return matching photo ids, ascending; to be called with the read lock of index held
+	 */
+	protected int[] evaluate(PhotoTagIndex index) {
+		return root.evaluate(index);
+	}
+
+	/**
+	 * @return a number that changes whenever the result of evaluate(index) may have changed
+	 */
+	protected long getVersion(PhotoTagIndex index) {
+		return root.getVersion(index);
+	}
+
+	/**
+	 * @methodtype factory
+	 */
+	protected static Node makeAnd(List<Node> nodes) {
+		List<Node> positives = new ArrayList<Node>();
+		List<Node> negatives = new ArrayList<Node>();
+		for (Node node : nodes) {
+			if (node instanceof AndNode) {
+				positives.addAll(((AndNode) node).positives);
+				negatives.addAll(((AndNode) node).negatives);
+			} else {
+				positives.add(node);
+			}
+		}
+
+		if ((positives.size() == 1) && negatives.isEmpty()) {
+			return positives.get(0);
+		}
+
+		return new AndNode(positives, negatives);
+	}
+
+	/**
+	 * @methodtype factory
+	 */
+	protected static Node makeOr(List<Node> nodes) {
+		List<Node> children = new ArrayList<Node>();
+		for (Node node : nodes) {
+			if (node instanceof OrNode) {
+				children.addAll(((OrNode) node).children);
+			} else {
+				children.add(node);
+			}
+		}
+
+		return (children.size() == 1) ? children.get(0) : new OrNode(children);
+	}
+
+	/**
+	 * @methodtype factory
+	 */
+	protected static Node makeNot(Node node) {
+		if (node instanceof AndNode) {
+			AndNode andNode = (AndNode) node;
+			if (andNode.positives.isEmpty() && (andNode.negatives.size() == 1)) {
+				return andNode.negatives.get(0);
+			}
+		}
+
+		return new AndNode(new ArrayList<Node>(), Collections.singletonList(node));
+	}
+
+	/**
+	 * @return ids in candidates that are (keep) or are not (!keep) in ids; both ascending
+	 */
+	protected static int[] retain(int[] candidates, int[] ids, boolean keep) {
+		int[] result = new int[candidates.length];
+		int noResults = 0;
+		int j = 0;
+		for (int candidate : candidates) {
+			while ((j < ids.length) && (ids[j] < candidate)) {
+				j++;
+			}
+			boolean isFound = (j < ids.length) && (ids[j] == candidate);
+			if (isFound == keep) {
+				result[noResults++] = candidate;
+			}
+		}
+		return Arrays.copyOf(result, noResults);
+	}
+
+	/**
+	 * @return ids that are in any of idLists, ascending
+	 */
+	protected static int[] union(List<int[]> idLists) {
+		int length = 0;
+		for (int[] ids : idLists) {
+			length += ids.length;
+		}
+
+		int[] all = new int[length];
+		int pos = 0;
+		for (int[] ids : idLists) {
+			System.arraycopy(ids, 0, all, pos, ids.length);
+			pos += ids.length;
+		}
+		if (idLists.size() == 1) {
+			return all;
+		}
+
+		Arrays.sort(all);
+		int noResults = 0;
+		for (int i = 0; i < all.length; i++) {
+			if ((noResults == 0) || (all[noResults - 1] != all[i])) {
+				all[noResults++] = all[i];
+			}
+		}
+		return Arrays.copyOf(all, noResults);
+	}
+
+	/**
+	 * @return the nodes ordered by their estimated number of matches, ascending
+	 */
+	protected static List<Node> sortByEstimate(List<Node> nodes, final PhotoTagIndex index) {
+		List<Node> result = new ArrayList<Node>(nodes);
+		Collections.sort(result, new Comparator<Node>() {
+			public int compare(Node n1, Node n2) {
+				return Long.compare(n1.estimate(index), n2.estimate(index));
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * A part of a query
+	 */
+	protected static abstract class Node {
+
+		/**
+		 * @return an upper bound of the number of matches
+		 */
+		protected abstract long estimate(PhotoTagIndex index);
+
+		/**
+		 * @return matching photo ids, ascending
+		 */
+		protected abstract int[] evaluate(PhotoTagIndex index);
+
+		/**
+		 * @return the candidates that match (keep) or do not match (!keep)
+		 */
+		protected int[] retain(PhotoTagIndex index, int[] candidates, boolean keep) {
+			return PhotoQuery.retain(candidates, evaluate(index), keep);
+		}
+
+		/**
+		 *
+		 */
+		protected abstract long getVersion(PhotoTagIndex index);
+
+		/**
+		 *
+		 */
+		protected abstract void appendTo(StringBuffer sb);
+
+		/**
+		 *
+		 */
+		protected String asString() {
+			StringBuffer result = new StringBuffer(16);
+			appendTo(result);
+			return result.toString();
+		}
+	}
+
+	/**
+	 * A tag, e.g. "tg:sea"
+	 */
+	protected static class TermNode extends Node {
+
+		protected final String tag;
+
+		protected TermNode(String myTag) {
+			tag = myTag;
+		}
+
+		protected long estimate(PhotoTagIndex index) {
+			PhotoTagIndex.PostingList postingList = index.getPostingList(tag);
+			return (postingList != null) ? postingList.size() : 0;
+		}
+
+		protected int[] evaluate(PhotoTagIndex index) {
+			PhotoTagIndex.PostingList postingList = index.getPostingList(tag);
+			return (postingList != null) ? postingList.toArray() : new int[0];
+		}
+
+		/**
+		 * Searches the posting list rather than copying it; candidates ascend, so each search gallops ahead from
+		 * the last position, which costs log(n) per candidate for few candidates, and a merge's n+m for many
+		 */
+		protected int[] retain(PhotoTagIndex index, int[] candidates, boolean keep) {
+			PhotoTagIndex.PostingList postingList = index.getPostingList(tag);
+			if (postingList == null) {
+				return keep ? new int[0] : candidates;
+			}
+
+			int[] result = new int[candidates.length];
+			int noResults = 0;
+			int from = 0;
+			for (int candidate : candidates) {
+				int to = from;
+				for (int step = 1; (to < postingList.size) && (postingList.ids[to] < candidate); step <<= 1) {
+					from = to + 1;
+					to += step;
+				}
+				int pos = Arrays.binarySearch(postingList.ids, from, Math.min(to + 1, postingList.size), candidate);
+				from = (pos >= 0) ? pos + 1 : -pos - 1;
+				if ((pos >= 0) == keep) {
+					result[noResults++] = candidate;
+				}
+			}
+			return Arrays.copyOf(result, noResults);
+		}
+
+		protected long getVersion(PhotoTagIndex index) {
+			return index.getTagVersion(tag);
+		}
+
+		protected void appendTo(StringBuffer sb) {
+			sb.append(tag);
+		}
+	}
+
+	/**
+	 * All tags that start with a prefix, e.g. "tg:flow"
+	 */
+	protected static class PrefixNode extends Node {
+
+		protected final String prefix;
+
+		protected PrefixNode(String myPrefix) {
+			prefix = myPrefix;
+		}
+
+		protected long estimate(PhotoTagIndex index) {
+			long result = 0;
+			for (PhotoTagIndex.PostingList postingList : index.getPostingLists(prefix)) {
+				result += postingList.size();
+			}
+			return Math.min(result, index.allPhotoIds.size());
+		}
+
+		protected int[] evaluate(PhotoTagIndex index) {
+			List<int[]> idLists = new ArrayList<int[]>();
+			for (PhotoTagIndex.PostingList postingList : index.getPostingLists(prefix)) {
+				idLists.add(postingList.toArray());
+			}
+			return union(idLists);
+		}
+
+		protected long getVersion(PhotoTagIndex index) {
+			return index.getPrefixVersion(prefix);
+		}
+
+		protected void appendTo(StringBuffer sb) {
+			sb.append(prefix).append('*');
+		}
+	}
+
+	/**
+	 * Matches the photos that match all positives and none of the negatives, or all photos if there are no positives
+	 */
+	protected static class AndNode extends Node {
+
+		protected final List<Node> positives;
+		protected final List<Node> negatives;
+
+		protected AndNode(List<Node> myPositives, List<Node> myNegatives) {
+			positives = asSortedSet(myPositives);
+			negatives = asSortedSet(myNegatives);
+		}
+
+		protected long estimate(PhotoTagIndex index) {
+			long result = index.allPhotoIds.size();
+			for (Node positive : positives) {
+				result = Math.min(result, positive.estimate(index));
+			}
+			return result;
+		}
+
+		protected int[] evaluate(PhotoTagIndex index) {
+			List<Node> plan = sortByEstimate(positives, index);
+			if (plan.isEmpty()) {
+				return narrow(index, index.allPhotoIds.toArray(), plan);
+			}
+
+			int[] candidates = plan.get(0).evaluate(index);
+			return narrow(index, candidates, plan.subList(1, plan.size()));
+		}
+
+		protected int[] retain(PhotoTagIndex index, int[] candidates, boolean keep) {
+			int[] matches = narrow(index, candidates, sortByEstimate(positives, index));
+			return keep ? matches : PhotoQuery.retain(candidates, matches, false);
+		}
+
+		/**
+		 * Applies the positives in the given order, then the negatives, most excluding first
+		 */
+		protected int[] narrow(PhotoTagIndex index, int[] candidates, List<Node> plan) {
+			for (Node positive : plan) {
+				if (candidates.length == 0) {
+					return candidates;
+				}
+				candidates = positive.retain(index, candidates, true);
+			}
+
+			List<Node> exclusions = sortByEstimate(negatives, index);
+			for (int i = exclusions.size() - 1; (i >= 0) && (candidates.length > 0); i--) {
+				candidates = exclusions.get(i).retain(index, candidates, false);
+			}
+			return candidates;
+		}
+
+		protected long getVersion(PhotoTagIndex index) {
+			long result = positives.isEmpty() ? index.allPhotosVersion : 0;
+			for (Node positive : positives) {
+				result = Math.max(result, positive.getVersion(index));
+			}
+			for (Node negative : negatives) {
+				result = Math.max(result, negative.getVersion(index));
+			}
+			return result;
+		}
+
+		protected void appendTo(StringBuffer sb) {
+			boolean isInParentheses = (positives.size() + negatives.size()) > 1;
+			if (isInParentheses) {
+				sb.append('(');
+			}
+			String separator = "";
+			for (Node positive : positives) {
+				sb.append(separator);
+				positive.appendTo(sb);
+				separator = " " + AND + " ";
+			}
+			for (Node negative : negatives) {
+				sb.append(separator).append(NOT).append(' ');
+				negative.appendTo(sb);
+				separator = " " + AND + " ";
+			}
+			if (isInParentheses) {
+				sb.append(')');
+			}
+		}
+	}
+
+	/**
+	 * Matches the photos that match any of the children
+	 */
+	protected static class OrNode extends Node {
+
+		protected final List<Node> children;
+
+		protected OrNode(List<Node> myChildren) {
+			children = asSortedSet(myChildren);
+		}
+
+		protected long estimate(PhotoTagIndex index) {
+			long result = 0;
+			for (Node child : children) {
+				result += child.estimate(index);
+			}
+			return Math.min(result, index.allPhotoIds.size());
+		}
+
+		protected int[] evaluate(PhotoTagIndex index) {
+			List<int[]> idLists = new ArrayList<int[]>(children.size());
+			for (Node child : children) {
+				idLists.add(child.evaluate(index));
+			}
+			return union(idLists);
+		}
+
+		protected int[] retain(PhotoTagIndex index, int[] candidates, boolean keep) {
+			if (!keep) {
+				for (Node child : children) {
+					candidates = child.retain(index, candidates, false);
+				}
+				return candidates;
+			}
+
+			List<int[]> idLists = new ArrayList<int[]>(children.size());
+			for (Node child : children) {
+				idLists.add(child.retain(index, candidates, true));
+			}
+			return union(idLists);
+		}
+
+		protected long getVersion(PhotoTagIndex index) {
+			long result = 0;
+			for (Node child : children) {
+				result = Math.max(result, child.getVersion(index));
+			}
+			return result;
+		}
+
+		protected void appendTo(StringBuffer sb) {
+			sb.append('(');
+			String separator = "";
+			for (Node child : children) {
+				sb.append(separator);
+				child.appendTo(sb);
+				separator = " " + OR + " ";
+			}
+			sb.append(')');
+		}
+	}
+
+	/**
+	 * @return nodes without duplicates, in the order of their normalized form
+	 */
+	protected static List<Node> asSortedSet(List<Node> nodes) {
+		SortedMap<String, Node> result = new TreeMap<String, Node>();
+		for (Node node : nodes) {
+			result.put(node.asString(), node);
+		}
+		return new ArrayList<Node>(result.values());
+	}
+
+	/**
+	 * A recursive descent parser; OR binds weaker than AND, which binds weaker than NOT
+	 */
+	protected static class Parser {
+
+		protected final List<String> tokens;
+		protected int pos = 0;
+
+		protected Parser(String s) {
+			tokens = tokenize(s);
+		}
+
+		protected static List<String> tokenize(String s) {
+			List<String> result = new ArrayList<String>();
+			StringBuffer token = new StringBuffer();
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				boolean isParenthesis = (c == '(') || (c == ')');
+				if (isParenthesis || Character.isWhitespace(c) || (c == Tags.SEPARATOR_CHAR)) {
+					if (token.length() > 0) {
+						result.add(token.toString());
+						token.setLength(0);
+					}
+					if (isParenthesis) {
+						result.add(String.valueOf(c));
+					}
+				} else {
+					token.append(c);
+				}
+			}
+			if (token.length() > 0) {
+				result.add(token.toString());
+			}
+			return result;
+		}
+
+		protected Node parse() {
+			if (tokens.isEmpty()) {
+				return EMPTY_QUERY.root;
+			}
+
+			Node result = parseOr();
+			if (pos < tokens.size()) {
+				throw new IllegalArgumentException("unexpected " + tokens.get(pos));
+			}
+			return result;
+		}
+
+		protected Node parseOr() {
+			List<Node> nodes = new ArrayList<Node>();
+			nodes.add(parseAnd());
+			while (OR.equals(peek())) {
+				pos++;
+				nodes.add(parseAnd());
+			}
+			return makeOr(nodes);
+		}
+
+		protected Node parseAnd() {
+			List<Node> nodes = new ArrayList<Node>();
+			nodes.add(parseNot());
+			for (String token = peek(); (token != null) && !token.equals(")") && !token.equals(OR); token = peek()) {
+				if (token.equals(AND)) {
+					pos++;
+				}
+				nodes.add(parseNot());
+			}
+			return makeAnd(nodes);
+		}
+
+		protected Node parseNot() {
+			if (NOT.equals(peek())) {
+				pos++;
+				return makeNot(parseNot());
+			}
+			return parsePrimary();
+		}
+
+		protected Node parsePrimary() {
+			String token = peek();
+			if ((token == null) || token.equals(")") || token.equals(AND) || token.equals(OR)) {
+				throw new IllegalArgumentException("expected a tag or ( instead of " + ((token == null) ? "end" : token));
+			}
+
+			pos++;
+			if (token.equals("(")) {
+				Node result = parseOr();
+				if (!")".equals(peek())) {
+					throw new IllegalArgumentException("missing )");
+				}
+				pos++;
+				return result;
+			}
+
+			return parseTerm(token);
+		}
+
+		protected Node parseTerm(String token) {
+			String field = TAG_FIELD;
+			String value = token;
+			int colon = token.indexOf(':');
+			if (colon > 0) {
+				String qualifier = token.substring(0, colon).toLowerCase();
+				if (qualifier.equals(USER_NAME_FIELD) || qualifier.equals(SOFTWARE_FIELD) || qualifier.equals(TAG_FIELD)) {
+					field = qualifier;
+					value = token.substring(colon + 1);
+				}
+			}
+
+			boolean isPrefix = value.endsWith("*");
+			String tag = Tags.asTag(value);
+			if (tag.isEmpty() && !isPrefix) {
+				throw new IllegalArgumentException("not a tag: " + token);
+			}
+
+			String condition = field + ":" + tag;
+			return isPrefix ? new PrefixNode(condition) : new TermNode(condition);
+		}
+
+		protected String peek() {
+			return (pos < tokens.size()) ? tokens.get(pos) : null;
+		}
+	}
+
+}
@@ -0,0 +1,360 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.model;
+
+import java.util.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * An inverted index from the tags of visible photos, as collected by the PhotoTagCollector, to the ids of the photos.
+ * Each tag has a sorted list of photo ids (its posting list); a query for several tags intersects their lists,
+ * starting from the shortest one, so the work and the memory of a query are bounded by the shortest list.
+ *
+ * The index is filled from the database at startup and kept current by the PhotoManager whenever
+ * a photo's tags, owner or status change.
+ *
+ * Every change stamps the tags whose posting lists it changed with a new, increasing version number.
+ * The version of a query, the highest stamp of its tags, thus changes exactly when its result may have changed;
+ * the PhotoFilterCache uses it to tell whether a cached result is still current.
+ */
+public class PhotoTagIndex {
+
+	/**
+	 * Guards all posting lists; queries share the lock, changes are exclusive
+	 */
+	protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 *
+	 */
+	protected final Map<String, PostingList> postingLists = new HashMap<String, PostingList>();
+
+	/**
+	 * Ids of all indexed photos, the result of a query without tags
+	 */
+	protected final PostingList allPhotoIds = new PostingList();
+
+	/**
+	 * Indexed tags by photo id, to take a photo out of the lists it is in
+	 */
+	protected final Map<Integer, String[]> tagsByPhotoId = new HashMap<Integer, String[]>();
+
+	/**
+	 * Version stamps of tags, kept after a tag's last photo is gone; allPhotosVersion covers allPhotoIds
+	 */
+	protected final NavigableMap<String, Long> tagVersions = new TreeMap<String, Long>();
+	protected long allPhotosVersion = 0;
+	protected long lastVersion = 0;
+
+	/**
+	 * Indexes photoId under tags, replacing the tags it was indexed under before
+	 */
+	public void add(int photoId, Collection<String> tags) {
+		lock.writeLock().lock();
+		try {
+			Set<String> newTags = new HashSet<String>(tags);
+			String[] oldTags = tagsByPhotoId.get(photoId);
+			Set<String> changedTags = new HashSet<String>(newTags);
+			if (oldTags != null) {
+				for (String tag : oldTags) {
+					if (!changedTags.remove(tag)) {
+						changedTags.add(tag);
+					}
+				}
+			}
+			if (changedTags.isEmpty() && (oldTags != null)) {
+				return;
+			}
+
+			doRemove(photoId);
+
+			String[] photoTags = newTags.toArray(new String[newTags.size()]);
+			for (String tag : photoTags) {
+				PostingList postingList = postingLists.get(tag);
+				if (postingList == null) {
+					postingList = new PostingList();
+					postingLists.put(tag, postingList);
+				}
+				postingList.add(photoId);
+			}
+			allPhotoIds.add(photoId);
+			tagsByPhotoId.put(photoId, photoTags);
+
+			long version = ++lastVersion;
+			for (String tag : changedTags) {
+				tagVersions.put(tag, version);
+			}
+			if (oldTags == null) {
+				allPhotosVersion = version;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Takes photoId out of the index
+	 */
+	public void remove(int photoId) {
+		lock.writeLock().lock();
+		try {
+			String[] oldTags = tagsByPhotoId.get(photoId);
+			if (oldTags != null) {
+				doRemove(photoId);
+
+				long version = ++lastVersion;
+				for (String tag : oldTags) {
+					tagVersions.put(tag, version);
+				}
+				allPhotosVersion = version;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 *
+	 */
+	protected void doRemove(int photoId) {
+		String[] photoTags = tagsByPhotoId.remove(photoId);
+		if (photoTags == null) {
+			return;
+		}
+
+		for (String tag : photoTags) {
+			PostingList postingList = postingLists.get(tag);
+			if (postingList != null) {
+				postingList.remove(photoId);
+				if (postingList.size() == 0) {
+					postingLists.remove(tag);
+				}
+			}
+		}
+		allPhotoIds.remove(photoId);
+	}
+
+	/**
+	 * @return ids of the photos that have all of tags, in ascending order; all photo ids if there are no tags
+	 */
+	public int[] getPhotoIds(Collection<String> tags) {
+		lock.readLock().lock();
+		try {
+			if (tags.isEmpty()) {
+				return allPhotoIds.toArray();
+			}
+
+			List<PostingList> lists = new ArrayList<PostingList>(tags.size());
+			for (String tag : new HashSet<String>(tags)) {
+				PostingList postingList = postingLists.get(tag);
+				if (postingList == null) {
+					return new int[0];
+				}
+				lists.add(postingList);
+			}
+
+			return intersect(lists);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return ids of the photos that match query, in ascending order
+	 */
+	public int[] getPhotoIds(PhotoQuery query) {
+		lock.readLock().lock();
+		try {
+			return query.evaluate(this);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return a number that changes whenever the result of getPhotoIds(query) may have changed
+	 */
+	public long getVersion(PhotoQuery query) {
+		lock.readLock().lock();
+		try {
+			return query.getVersion(this);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return a number that changes whenever the result of getPhotoIds(tags) may have changed
+	 */
+	public long getVersion(Collection<String> tags) {
+		lock.readLock().lock();
+		try {
+			if (tags.isEmpty()) {
+				return allPhotosVersion;
+			}
+
+			long result = 0;
+			for (String tag : tags) {
+				Long tagVersion = tagVersions.get(tag);
+				if ((tagVersion != null) && (tagVersion > result)) {
+					result = tagVersion;
+				}
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return posting list of tag, or null if no photo has it; to be called with the lock held
+	 */
+	protected PostingList getPostingList(String tag) {
+		return postingLists.get(tag);
+	}
+
+	/**
+	 * @return posting lists of the tags that start with prefix; to be called with the lock held
+	 */
+	protected List<PostingList> getPostingLists(String prefix) {
+		List<PostingList> result = new ArrayList<PostingList>();
+		for (String tag : tagVersions.tailMap(prefix, true).keySet()) {
+			if (!tag.startsWith(prefix)) {
+				break;
+			}
+			PostingList postingList = postingLists.get(tag);
+			if (postingList != null) {
+				result.add(postingList);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * To be called with the lock held
+	 */
+	protected long getTagVersion(String tag) {
+		Long result = tagVersions.get(tag);
+		return (result != null) ? result : 0;
+	}
+
+	/**
+	 * @return highest version of the tags that start with prefix, including those no photo has any longer
+	 */
+	protected long getPrefixVersion(String prefix) {
+		long result = 0;
+		for (Map.Entry<String, Long> entry : tagVersions.tailMap(prefix, true).entrySet()) {
+			if (!entry.getKey().startsWith(prefix)) {
+				break;
+			}
+			result = Math.max(result, entry.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * Walks the shortest list; the others are searched from where the last match was found, as ids ascend
+	 */
+	protected static int[] intersect(List<PostingList> lists) {
+		Collections.sort(lists, new Comparator<PostingList>() {
+			public int compare(PostingList l1, PostingList l2) {
+				return Integer.compare(l1.size(), l2.size());
+			}
+		});
+
+		PostingList shortest = lists.get(0);
+		int[] result = new int[shortest.size()];
+		int noResults = 0;
+		int[] positions = new int[lists.size()];
+		for (int i = 0; i < shortest.size(); i++) {
+			int photoId = shortest.ids[i];
+			boolean isInAll = true;
+			for (int j = 1; isInAll && (j < lists.size()); j++) {
+				PostingList other = lists.get(j);
+				int pos = Arrays.binarySearch(other.ids, positions[j], other.size, photoId);
+				positions[j] = (pos >= 0) ? pos + 1 : -pos - 1;
+				isInAll = pos >= 0;
+			}
+			if (isInAll) {
+				result[noResults++] = photoId;
+			}
+		}
+
+		return Arrays.copyOf(result, noResults);
+	}
+
+	/**
+	 *
+	 */
+	public int getNoPhotos() {
+		lock.readLock().lock();
+		try {
+			return allPhotoIds.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 *
+	 */
+	public int getNoTags() {
+		lock.readLock().lock();
+		try {
+			return postingLists.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * A sorted list of photo ids without duplicates
+	 */
+	protected static class PostingList {
+
+		protected int[] ids = new int[4];
+		protected int size = 0;
+
+		protected int size() {
+			return size;
+		}
+
+		protected void add(int photoId) {
+			// new photos have the highest ids, so most adds append
+			if ((size > 0) && (ids[size - 1] >= photoId)) {
+				int pos = Arrays.binarySearch(ids, 0, size, photoId);
+				if (pos >= 0) {
+					return;
+				}
+				insertAt(-pos - 1, photoId);
+			} else {
+				insertAt(size, photoId);
+			}
+		}
+
+		protected void insertAt(int pos, int photoId) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+			}
+			System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+			ids[pos] = photoId;
+			size++;
+		}
+
+		protected void remove(int photoId) {
+			int pos = Arrays.binarySearch(ids, 0, size, photoId);
+			if (pos >= 0) {
+				System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+				size--;
+			}
+		}
+
+		protected int[] toArray() {
+			return Arrays.copyOf(ids, size);
+		}
+	}
+
+}
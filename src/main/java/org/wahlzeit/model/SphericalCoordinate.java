@@ -1,5 +1,7 @@
 package org.wahlzeit.model;
 
+import org.wahlzeit.services.IdAllocator;
+
 import static org.wahlzeit.utils.AssertUtil.*;
 
 import java.sql.PreparedStatement;
@@ -86,7 +88,7 @@ public class SphericalCoordinate extends AbstractCoordinate {
      * @Preconditions: Double.isFinite(phi_degrees) &&
      *                 Double.isFinite(theta_degrees) &&
      *                 Double.isFinite(radius)
-     * @Postconditions: this.id == this.lastCoordinateId + 1 &&
+     * @Postconditions: this.id == this.lastCoordinateId &&
      *                  this.writeCount == old(this.writeCount) + 1 &&
      *                  Double.isFinite(this.phi) &&
      *                  Double.isFinite(this.theta) &&
@@ -172,8 +174,15 @@ public class SphericalCoordinate extends AbstractCoordinate {
         return id;
     }
 
-    static CoordinateId getNextCoordinateId() {
+    /**
+     * 
+     */
+    static synchronized CoordinateId getNextCoordinateId() {
 
+        IdAllocator allocator = IdAllocator.getInstance();
+        if (allocator != null) {
+            return lastCoordinateId = new CoordinateId(allocator.getNextId(IdAllocator.COORDINATE_IDS));
+        }
         if (lastCoordinateId == null) {
             return lastCoordinateId = CoordinateId.NULL_ID;
         }
@@ -18,7 +18,7 @@ import org.wahlzeit.utils.*;
  * Also, his/her contact information and whether the account has been confirmed.
  * Users can have a home page which may be elsewhere on the web.
  */
-public class User extends Client implements Persistent {
+public class User extends Client implements Versioned, ChangeTracked {
 	
 	/**
 	 * 
@@ -65,13 +65,25 @@ public class User extends Client implements Persistent {
 	 * 
 	 */
 	public static synchronized int getNextUserId() {
-		return ++lastUserId;
+		IdAllocator allocator = IdAllocator.getInstance();
+		return lastUserId = (allocator != null) ? allocator.getNextId(IdAllocator.USER_IDS) : lastUserId + 1;
 	}
 
 	/**
 	 * 
 	 */
-	protected transient int writeCount = 0;
+	protected transient volatile int writeCount = 0;
+	
+	/**
+	 * Columns changed since the last save; incWriteCount() without columns changes all of them
+	 */
+	protected final transient Set<String> changedColumns = java.util.concurrent.ConcurrentHashMap.newKeySet();
+	protected transient volatile boolean isAllChanged = false;
+	
+	/**
+	 * 
+	 */
+	protected int version = 0;
 	
 	/**
 	 * 
@@ -167,14 +179,64 @@ public class User extends Client implements Persistent {
 	 * 
 	 */
 	public final void incWriteCount() {
-		writeCount++;
+		synchronized (this) {
+			isAllChanged = true;
+			writeCount++;
+		}
+		doIncWriteCount();
+	}
+	
+	/**
+	 * 
+	 */
+	public final void incWriteCount(String... columns) {
+		synchronized (this) {
+			Collections.addAll(changedColumns, columns);
+			writeCount++;
+		}
+		doIncWriteCount();
+	}
+	
+	/**
+	 * 
+	 */
+	public Set<String> getChangedColumns() {
+		return isAllChanged ? null : new HashSet<String>(changedColumns);
 	}
 	
 	/**
 	 * 
 	 */
-	public void resetWriteCount() {
+	protected void doIncWriteCount() {
+		UserManager manager = UserManager.getInstance();
+		if (manager != null) {
+			manager.markDirty(this);
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	public synchronized void resetWriteCount() {
 		writeCount = 0;
+		isAllChanged = false;
+		changedColumns.clear();
+	}
+	
+	/**
+	 * 
+	 */
+	public synchronized void resetWriteCount(int savedWriteCount) {
+		if (writeCount == savedWriteCount) {
+			resetWriteCount();
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	public final int getWriteCount() {
+		return writeCount;
 	}
 	
 	/**
@@ -204,6 +266,8 @@ public class User extends Client implements Persistent {
 		photos = PhotoManager.getInstance().findPhotosByOwner(name);
 		userPhoto = PhotoManager.getPhoto(PhotoId.getIdFromInt(rset.getInt("photo")));
 		creationTime = rset.getLong("creation_time");
+		
+		version = rset.getInt(VERSION);
 	}
 	
 	/**
@@ -233,12 +297,33 @@ public class User extends Client implements Persistent {
 		stmt.setInt(pos, id);
 	}
 	
+	/**
+	 * @methodtype get
+	 */
+	public int getVersion() {
+		return version;
+	}
+	
+	/**
+	 * @methodtype set
+	 */
+	public void setVersion(int newVersion) {
+		version = newVersion;
+	}
+	
+	/**
+	 * This user's values win over those of the newer row.
+	 */
+	public void mergeWith(ResultSet rset) throws SQLException {
+		version = rset.getInt(VERSION);
+	}
+	
 	/**
 	 * 
 	 */
 	public void setEmailAddress(EmailAddress myEmailAddress) {
 		super.setEmailAddress(myEmailAddress);
-		incWriteCount();
+		incWriteCount("email_address");
 		
 		for (Iterator<Photo> i = photos.iterator(); i.hasNext(); ) {
 			Photo photo = i.next();
@@ -272,7 +357,7 @@ public class User extends Client implements Persistent {
 	 */
 	public void setPassword(String newPassword) {
 		password = newPassword;
-		incWriteCount();
+		incWriteCount("password");
 	}
 	
 	/**
@@ -294,7 +379,7 @@ public class User extends Client implements Persistent {
 	 */
 	public void setLanguage(Language newLanguage) {
 		language = newLanguage;
-		incWriteCount();
+		incWriteCount("language");
 		
 		for (Iterator<Photo> i = photos.iterator(); i.hasNext(); ) {
 			Photo photo = i.next();
@@ -328,7 +413,7 @@ public class User extends Client implements Persistent {
 	 */
 	public void setNotifyAboutPraise(boolean notify) {
 		notifyAboutPraise = notify;
-		incWriteCount();
+		incWriteCount("notify_about_praise");
 
 		for (Iterator<Photo> i = photos.iterator(); i.hasNext(); ) {
 			Photo photo = i.next();
@@ -348,7 +433,7 @@ public class User extends Client implements Persistent {
 	 */
 	public void setHomePage(URL newHomePage) {
 		homePage = newHomePage;
-		incWriteCount();
+		incWriteCount("home_page");
 		
 		for (Iterator<Photo> i = photos.iterator(); i.hasNext(); ) {
 			Photo photo = i.next();
@@ -382,7 +467,7 @@ public class User extends Client implements Persistent {
 	 */
 	public void setGender(Gender newGender) {
 		gender = newGender;
-		incWriteCount();
+		incWriteCount("gender");
 	}
 
 	/**
@@ -398,7 +483,7 @@ public class User extends Client implements Persistent {
 	 */
 	public void setStatus(UserStatus newStatus) {
 		status = newStatus;
-		incWriteCount();
+		incWriteCount("status");
 	}
 
 	/**
@@ -413,7 +498,6 @@ public class User extends Client implements Persistent {
 	 */
 	public void setConfirmed() {
 		setStatus(status.asConfirmed());
-		incWriteCount();
 	}
 	
 	/**
@@ -435,7 +519,7 @@ public class User extends Client implements Persistent {
 	 */
 	public void setUserPhoto(Photo newPhoto) {
 		userPhoto = newPhoto;
-		incWriteCount();
+		incWriteCount("photo");
 	}
 	
 	/**
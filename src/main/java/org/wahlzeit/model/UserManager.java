@@ -7,6 +7,7 @@ package org.wahlzeit.model;
 
 import java.util.*;
 import java.sql.*;
+import java.util.function.*;
 
 import org.wahlzeit.services.*;
 import org.wahlzeit.services.mailing.*;
@@ -48,7 +49,12 @@ public class UserManager extends ObjectManager {
 	/**
 	 * Maps nameAsTag to user of that name (as tag)
 	 */
-	protected Map<String, User> users = new HashMap<String, User>();
+	protected ObjectCache<String, User> users = new ObjectCache<String, User>("users", SysConfig.CACHE_USERS_SIZE);
+	
+	/**
+	 * Names (as tags) known not to be taken
+	 */
+	protected NegativeLookupCache unknownUserTags = new NegativeLookupCache("user names");
 	
 	/**
 	 * 
@@ -93,17 +99,19 @@ public class UserManager extends ObjectManager {
 
 		User result = doGetUserByTag(tag);
 
-		if (result == null) {
+		if ((result == null) && unknownUserTags.mightExist(tag)) {
+			long stamp = unknownUserTags.getStamp();
 			try {
 				PreparedStatement stmt = getReadingStatement("SELECT * FROM users WHERE name_as_tag = ?");
 				result = (User) readObject(stmt, tag);
+				if (result != null) {
+					doAddUser(result);
+				} else {
+					unknownUserTags.markAbsent(tag, stamp);
+				}
 			} catch (SQLException sex) {
 				SysLog.logThrowable(sex);
 			}
-			
-			if (result != null) {
-				doAddUser(result);
-			}
 		}
 		
 		return result;
@@ -170,6 +178,43 @@ public class UserManager extends ObjectManager {
 	 */
 	protected void doAddUser(User user) {
 		users.put(user.getNameAsTag(), user);
+		unknownUserTags.add(user.getNameAsTag());
+	}
+
+	/**
+	 * 
+	 */
+	protected void dropObject(Persistent obj) {
+		super.dropObject(obj);
+		User user = (User) obj;
+		if (users.peek(user.getNameAsTag()) == user) {
+			users.remove(user.getNameAsTag());
+		}
+	}
+
+	/**
+	 * Fills the filter of taken user names, so that lookups of unknown names need not go to the database.
+	 */
+	public void loadUserTagFilter() {
+		try {
+			PreparedStatement stmt = getPrimaryReadingStatement("SELECT count(*) FROM users");
+			SysLog.logQuery(stmt);
+			int count = 0;
+			try (ResultSet rset = stmt.executeQuery()) {
+				count = rset.next() ? rset.getInt(1) : 0;
+			}
+
+			final BloomFilter filter = unknownUserTags.newFilter(count);
+			readRows(getPrimaryReadingStatement("SELECT name_as_tag FROM users"), new RowHandler() {
+				public void handleRow(ResultSet rset) throws SQLException {
+					filter.add(rset.getString("name_as_tag"));
+				}
+			});
+			unknownUserTags.installFilter(filter);
+			SysLog.logSysInfo("loaded user name filter with " + filter.getSize() + " names");
+		} catch (SQLException sex) {
+			SysLog.logThrowable(sex);
+		}
 	}
 	
 	/**
@@ -199,18 +244,31 @@ public class UserManager extends ObjectManager {
 	/**
 	 * 
 	 */
-	public void loadUsers(Collection<User> result) {
+	public void loadUsers(final Collection<User> result) {
+		loadUsers(new Consumer<User>() {
+			public void accept(User user) {
+				result.add(user);
+			}
+		});
+	}
+	
+	/**
+	 * 
+	 */
+	public void loadUsers(final Consumer<? super User> consumer) {
 		try {
 			PreparedStatement stmt = getReadingStatement("SELECT * FROM users");
-			readObjects(result, stmt);
-			for (Iterator<User> i = result.iterator(); i.hasNext(); ) {
-				User user = i.next();
-				if (!doHasUserByTag(user.getNameAsTag())) {
-					doAddUser(user);
-				} else {
-					SysLog.logSysInfo("user", user.getName(), "user had already been loaded");
+			readRows(stmt, new RowHandler() {
+				public void handleRow(ResultSet rset) throws SQLException {
+					User user = createObject(rset);
+					consumer.accept(user);
+					if (!doHasUserByTag(user.getNameAsTag())) {
+						doAddUser(user);
+					} else {
+						SysLog.logSysInfo("user", user.getName(), "user had already been loaded");
+					}
 				}
-			}
+			});
 		} catch (SQLException sex) {
 			SysLog.logThrowable(sex);
 		}
@@ -265,9 +323,12 @@ public class UserManager extends ObjectManager {
 	 * 
 	 */
 	public void saveUser(User user) {
+		if (saveLater("users", user)) {
+			return;
+		}
+		
 		try {
-			PreparedStatement stmt = getUpdatingStatement("SELECT * FROM users WHERE id = ?");
-			updateObject(user, stmt);
+			updateObject("users", user);
 		} catch (SQLException sex) {
 			SysLog.logThrowable(sex);
 		}
@@ -286,13 +347,19 @@ public class UserManager extends ObjectManager {
 	 */
 	public void saveUsers() {
 		try {
-			PreparedStatement stmt = getUpdatingStatement("SELECT * FROM users WHERE id = ?");
-			updateObjects(users.values(), stmt);
+			updateDirtyObjects("users");
 		} catch (SQLException sex) {
 			SysLog.logThrowable(sex);
 		}
 	}
 	
+	/**
+	 * 
+	 */
+	protected boolean isManaged(Persistent obj) {
+		return (obj instanceof User) && (users.peek(((User) obj).getNameAsTag()) == obj);
+	}
+	
 	/**
 	 * 
 	 */
@@ -34,6 +34,27 @@ public abstract class AbstractConfig implements Configuration {
 		return doGetValue(key);
 	}
 	
+	/**
+	 * 
+	 */
+	public int getValueAsInt(String key) throws IllegalArgumentException {
+		return Integer.parseInt(getValue(key).trim());
+	}
+	
+	/**
+	 * 
+	 */
+	public long getValueAsLong(String key) throws IllegalArgumentException {
+		return Long.parseLong(getValue(key).trim());
+	}
+	
+	/**
+	 * 
+	 */
+	public boolean getValueAsBoolean(String key) throws IllegalArgumentException {
+		return Boolean.parseBoolean(getValue(key).trim());
+	}
+	
 	/**
 	 * 
 	 */
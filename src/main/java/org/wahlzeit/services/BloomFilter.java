@@ -0,0 +1,125 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A thread-safe Bloom filter of strings. If mightContain returns false, the string has never been added;
+ * if it returns true, the string has been added or it is a false positive.
+ */
+public class BloomFilter {
+
+	/**
+	 *
+	 */
+	protected final AtomicLongArray bits;
+	protected final int numberOfBits;
+	protected final int numberOfHashes;
+	protected final LongAdder size = new LongAdder();
+
+	/**
+	 * @param expectedSize number of strings the filter is sized for
+	 * @param falsePositiveRate false positive rate at expectedSize strings, e.g. 0.01
+	 */
+	public BloomFilter(int expectedSize, double falsePositiveRate) {
+		int n = Math.max(1, expectedSize);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		m = Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+
+		numberOfBits = (int) (((m + 63) / 64) * 64);
+		numberOfHashes = Math.max(1, (int) Math.round((double) numberOfBits / n * Math.log(2)));
+		bits = new AtomicLongArray(numberOfBits / 64);
+	}
+
+	/**
+	 *
+	 */
+	public void add(String value) {
+		long hash = hash64(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < numberOfHashes; i++) {
+			setBit(indexOf(h1 + i * h2));
+		}
+		size.increment();
+	}
+
+	/**
+	 *
+	 */
+	public boolean mightContain(String value) {
+		long hash = hash64(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < numberOfHashes; i++) {
+			int index = indexOf(h1 + i * h2);
+			if ((bits.get(index >>> 6) & (1L << index)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of add calls, duplicates included
+	 */
+	public long getSize() {
+		return size.sum();
+	}
+
+	/**
+	 *
+	 */
+	public int getNumberOfBits() {
+		return numberOfBits;
+	}
+
+	/**
+	 *
+	 */
+	public int getNumberOfHashes() {
+		return numberOfHashes;
+	}
+
+	/**
+	 *
+	 */
+	protected int indexOf(int hash) {
+		return (hash & Integer.MAX_VALUE) % numberOfBits;
+	}
+
+	/**
+	 *
+	 */
+	protected void setBit(int index) {
+		int word = index >>> 6;
+		long mask = 1L << index;
+		long current = bits.get(word);
+		while (((current & mask) == 0) && !bits.compareAndSet(word, current, current | mask)) {
+			current = bits.get(word);
+		}
+	}
+
+	/**
+	 * 64-bit FNV-1a over the characters, finished with the MurmurHash3 mixer
+	 */
+	protected static long hash64(String value) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			h ^= value.charAt(i);
+			h *= 0x100000001b3L;
+		}
+
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+}
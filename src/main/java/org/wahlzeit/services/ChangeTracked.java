@@ -0,0 +1,37 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.util.*;
+
+/**
+ * A ChangeTracked object is a Persistent object that knows which of its columns changed since it was last saved.
+ * ObjectManager then only writes those columns, see RowImage.captureChanges().
+ */
+public interface ChangeTracked extends Persistent {
+	
+	/**
+	 * Marks columns as changed and the object as dirty
+	 */
+	public void incWriteCount(String... columns);
+	
+	/**
+	 * @return names of the columns changed since the object was last saved, or null if all columns need writing
+	 */
+	public Set<String> getChangedColumns();
+	
+	/**
+	 * @return number of changes since the object was last saved; taken before its columns are captured for a save
+	 */
+	public int getWriteCount();
+	
+	/**
+	 * Marks the object as saved, unless it changed again after getWriteCount() returned writeCount,
+	 * i.e. while it was being written; then it stays dirty with all its changed columns, to be saved again.
+	 */
+	public void resetWriteCount(int writeCount);
+	
+}
@@ -6,6 +6,7 @@
 package org.wahlzeit.services;
 
 import java.io.File;
+import java.util.*;
 
 /**
  * A ConfigDir is a Directory that can provides a two-way switch between a default directory and custom directory.
@@ -93,6 +94,21 @@ public class ConfigDir extends Directory {
 		return doesFileExist(customDirName + File.separator + shortFileName);
 	}
 	
+	/**
+	 * @return files in the subdirectory subDirName of the default and the custom directory, default files first
+	 */
+	public List<File> listFiles(String subDirName) {
+		List<File> result = new ArrayList<File>();
+		for (String dirName : new String[] { defaultDirName, customDirName }) {
+			File[] files = new File(dirName + File.separator + subDirName).listFiles();
+			if (files != null) {
+				Arrays.sort(files);
+				result.addAll(Arrays.asList(files));
+			}
+		}
+		return result;
+	}
+	
 	/**
 	 * 
 	 */
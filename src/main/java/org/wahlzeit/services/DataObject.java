@@ -5,11 +5,14 @@
 
 package org.wahlzeit.services;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 /**
- * A simple abstract implementation of Persistent with write count and dirty bit.
+ * A simple abstract implementation of Persistent with write count, dirty bit, and changed columns.
  * Also defines (but does not use) the field "ID" for subclass use.
  */
-public abstract class DataObject implements Persistent {
+public abstract class DataObject implements ChangeTracked {
 	
 	/**
 	 * Not used in the class but needed by broad array of subclasses
@@ -19,7 +22,13 @@ public abstract class DataObject implements Persistent {
 	/**
 	 * 
 	 */
-	protected transient int writeCount = 0;
+	protected transient volatile int writeCount = 0;
+	
+	/**
+	 * Columns changed since the last save; incWriteCount() without columns changes all of them
+	 */
+	protected final transient Set<String> changedColumns = ConcurrentHashMap.newKeySet();
+	protected transient volatile boolean isAllChanged = false;
 	
 	/**
 	 * 
@@ -31,15 +40,74 @@ public abstract class DataObject implements Persistent {
 	/**
 	 * 
 	 */
-	public final void resetWriteCount() {
+	public final synchronized void resetWriteCount() {
 		writeCount = 0;
+		isAllChanged = false;
+		changedColumns.clear();
+	}
+	
+	/**
+	 * 
+	 */
+	public final synchronized void resetWriteCount(int savedWriteCount) {
+		if (writeCount == savedWriteCount) {
+			resetWriteCount();
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	public final int getWriteCount() {
+		return writeCount;
 	}
 	
 	/**
 	 * 
 	 */
 	public final void incWriteCount() {
-		writeCount++;
+		synchronized (this) {
+			isAllChanged = true;
+			writeCount++;
+		}
+		doIncWriteCount();
+	}
+	
+	/**
+	 * 
+	 */
+	public final void incWriteCount(String... columns) {
+		synchronized (this) {
+			Collections.addAll(changedColumns, columns);
+			writeCount++;
+		}
+		doIncWriteCount();
+	}
+	
+	/**
+	 * 
+	 */
+	public Set<String> getChangedColumns() {
+		return isAllChanged ? null : new HashSet<String>(changedColumns);
+	}
+	
+	/**
+	 * 
+	 */
+	protected void doIncWriteCount() {
+		ObjectManager manager = getObjectManager();
+		if (manager != null) {
+			manager.markDirty(this);
+		}
+	}
+	
+	/**
+	 * @methodproperty hook
+	 * 
+	 * Returns the manager that saves this object, or null if it is saved by other means.
+	 */
+	protected ObjectManager getObjectManager() {
+		return null;
 	}
 	
 	/**
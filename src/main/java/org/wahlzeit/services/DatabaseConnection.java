@@ -12,7 +12,7 @@ import java.util.*;
 
 /**
  * A database connection wraps an RDMBS connection object.
- * It pools and reuses existing connections; it caches common SQL statements.
+ * Connections are pooled and reused via a bounded DatabaseConnectionPool; it caches common SQL statements.
  *
  * @author dirkriehle
  *
@@ -28,27 +28,73 @@ public class DatabaseConnection {
 	/**
 	 * 
 	 */
-	protected static Set<DatabaseConnection> pool = new HashSet<DatabaseConnection>();
+	protected static DatabaseConnectionPool pool = null;
 	
 	/**
 	 * 
 	 */
-	protected static int dbcId = 0;
+	public static synchronized DatabaseConnectionPool getPool() {
+		if (pool == null) {
+			pool = DatabaseConnectionPool.createFromSysConfig("dbc", new DatabaseConnectionPool.ConnectionFactory() {
+				public Connection openConnection() throws SQLException {
+					return openRdbmsConnection();
+				}
+			});
+		}
+		return pool;
+	}
+	
+	/**
+	 * Pool of connections to the read replica; null if none is configured
+	 */
+	protected static DatabaseConnectionPool replicaPool = null;
 	
 	/**
 	 * 
 	 */
-	public static synchronized DatabaseConnection ensureDatabaseConnection() throws SQLException {
-		DatabaseConnection result = null;
-		if (pool.isEmpty()) {
-			result = new DatabaseConnection("dbc" + dbcId++);
-			SysLog.logCreatedObject("DatabaseConnection", result.getName());
-		} else {
-			result = pool.iterator().next();
-			pool.remove(result);
+	public static synchronized boolean hasReplicaPool() {
+		return getReplicaPool() != null;
+	}
+	
+	/**
+	 * 
+	 */
+	public static synchronized DatabaseConnectionPool getReplicaPool() {
+		if ((replicaPool == null) && SysConfig.hasDbReplica()) {
+			replicaPool = DatabaseConnectionPool.createFromSysConfig("replica", new DatabaseConnectionPool.ConnectionFactory() {
+				public Connection openConnection() throws SQLException {
+					return openReplicaConnection();
+				}
+			});
 		}
-		
-		return result;
+		return replicaPool;
+	}
+	
+	/**
+	 * 
+	 */
+	public static synchronized void setReplicaPool(DatabaseConnectionPool newPool) {
+		if (replicaPool != null) {
+			replicaPool.shutDown();
+		}
+		replicaPool = newPool;
+	}
+	
+	/**
+	 * Replaces the current pool, e.g. to cope with repeated startup/shutdown scenarios
+	 */
+	public static synchronized void setPool(DatabaseConnectionPool newPool) {
+		if (pool != null) {
+			pool.shutDown();
+		}
+		pool = newPool;
+	}
+	
+	/**
+	 * Not synchronized, as it may block until another thread returns its connection
+	 */
+	public static DatabaseConnection ensureDatabaseConnection() throws SQLException {
+		return getPool().borrow();
 	}
 
 	/**
@@ -63,7 +109,8 @@ public class DatabaseConnection {
 		String dbUrl = SysConfig.getDbConnectionAsString();
 		do {
 			try {
-				DatabaseConnection.ensureDatabaseConnection();
+				DatabaseConnection dbc = DatabaseConnection.ensureDatabaseConnection();
+				DatabaseConnection.returnDatabaseConnection(dbc);
 				SysLog.logSysInfo("[success] Service check for URL " + dbUrl);
 				return true;
 			} catch (final SQLException e) {
@@ -89,15 +136,24 @@ public class DatabaseConnection {
 	/**
 	 * 
 	 */
-	public static synchronized void returnDatabaseConnection(DatabaseConnection dbc) {
-		if (dbc != null) {
-			if (dbc.isOpen()) {
-				pool.add(dbc);				
-			} else {
-				SysLog.logSysError("tried to return closed database connection to pool; ignoring it");
-			}
-		} else {
-			SysLog.logSysError("tried to return null to database connection pool; ignoring it");
+	public static void returnDatabaseConnection(DatabaseConnection dbc) {
+		getPool().release(dbc);
+	}
+	
+	/**
+	 * 
+	 */
+	public static DatabaseConnection ensureReplicaConnection() throws SQLException {
+		return getReplicaPool().borrow();
+	}
+	
+	/**
+	 * 
+	 */
+	public static void returnReplicaConnection(DatabaseConnection dbc) {
+		DatabaseConnectionPool pool = getReplicaPool();
+		if (pool != null) {
+			pool.release(dbc);
 		}
 	}
 	
@@ -112,10 +168,16 @@ public class DatabaseConnection {
 	protected Connection rdbmsConnection = null;
 	
 	/**
-	 * Map contains prepared statements retrieved by query string
+	 * Pool bookkeeping, in milliseconds
+	 */
+	protected final long creationTime = System.currentTimeMillis();
+	protected volatile long lastUsedTime = creationTime;
+	
+	/**
+	 * Prepared statements retrieved by query string
 	 */
-	protected Map<String, PreparedStatement> readingStatements = new HashMap<String, PreparedStatement>();
-	protected Map<String, PreparedStatement> updatingStatements = new HashMap<String, PreparedStatement>();
+	protected StatementCache readingStatements = new StatementCache(SysConfig.getDbStatementCacheSize());
+	protected StatementCache updatingStatements = new StatementCache(SysConfig.getDbStatementCacheSize());
 
 	/**
 	 * 
@@ -125,13 +187,22 @@ public class DatabaseConnection {
 		rdbmsConnection = openRdbmsConnection();
 	}
 	
+	/**
+	 * 
+	 */
+	protected DatabaseConnection(String dbcName, Connection myRdbmsConnection) {
+		name = dbcName;
+		rdbmsConnection = myRdbmsConnection;
+	}
+	
 	/**
 	 * 
 	 */
 	protected void finalize() {
 		try {
-			pool.remove(this); // just to be sure...
-			closeConnection(rdbmsConnection);
+			if (isOpen()) {
+				closeConnection(rdbmsConnection);
+			}
 		} catch (Throwable t) {
 			SysLog.logThrowable(t);
 		}
@@ -144,6 +215,49 @@ public class DatabaseConnection {
 		return name;
 	}
 	
+	/**
+	 * 
+	 */
+	public long getCreationTime() {
+		return creationTime;
+	}
+	
+	/**
+	 * 
+	 */
+	public long getLastUsedTime() {
+		return lastUsedTime;
+	}
+	
+	/**
+	 * 
+	 */
+	protected void setLastUsedTime(long time) {
+		lastUsedTime = time;
+	}
+	
+	/**
+	 * Closes cached statements and the underlying connection
+	 */
+	protected void close() throws SQLException {
+		try {
+			readingStatements.closeAll();
+			updatingStatements.closeAll();
+		} finally {
+			if (rdbmsConnection != null && !rdbmsConnection.isClosed()) {
+				closeConnection(rdbmsConnection);
+			}
+		}
+	}
+	
+	/**
+	 * Closes statements evicted from the statement caches; only call while the connection is not in use
+	 */
+	protected void closeRetiredStatements() {
+		readingStatements.closeRetired();
+		updatingStatements.closeRetired();
+	}
+	
 	/**
 	 * 
 	 */
@@ -174,6 +288,9 @@ public class DatabaseConnection {
 		if (result == null) {
 			result = getRdbmsConnection().prepareStatement(stmt);
 	   		SysLog.logCreatedObject("PreparedStatement", result.toString());
+	   		if (SysConfig.isDbQueryStats()) {
+	   			result = TimedStatement.wrap(result, stmt);
+	   		}
 	   		readingStatements.put(stmt, result);
 		}
 		
@@ -188,6 +305,9 @@ public class DatabaseConnection {
 		if (result == null) {
 			result = getRdbmsConnection().prepareStatement(stmt, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
 	   		SysLog.logCreatedObject("UpdatingStatement", result.toString());
+	   		if (SysConfig.isDbQueryStats()) {
+	   			result = TimedStatement.wrap(result, stmt);
+	   		}
 	   		updatingStatements.put(stmt, result);
 		}
 		
@@ -217,6 +337,19 @@ public class DatabaseConnection {
    		return result;
 	}
 	
+	/**
+	 * 
+	 */
+	public static Connection openReplicaConnection() throws SQLException {
+		String dbConnection = SysConfig.getDbReplicaConnectionAsString();
+		String dbUser = SysConfig.getDbUserAsString();
+		String dbPassword = SysConfig.getDbPasswordAsString();
+		Connection result = DriverManager.getConnection(dbConnection, dbUser, dbPassword);
+		result.setReadOnly(true);
+		SysLog.logSysInfo("opening replica connection: " + result.toString());
+		return result;
+	}
+	
 	/**
 	 * 
 	 */
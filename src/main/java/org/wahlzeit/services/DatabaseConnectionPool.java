@@ -0,0 +1,589 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import org.wahlzeit.utils.PatternInstance;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A bounded pool of DatabaseConnections. Borrowers queue fairly for one of maxSize permits
+ * and give up after the acquire timeout. Connections are validated on borrow and on return,
+ * and idle or too old connections are evicted whenever the idle list is touched.
+ * Each borrow records the borrower's stack trace so that leaked connections can be reported.
+ * Pools created from SysConfig also evict and report leaks periodically, on a shared housekeeping thread,
+ * so that a quiet pool does not keep stale connections and leaks are seen before the pool runs dry.
+ */
+@PatternInstance(
+	patternName = "Object Pool",
+	participants = {
+		"ObjectPool"
+	}
+)
+public class DatabaseConnectionPool {
+
+	/**
+	 * Creates the physical connections for a pool
+	 */
+	public interface ConnectionFactory {
+		public Connection openConnection() throws SQLException;
+	}
+
+	/**
+	 * Upper bounds (in milliseconds) of the wait-time histogram buckets; the last bucket is open
+	 */
+	public static final long[] WAIT_TIME_BUCKETS = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+
+	/**
+	 *
+	 */
+	protected final String name;
+	protected final ConnectionFactory factory;
+
+	/**
+	 * Configuration, all times in milliseconds
+	 */
+	protected final int maxSize;
+	protected final long acquireTimeout;
+	protected final long idleTimeout;
+	protected final long maxLifetime;
+	protected final long leakThreshold;
+	protected final int validationTimeout; // in seconds, as required by Connection.isValid
+
+	/**
+	 * One permit per connection that may be handed out; fair, so waiters are served in order
+	 */
+	protected final Semaphore permits;
+
+	/**
+	 * Idle connections, most recently returned first; guarded by this
+	 */
+	protected final Deque<DatabaseConnection> idle = new ArrayDeque<DatabaseConnection>();
+
+	/**
+	 * Borrowed connections and who borrowed them
+	 */
+	protected final Map<DatabaseConnection, Borrow> borrowed = new ConcurrentHashMap<DatabaseConnection, Borrow>();
+
+	/**
+	 *
+	 */
+	protected final AtomicInteger dbcId = new AtomicInteger(0);
+
+	/**
+	 * Statistics
+	 */
+	protected final AtomicLongArray waitTimes = new AtomicLongArray(WAIT_TIME_BUCKETS.length + 1);
+	protected final AtomicLong borrowCount = new AtomicLong(0);
+	protected final AtomicLong timeoutCount = new AtomicLong(0);
+	protected final AtomicLong createdCount = new AtomicLong(0);
+	protected final AtomicLong evictedCount = new AtomicLong(0);
+	protected final AtomicLong invalidCount = new AtomicLong(0);
+	protected final AtomicLong leakCount = new AtomicLong(0);
+
+	/**
+	 *
+	 */
+	protected volatile boolean isShutDown = false;
+
+	/**
+	 * Runs the housekeeping of all pools; created on first use
+	 */
+	protected static ScheduledExecutorService housekeeper = null;
+
+	/**
+	 * This pool's periodic housekeeping, if started
+	 */
+	protected ScheduledFuture<?> housekeeping = null;
+
+	/**
+	 *
+	 */
+	public DatabaseConnectionPool(String myName, ConnectionFactory myFactory, int myMaxSize, long myAcquireTimeout,
+			long myIdleTimeout, long myMaxLifetime, long myLeakThreshold, int myValidationTimeout) {
+		if (myMaxSize < 1) {
+			throw new IllegalArgumentException("pool size must be positive: " + myMaxSize);
+		}
+
+		name = myName;
+		factory = myFactory;
+		maxSize = myMaxSize;
+		acquireTimeout = myAcquireTimeout;
+		idleTimeout = myIdleTimeout;
+		maxLifetime = myMaxLifetime;
+		leakThreshold = myLeakThreshold;
+		validationTimeout = myValidationTimeout;
+		permits = new Semaphore(maxSize, true);
+	}
+
+	/**
+	 * @methodtype factory
+	 */
+	public static DatabaseConnectionPool createFromSysConfig(String name, ConnectionFactory factory) {
+		DatabaseConnectionPool result = new DatabaseConnectionPool(
+			name,
+			factory,
+			SysConfig.getDbPoolMaxSize(),
+			SysConfig.getDbPoolAcquireTimeout(),
+			SysConfig.getDbPoolIdleTimeout(),
+			SysConfig.getDbPoolMaxLifetime(),
+			SysConfig.getDbPoolLeakThreshold(),
+			SysConfig.getDbPoolValidationTimeout()
+		);
+		result.startHousekeeping(SysConfig.getDbPoolHousekeepingPeriod());
+		return result;
+	}
+
+	/**
+	 * Runs doHousekeeping every period milliseconds until the pool is shut down; does nothing if period is not positive
+	 */
+	public synchronized void startHousekeeping(long period) {
+		if ((period <= 0) || (housekeeping != null) || isShutDown) {
+			return;
+		}
+
+		housekeeping = getHousekeeper().scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				doHousekeeping();
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 *
+	 */
+	protected static synchronized ScheduledExecutorService getHousekeeper() {
+		if (housekeeper == null) {
+			housekeeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread result = new Thread(task, "pool-housekeeper");
+					result.setDaemon(true);
+					return result;
+				}
+			});
+		}
+		return housekeeper;
+	}
+
+	/**
+	 * Closes idle connections that are evictable and reports leaked ones.
+	 * Exceptions are logged, so that they do not cancel the periodic task.
+	 */
+	public void doHousekeeping() {
+		try {
+			evictIdleConnections();
+			logLeakedConnections();
+		} catch (RuntimeException ex) {
+			SysLog.logThrowable(ex);
+		}
+	}
+
+	/**
+	 *
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 *
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Waits at most acquireTimeout for a permit, then hands out a valid idle connection or opens a new one.
+	 */
+	public DatabaseConnection borrow() throws SQLException {
+		assertIsNotShutDown();
+
+		long startTime = System.nanoTime();
+		boolean isAcquired = false;
+		try {
+			isAcquired = permits.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("interrupted while waiting for database connection");
+		}
+
+		recordWaitTime((System.nanoTime() - startTime) / 1000000);
+
+		if (!isAcquired) {
+			timeoutCount.incrementAndGet();
+			logLeakedConnections();
+			throw new SQLTimeoutException("timed out after " + acquireTimeout + "ms waiting for database connection; " + getStats());
+		}
+
+		try {
+			DatabaseConnection result = takeValidIdleConnection();
+			if (result == null) {
+				result = openConnection();
+			}
+
+			borrowed.put(result, new Borrow());
+			borrowCount.incrementAndGet();
+			return result;
+		} catch (SQLException ex) {
+			permits.release();
+			throw ex;
+		} catch (RuntimeException ex) {
+			permits.release();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Returns a borrowed connection; it is closed instead of kept if it fails validation.
+	 */
+	public void release(DatabaseConnection dbc) {
+		if (dbc == null) {
+			SysLog.logSysError("tried to return null to database connection pool; ignoring it");
+			return;
+		}
+
+		if (borrowed.remove(dbc) == null) {
+			SysLog.logSysError("tried to return unknown database connection " + dbc.getName() + " to pool; ignoring it");
+			return;
+		}
+
+		try {
+			long now = System.currentTimeMillis();
+			if (!isShutDown && resetConnection(dbc) && !isExpired(dbc, now)) {
+				dbc.closeRetiredStatements();
+				dbc.setLastUsedTime(now);
+				synchronized (this) {
+					idle.addFirst(dbc);
+				}
+			} else {
+				closeConnection(dbc);
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Closes a borrowed connection rather than returning it, e.g. after a fatal error.
+	 */
+	public void discard(DatabaseConnection dbc) {
+		if ((dbc != null) && (borrowed.remove(dbc) != null)) {
+			closeConnection(dbc);
+			permits.release();
+		}
+	}
+
+	/**
+	 * Closes all idle connections and refuses further borrows; borrowed connections are closed on return.
+	 */
+	public void shutDown() {
+		isShutDown = true;
+		List<DatabaseConnection> toClose;
+		synchronized (this) {
+			if (housekeeping != null) {
+				housekeeping.cancel(false);
+				housekeeping = null;
+			}
+			toClose = new ArrayList<DatabaseConnection>(idle);
+			idle.clear();
+		}
+
+		for (DatabaseConnection dbc : toClose) {
+			closeConnection(dbc);
+		}
+
+		SysLog.logSysInfo("shut down database connection pool " + name + " with " + borrowed.size() + " connection(s) still borrowed");
+	}
+
+	/**
+	 *
+	 */
+	protected DatabaseConnection takeValidIdleConnection() {
+		long now = System.currentTimeMillis();
+		while (true) {
+			List<DatabaseConnection> expired = new ArrayList<DatabaseConnection>();
+			DatabaseConnection candidate;
+			synchronized (this) {
+				// oldest connections sit at the tail; evict them first
+				while (!idle.isEmpty() && isEvictable(idle.peekLast(), now)) {
+					expired.add(idle.pollLast());
+				}
+				candidate = idle.pollFirst();
+			}
+
+			for (DatabaseConnection dbc : expired) {
+				evictedCount.incrementAndGet();
+				closeConnection(dbc);
+			}
+
+			if (candidate == null) {
+				return null;
+			} else if (!isExpired(candidate, now) && isValid(candidate)) {
+				return candidate;
+			}
+
+			invalidCount.incrementAndGet();
+			closeConnection(candidate);
+		}
+	}
+
+	/**
+	 * Closes all idle connections that are evictable, not only the oldest ones
+	 */
+	protected void evictIdleConnections() {
+		long now = System.currentTimeMillis();
+		List<DatabaseConnection> expired = new ArrayList<DatabaseConnection>();
+		synchronized (this) {
+			for (Iterator<DatabaseConnection> i = idle.iterator(); i.hasNext(); ) {
+				DatabaseConnection dbc = i.next();
+				if (isEvictable(dbc, now)) {
+					i.remove();
+					expired.add(dbc);
+				}
+			}
+		}
+
+		for (DatabaseConnection dbc : expired) {
+			evictedCount.incrementAndGet();
+			closeConnection(dbc);
+		}
+	}
+
+	/**
+	 *
+	 */
+	protected DatabaseConnection openConnection() throws SQLException {
+		DatabaseConnection result = new DatabaseConnection(name + dbcId.getAndIncrement(), factory.openConnection());
+		createdCount.incrementAndGet();
+		SysLog.logCreatedObject("DatabaseConnection", result.getName());
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	protected void closeConnection(DatabaseConnection dbc) {
+		try {
+			dbc.close();
+		} catch (SQLException ex) {
+			SysLog.logThrowable(ex);
+		}
+	}
+
+	/**
+	 * Rolls back any open transaction so the next borrower starts clean, then validates.
+	 */
+	protected boolean resetConnection(DatabaseConnection dbc) {
+		try {
+			Connection cn = dbc.getRdbmsConnection();
+			if (cn == null || cn.isClosed()) {
+				return false;
+			}
+
+			if (!cn.getAutoCommit()) {
+				cn.rollback();
+				cn.setAutoCommit(true);
+			}
+		} catch (SQLException ex) {
+			SysLog.logThrowable(ex);
+			invalidCount.incrementAndGet();
+			return false;
+		}
+
+		if (!isValid(dbc)) {
+			invalidCount.incrementAndGet();
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 *
+	 */
+	protected boolean isValid(DatabaseConnection dbc) {
+		try {
+			Connection cn = dbc.getRdbmsConnection();
+			return (cn != null) && cn.isValid(validationTimeout);
+		} catch (SQLException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 *
+	 */
+	protected boolean isEvictable(DatabaseConnection dbc, long now) {
+		return isExpired(dbc, now) || ((idleTimeout > 0) && (now - dbc.getLastUsedTime() > idleTimeout));
+	}
+
+	/**
+	 *
+	 */
+	protected boolean isExpired(DatabaseConnection dbc, long now) {
+		return (maxLifetime > 0) && (now - dbc.getCreationTime() > maxLifetime);
+	}
+
+	/**
+	 *
+	 */
+	protected void recordWaitTime(long millis) {
+		int i = 0;
+		while ((i < WAIT_TIME_BUCKETS.length) && (millis >= WAIT_TIME_BUCKETS[i])) {
+			i++;
+		}
+		waitTimes.incrementAndGet(i);
+	}
+
+	/**
+	 * Logs every connection held longer than the leak threshold, once per borrow.
+	 */
+	public void logLeakedConnections() {
+		if (leakThreshold <= 0) {
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		for (Map.Entry<DatabaseConnection, Borrow> entry : borrowed.entrySet()) {
+			Borrow borrow = entry.getValue();
+			if ((now - borrow.time > leakThreshold) && borrow.markReported()) {
+				leakCount.incrementAndGet();
+				SysLog.logSysError("possible database connection leak: " + entry.getKey().getName()
+					+ " held by " + borrow.threadName + " for " + (now - borrow.time) + "ms");
+				SysLog.logThrowable(borrow.trace);
+			}
+		}
+	}
+
+	/**
+	 *
+	 */
+	public Stats getStats() {
+		logLeakedConnections();
+
+		int idleSize;
+		synchronized (this) {
+			idleSize = idle.size();
+		}
+
+		long[] histogram = new long[waitTimes.length()];
+		for (int i = 0; i < histogram.length; i++) {
+			histogram[i] = waitTimes.get(i);
+		}
+
+		return new Stats(name, maxSize, borrowed.size(), idleSize, permits.getQueueLength(), histogram,
+			borrowCount.get(), timeoutCount.get(), createdCount.get(), evictedCount.get(), invalidCount.get(), leakCount.get());
+	}
+
+	/**
+	 * @methodtype assertion
+	 */
+	protected void assertIsNotShutDown() throws SQLException {
+		if (isShutDown) {
+			throw new SQLException("database connection pool " + name + " is shut down");
+		}
+	}
+
+	/**
+	 * Bookkeeping for a borrowed connection
+	 */
+	protected static class Borrow {
+
+		protected final long time = System.currentTimeMillis();
+		protected final String threadName = Thread.currentThread().getName();
+		protected final Throwable trace = new Throwable("database connection borrowed here");
+		protected final AtomicBoolean isReported = new AtomicBoolean(false);
+
+		protected boolean markReported() {
+			return isReported.compareAndSet(false, true);
+		}
+	}
+
+	/**
+	 * An immutable snapshot of the pool's state
+	 */
+	public static class Stats {
+
+		protected final String name;
+		protected final int maxSize;
+		protected final int active;
+		protected final int idle;
+		protected final int waiters;
+		protected final long[] waitTimeHistogram;
+		protected final long borrows;
+		protected final long timeouts;
+		protected final long created;
+		protected final long evicted;
+		protected final long invalid;
+		protected final long leaks;
+
+		/**
+		 *
+		 */
+		public Stats(String myName, int myMaxSize, int myActive, int myIdle, int myWaiters, long[] myWaitTimeHistogram,
+				long myBorrows, long myTimeouts, long myCreated, long myEvicted, long myInvalid, long myLeaks) {
+			name = myName;
+			maxSize = myMaxSize;
+			active = myActive;
+			idle = myIdle;
+			waiters = myWaiters;
+			waitTimeHistogram = myWaitTimeHistogram;
+			borrows = myBorrows;
+			timeouts = myTimeouts;
+			created = myCreated;
+			evicted = myEvicted;
+			invalid = myInvalid;
+			leaks = myLeaks;
+		}
+
+		public String getName() { return name; }
+		public int getMaxSize() { return maxSize; }
+		public int getActive() { return active; }
+		public int getIdle() { return idle; }
+		public int getWaiters() { return waiters; }
+		public long getBorrows() { return borrows; }
+		public long getTimeouts() { return timeouts; }
+		public long getCreated() { return created; }
+		public long getEvicted() { return evicted; }
+		public long getInvalid() { return invalid; }
+		public long getLeaks() { return leaks; }
+
+		/**
+		 * Counts per WAIT_TIME_BUCKETS entry, plus one trailing count for longer waits
+		 */
+		public long[] getWaitTimeHistogram() {
+			return waitTimeHistogram.clone();
+		}
+
+		/**
+		 *
+		 */
+		public String getWaitTimeHistogramAsString() {
+			StringBuilder result = new StringBuilder();
+			for (int i = 0; i < waitTimeHistogram.length; i++) {
+				if (i > 0) {
+					result.append(", ");
+				}
+				result.append(i < WAIT_TIME_BUCKETS.length ? "<" + WAIT_TIME_BUCKETS[i] : ">=" + WAIT_TIME_BUCKETS[i - 1]);
+				result.append("ms: ").append(waitTimeHistogram[i]);
+			}
+			return result.toString();
+		}
+
+		/**
+		 *
+		 */
+		public String toString() {
+			return name + " [active=" + active + ", idle=" + idle + ", max=" + maxSize + ", waiters=" + waiters
+				+ ", borrows=" + borrows + ", timeouts=" + timeouts + ", created=" + created + ", evicted=" + evicted
+				+ ", invalid=" + invalid + ", leaks=" + leaks + "]";
+		}
+	}
+
+}
@@ -0,0 +1,479 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.io.*;
+import java.math.*;
+import java.net.*;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * A PreparedStatement that passes every call on to another one; subclasses override the calls they are interested in.
+ */
+public class DelegatingPreparedStatement implements PreparedStatement {
+
+	/**
+	 *
+	 */
+	protected final PreparedStatement stmt;
+
+	/**
+	 *
+	 */
+	public DelegatingPreparedStatement(PreparedStatement myStmt) {
+		stmt = myStmt;
+	}
+
+	/**
+	 * The statement passed on to, for logging
+	 */
+	public String toString() {
+		return stmt.toString();
+	}
+
+	public ResultSet executeQuery() throws SQLException {
+		return stmt.executeQuery();
+	}
+
+	public int executeUpdate() throws SQLException {
+		return stmt.executeUpdate();
+	}
+
+	public void setNull(int parameterIndex, int sqlType) throws SQLException {
+		stmt.setNull(parameterIndex, sqlType);
+	}
+
+	public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+		stmt.setBoolean(parameterIndex, x);
+	}
+
+	public void setByte(int parameterIndex, byte x) throws SQLException {
+		stmt.setByte(parameterIndex, x);
+	}
+
+	public void setShort(int parameterIndex, short x) throws SQLException {
+		stmt.setShort(parameterIndex, x);
+	}
+
+	public void setInt(int parameterIndex, int x) throws SQLException {
+		stmt.setInt(parameterIndex, x);
+	}
+
+	public void setLong(int parameterIndex, long x) throws SQLException {
+		stmt.setLong(parameterIndex, x);
+	}
+
+	public void setFloat(int parameterIndex, float x) throws SQLException {
+		stmt.setFloat(parameterIndex, x);
+	}
+
+	public void setDouble(int parameterIndex, double x) throws SQLException {
+		stmt.setDouble(parameterIndex, x);
+	}
+
+	public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+		stmt.setBigDecimal(parameterIndex, x);
+	}
+
+	public void setString(int parameterIndex, String x) throws SQLException {
+		stmt.setString(parameterIndex, x);
+	}
+
+	public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+		stmt.setBytes(parameterIndex, x);
+	}
+
+	public void setDate(int parameterIndex, java.sql.Date x) throws SQLException {
+		stmt.setDate(parameterIndex, x);
+	}
+
+	public void setTime(int parameterIndex, java.sql.Time x) throws SQLException {
+		stmt.setTime(parameterIndex, x);
+	}
+
+	public void setTimestamp(int parameterIndex, java.sql.Timestamp x) throws SQLException {
+		stmt.setTimestamp(parameterIndex, x);
+	}
+
+	public void setAsciiStream(int parameterIndex, java.io.InputStream x, int length) throws SQLException {
+		stmt.setAsciiStream(parameterIndex, x, length);
+	}
+
+	@SuppressWarnings("deprecation")
+	public void setUnicodeStream(int parameterIndex, java.io.InputStream x, int length) throws SQLException {
+		stmt.setUnicodeStream(parameterIndex, x, length);
+	}
+
+	public void setBinaryStream(int parameterIndex, java.io.InputStream x, int length) throws SQLException {
+		stmt.setBinaryStream(parameterIndex, x, length);
+	}
+
+	public void clearParameters() throws SQLException {
+		stmt.clearParameters();
+	}
+
+	public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+		stmt.setObject(parameterIndex, x, targetSqlType);
+	}
+
+	public void setObject(int parameterIndex, Object x) throws SQLException {
+		stmt.setObject(parameterIndex, x);
+	}
+
+	public boolean execute() throws SQLException {
+		return stmt.execute();
+	}
+
+	public void addBatch() throws SQLException {
+		stmt.addBatch();
+	}
+
+	public void setCharacterStream(int parameterIndex, java.io.Reader reader, int length) throws SQLException {
+		stmt.setCharacterStream(parameterIndex, reader, length);
+	}
+
+	public void setRef(int parameterIndex, Ref x) throws SQLException {
+		stmt.setRef(parameterIndex, x);
+	}
+
+	public void setBlob(int parameterIndex, Blob x) throws SQLException {
+		stmt.setBlob(parameterIndex, x);
+	}
+
+	public void setClob(int parameterIndex, Clob x) throws SQLException {
+		stmt.setClob(parameterIndex, x);
+	}
+
+	public void setArray(int parameterIndex, Array x) throws SQLException {
+		stmt.setArray(parameterIndex, x);
+	}
+
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return stmt.getMetaData();
+	}
+
+	public void setDate(int parameterIndex, java.sql.Date x, Calendar cal) throws SQLException {
+		stmt.setDate(parameterIndex, x, cal);
+	}
+
+	public void setTime(int parameterIndex, java.sql.Time x, Calendar cal) throws SQLException {
+		stmt.setTime(parameterIndex, x, cal);
+	}
+
+	public void setTimestamp(int parameterIndex, java.sql.Timestamp x, Calendar cal) throws SQLException {
+		stmt.setTimestamp(parameterIndex, x, cal);
+	}
+
+	public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+		stmt.setNull(parameterIndex, sqlType, typeName);
+	}
+
+	public void setURL(int parameterIndex, java.net.URL x) throws SQLException {
+		stmt.setURL(parameterIndex, x);
+	}
+
+	public ParameterMetaData getParameterMetaData() throws SQLException {
+		return stmt.getParameterMetaData();
+	}
+
+	public void setRowId(int parameterIndex, RowId x) throws SQLException {
+		stmt.setRowId(parameterIndex, x);
+	}
+
+	public void setNString(int parameterIndex, String value) throws SQLException {
+		stmt.setNString(parameterIndex, value);
+	}
+
+	public void setNCharacterStream(int parameterIndex, Reader value, long length) throws SQLException {
+		stmt.setNCharacterStream(parameterIndex, value, length);
+	}
+
+	public void setNClob(int parameterIndex, NClob value) throws SQLException {
+		stmt.setNClob(parameterIndex, value);
+	}
+
+	public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+		stmt.setClob(parameterIndex, reader, length);
+	}
+
+	public void setBlob(int parameterIndex, InputStream inputStream, long length) throws SQLException {
+		stmt.setBlob(parameterIndex, inputStream, length);
+	}
+
+	public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+		stmt.setNClob(parameterIndex, reader, length);
+	}
+
+	public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+		stmt.setSQLXML(parameterIndex, xmlObject);
+	}
+
+	public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+		stmt.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+	}
+
+	public void setAsciiStream(int parameterIndex, java.io.InputStream x, long length) throws SQLException {
+		stmt.setAsciiStream(parameterIndex, x, length);
+	}
+
+	public void setBinaryStream(int parameterIndex, java.io.InputStream x, long length) throws SQLException {
+		stmt.setBinaryStream(parameterIndex, x, length);
+	}
+
+	public void setCharacterStream(int parameterIndex, java.io.Reader reader, long length) throws SQLException {
+		stmt.setCharacterStream(parameterIndex, reader, length);
+	}
+
+	public void setAsciiStream(int parameterIndex, java.io.InputStream x) throws SQLException {
+		stmt.setAsciiStream(parameterIndex, x);
+	}
+
+	public void setBinaryStream(int parameterIndex, java.io.InputStream x) throws SQLException {
+		stmt.setBinaryStream(parameterIndex, x);
+	}
+
+	public void setCharacterStream(int parameterIndex, java.io.Reader reader) throws SQLException {
+		stmt.setCharacterStream(parameterIndex, reader);
+	}
+
+	public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+		stmt.setNCharacterStream(parameterIndex, value);
+	}
+
+	public void setClob(int parameterIndex, Reader reader) throws SQLException {
+		stmt.setClob(parameterIndex, reader);
+	}
+
+	public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+		stmt.setBlob(parameterIndex, inputStream);
+	}
+
+	public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+		stmt.setNClob(parameterIndex, reader);
+	}
+
+	public void setObject(int parameterIndex, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException {
+		stmt.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+	}
+
+	public void setObject(int parameterIndex, Object x, SQLType targetSqlType) throws SQLException {
+		stmt.setObject(parameterIndex, x, targetSqlType);
+	}
+
+	public long executeLargeUpdate() throws SQLException {
+		return stmt.executeLargeUpdate();
+	}
+
+	public ResultSet executeQuery(String sql) throws SQLException {
+		return stmt.executeQuery(sql);
+	}
+
+	public int executeUpdate(String sql) throws SQLException {
+		return stmt.executeUpdate(sql);
+	}
+
+	public void close() throws SQLException {
+		stmt.close();
+	}
+
+	public int getMaxFieldSize() throws SQLException {
+		return stmt.getMaxFieldSize();
+	}
+
+	public void setMaxFieldSize(int max) throws SQLException {
+		stmt.setMaxFieldSize(max);
+	}
+
+	public int getMaxRows() throws SQLException {
+		return stmt.getMaxRows();
+	}
+
+	public void setMaxRows(int max) throws SQLException {
+		stmt.setMaxRows(max);
+	}
+
+	public void setEscapeProcessing(boolean enable) throws SQLException {
+		stmt.setEscapeProcessing(enable);
+	}
+
+	public int getQueryTimeout() throws SQLException {
+		return stmt.getQueryTimeout();
+	}
+
+	public void setQueryTimeout(int seconds) throws SQLException {
+		stmt.setQueryTimeout(seconds);
+	}
+
+	public void cancel() throws SQLException {
+		stmt.cancel();
+	}
+
+	public SQLWarning getWarnings() throws SQLException {
+		return stmt.getWarnings();
+	}
+
+	public void clearWarnings() throws SQLException {
+		stmt.clearWarnings();
+	}
+
+	public void setCursorName(String name) throws SQLException {
+		stmt.setCursorName(name);
+	}
+
+	public boolean execute(String sql) throws SQLException {
+		return stmt.execute(sql);
+	}
+
+	public ResultSet getResultSet() throws SQLException {
+		return stmt.getResultSet();
+	}
+
+	public int getUpdateCount() throws SQLException {
+		return stmt.getUpdateCount();
+	}
+
+	public boolean getMoreResults() throws SQLException {
+		return stmt.getMoreResults();
+	}
+
+	public void setFetchDirection(int direction) throws SQLException {
+		stmt.setFetchDirection(direction);
+	}
+
+	public int getFetchDirection() throws SQLException {
+		return stmt.getFetchDirection();
+	}
+
+	public void setFetchSize(int rows) throws SQLException {
+		stmt.setFetchSize(rows);
+	}
+
+	public int getFetchSize() throws SQLException {
+		return stmt.getFetchSize();
+	}
+
+	public int getResultSetConcurrency() throws SQLException {
+		return stmt.getResultSetConcurrency();
+	}
+
+	public int getResultSetType() throws SQLException {
+		return stmt.getResultSetType();
+	}
+
+	public void addBatch(String sql) throws SQLException {
+		stmt.addBatch(sql);
+	}
+
+	public void clearBatch() throws SQLException {
+		stmt.clearBatch();
+	}
+
+	public int[] executeBatch() throws SQLException {
+		return stmt.executeBatch();
+	}
+
+	public Connection getConnection() throws SQLException {
+		return stmt.getConnection();
+	}
+
+	public boolean getMoreResults(int current) throws SQLException {
+		return stmt.getMoreResults(current);
+	}
+
+	public ResultSet getGeneratedKeys() throws SQLException {
+		return stmt.getGeneratedKeys();
+	}
+
+	public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		return stmt.executeUpdate(sql, autoGeneratedKeys);
+	}
+
+	public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		return stmt.executeUpdate(sql, columnIndexes);
+	}
+
+	public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+		return stmt.executeUpdate(sql, columnNames);
+	}
+
+	public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+		return stmt.execute(sql, autoGeneratedKeys);
+	}
+
+	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+		return stmt.execute(sql, columnIndexes);
+	}
+
+	public boolean execute(String sql, String[] columnNames) throws SQLException {
+		return stmt.execute(sql, columnNames);
+	}
+
+	public int getResultSetHoldability() throws SQLException {
+		return stmt.getResultSetHoldability();
+	}
+
+	public boolean isClosed() throws SQLException {
+		return stmt.isClosed();
+	}
+
+	public void setPoolable(boolean poolable) throws SQLException {
+		stmt.setPoolable(poolable);
+	}
+
+	public boolean isPoolable() throws SQLException {
+		return stmt.isPoolable();
+	}
+
+	public void closeOnCompletion() throws SQLException {
+		stmt.closeOnCompletion();
+	}
+
+	public boolean isCloseOnCompletion() throws SQLException {
+		return stmt.isCloseOnCompletion();
+	}
+
+	public long getLargeUpdateCount() throws SQLException {
+		return stmt.getLargeUpdateCount();
+	}
+
+	public void setLargeMaxRows(long max) throws SQLException {
+		stmt.setLargeMaxRows(max);
+	}
+
+	public long getLargeMaxRows() throws SQLException {
+		return stmt.getLargeMaxRows();
+	}
+
+	public long[] executeLargeBatch() throws SQLException {
+		return stmt.executeLargeBatch();
+	}
+
+	public long executeLargeUpdate(String sql) throws SQLException {
+		return stmt.executeLargeUpdate(sql);
+	}
+
+	public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		return stmt.executeLargeUpdate(sql, autoGeneratedKeys);
+	}
+
+	public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		return stmt.executeLargeUpdate(sql, columnIndexes);
+	}
+
+	public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+		return stmt.executeLargeUpdate(sql, columnNames);
+	}
+
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		return stmt.unwrap(iface);
+	}
+
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return stmt.isWrapperFor(iface);
+	}
+
+}
@@ -0,0 +1,822 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.io.*;
+import java.math.*;
+import java.net.*;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * A ResultSet that passes every call on to another one; subclasses override the calls they are interested in.
+ */
+public class DelegatingResultSet implements ResultSet {
+
+	/**
+	 *
+	 */
+	protected final ResultSet rset;
+
+	/**
+	 *
+	 */
+	public DelegatingResultSet(ResultSet myRset) {
+		rset = myRset;
+	}
+
+	/**
+	 *
+	 */
+	public String toString() {
+		return rset.toString();
+	}
+
+	public boolean next() throws SQLException {
+		return rset.next();
+	}
+
+	public void close() throws SQLException {
+		rset.close();
+	}
+
+	public boolean wasNull() throws SQLException {
+		return rset.wasNull();
+	}
+
+	public String getString(int columnIndex) throws SQLException {
+		return rset.getString(columnIndex);
+	}
+
+	public boolean getBoolean(int columnIndex) throws SQLException {
+		return rset.getBoolean(columnIndex);
+	}
+
+	public byte getByte(int columnIndex) throws SQLException {
+		return rset.getByte(columnIndex);
+	}
+
+	public short getShort(int columnIndex) throws SQLException {
+		return rset.getShort(columnIndex);
+	}
+
+	public int getInt(int columnIndex) throws SQLException {
+		return rset.getInt(columnIndex);
+	}
+
+	public long getLong(int columnIndex) throws SQLException {
+		return rset.getLong(columnIndex);
+	}
+
+	public float getFloat(int columnIndex) throws SQLException {
+		return rset.getFloat(columnIndex);
+	}
+
+	public double getDouble(int columnIndex) throws SQLException {
+		return rset.getDouble(columnIndex);
+	}
+
+	@SuppressWarnings("deprecation")
+	public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+		return rset.getBigDecimal(columnIndex, scale);
+	}
+
+	public byte[] getBytes(int columnIndex) throws SQLException {
+		return rset.getBytes(columnIndex);
+	}
+
+	public java.sql.Date getDate(int columnIndex) throws SQLException {
+		return rset.getDate(columnIndex);
+	}
+
+	public java.sql.Time getTime(int columnIndex) throws SQLException {
+		return rset.getTime(columnIndex);
+	}
+
+	public java.sql.Timestamp getTimestamp(int columnIndex) throws SQLException {
+		return rset.getTimestamp(columnIndex);
+	}
+
+	public java.io.InputStream getAsciiStream(int columnIndex) throws SQLException {
+		return rset.getAsciiStream(columnIndex);
+	}
+
+	@SuppressWarnings("deprecation")
+	public java.io.InputStream getUnicodeStream(int columnIndex) throws SQLException {
+		return rset.getUnicodeStream(columnIndex);
+	}
+
+	public java.io.InputStream getBinaryStream(int columnIndex) throws SQLException {
+		return rset.getBinaryStream(columnIndex);
+	}
+
+	public String getString(String columnLabel) throws SQLException {
+		return rset.getString(columnLabel);
+	}
+
+	public boolean getBoolean(String columnLabel) throws SQLException {
+		return rset.getBoolean(columnLabel);
+	}
+
+	public byte getByte(String columnLabel) throws SQLException {
+		return rset.getByte(columnLabel);
+	}
+
+	public short getShort(String columnLabel) throws SQLException {
+		return rset.getShort(columnLabel);
+	}
+
+	public int getInt(String columnLabel) throws SQLException {
+		return rset.getInt(columnLabel);
+	}
+
+	public long getLong(String columnLabel) throws SQLException {
+		return rset.getLong(columnLabel);
+	}
+
+	public float getFloat(String columnLabel) throws SQLException {
+		return rset.getFloat(columnLabel);
+	}
+
+	public double getDouble(String columnLabel) throws SQLException {
+		return rset.getDouble(columnLabel);
+	}
+
+	@SuppressWarnings("deprecation")
+	public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+		return rset.getBigDecimal(columnLabel, scale);
+	}
+
+	public byte[] getBytes(String columnLabel) throws SQLException {
+		return rset.getBytes(columnLabel);
+	}
+
+	public java.sql.Date getDate(String columnLabel) throws SQLException {
+		return rset.getDate(columnLabel);
+	}
+
+	public java.sql.Time getTime(String columnLabel) throws SQLException {
+		return rset.getTime(columnLabel);
+	}
+
+	public java.sql.Timestamp getTimestamp(String columnLabel) throws SQLException {
+		return rset.getTimestamp(columnLabel);
+	}
+
+	public java.io.InputStream getAsciiStream(String columnLabel) throws SQLException {
+		return rset.getAsciiStream(columnLabel);
+	}
+
+	@SuppressWarnings("deprecation")
+	public java.io.InputStream getUnicodeStream(String columnLabel) throws SQLException {
+		return rset.getUnicodeStream(columnLabel);
+	}
+
+	public java.io.InputStream getBinaryStream(String columnLabel) throws SQLException {
+		return rset.getBinaryStream(columnLabel);
+	}
+
+	public SQLWarning getWarnings() throws SQLException {
+		return rset.getWarnings();
+	}
+
+	public void clearWarnings() throws SQLException {
+		rset.clearWarnings();
+	}
+
+	public String getCursorName() throws SQLException {
+		return rset.getCursorName();
+	}
+
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return rset.getMetaData();
+	}
+
+	public Object getObject(int columnIndex) throws SQLException {
+		return rset.getObject(columnIndex);
+	}
+
+	public Object getObject(String columnLabel) throws SQLException {
+		return rset.getObject(columnLabel);
+	}
+
+	public int findColumn(String columnLabel) throws SQLException {
+		return rset.findColumn(columnLabel);
+	}
+
+	public java.io.Reader getCharacterStream(int columnIndex) throws SQLException {
+		return rset.getCharacterStream(columnIndex);
+	}
+
+	public java.io.Reader getCharacterStream(String columnLabel) throws SQLException {
+		return rset.getCharacterStream(columnLabel);
+	}
+
+	public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+		return rset.getBigDecimal(columnIndex);
+	}
+
+	public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+		return rset.getBigDecimal(columnLabel);
+	}
+
+	public boolean isBeforeFirst() throws SQLException {
+		return rset.isBeforeFirst();
+	}
+
+	public boolean isAfterLast() throws SQLException {
+		return rset.isAfterLast();
+	}
+
+	public boolean isFirst() throws SQLException {
+		return rset.isFirst();
+	}
+
+	public boolean isLast() throws SQLException {
+		return rset.isLast();
+	}
+
+	public void beforeFirst() throws SQLException {
+		rset.beforeFirst();
+	}
+
+	public void afterLast() throws SQLException {
+		rset.afterLast();
+	}
+
+	public boolean first() throws SQLException {
+		return rset.first();
+	}
+
+	public boolean last() throws SQLException {
+		return rset.last();
+	}
+
+	public int getRow() throws SQLException {
+		return rset.getRow();
+	}
+
+	public boolean absolute(int row) throws SQLException {
+		return rset.absolute(row);
+	}
+
+	public boolean relative(int rows) throws SQLException {
+		return rset.relative(rows);
+	}
+
+	public boolean previous() throws SQLException {
+		return rset.previous();
+	}
+
+	public void setFetchDirection(int direction) throws SQLException {
+		rset.setFetchDirection(direction);
+	}
+
+	public int getFetchDirection() throws SQLException {
+		return rset.getFetchDirection();
+	}
+
+	public void setFetchSize(int rows) throws SQLException {
+		rset.setFetchSize(rows);
+	}
+
+	public int getFetchSize() throws SQLException {
+		return rset.getFetchSize();
+	}
+
+	public int getType() throws SQLException {
+		return rset.getType();
+	}
+
+	public int getConcurrency() throws SQLException {
+		return rset.getConcurrency();
+	}
+
+	public boolean rowUpdated() throws SQLException {
+		return rset.rowUpdated();
+	}
+
+	public boolean rowInserted() throws SQLException {
+		return rset.rowInserted();
+	}
+
+	public boolean rowDeleted() throws SQLException {
+		return rset.rowDeleted();
+	}
+
+	public void updateNull(int columnIndex) throws SQLException {
+		rset.updateNull(columnIndex);
+	}
+
+	public void updateBoolean(int columnIndex, boolean x) throws SQLException {
+		rset.updateBoolean(columnIndex, x);
+	}
+
+	public void updateByte(int columnIndex, byte x) throws SQLException {
+		rset.updateByte(columnIndex, x);
+	}
+
+	public void updateShort(int columnIndex, short x) throws SQLException {
+		rset.updateShort(columnIndex, x);
+	}
+
+	public void updateInt(int columnIndex, int x) throws SQLException {
+		rset.updateInt(columnIndex, x);
+	}
+
+	public void updateLong(int columnIndex, long x) throws SQLException {
+		rset.updateLong(columnIndex, x);
+	}
+
+	public void updateFloat(int columnIndex, float x) throws SQLException {
+		rset.updateFloat(columnIndex, x);
+	}
+
+	public void updateDouble(int columnIndex, double x) throws SQLException {
+		rset.updateDouble(columnIndex, x);
+	}
+
+	public void updateBigDecimal(int columnIndex, BigDecimal x) throws SQLException {
+		rset.updateBigDecimal(columnIndex, x);
+	}
+
+	public void updateString(int columnIndex, String x) throws SQLException {
+		rset.updateString(columnIndex, x);
+	}
+
+	public void updateBytes(int columnIndex, byte[] x) throws SQLException {
+		rset.updateBytes(columnIndex, x);
+	}
+
+	public void updateDate(int columnIndex, java.sql.Date x) throws SQLException {
+		rset.updateDate(columnIndex, x);
+	}
+
+	public void updateTime(int columnIndex, java.sql.Time x) throws SQLException {
+		rset.updateTime(columnIndex, x);
+	}
+
+	public void updateTimestamp(int columnIndex, java.sql.Timestamp x) throws SQLException {
+		rset.updateTimestamp(columnIndex, x);
+	}
+
+	public void updateAsciiStream(int columnIndex, java.io.InputStream x, int length) throws SQLException {
+		rset.updateAsciiStream(columnIndex, x, length);
+	}
+
+	public void updateBinaryStream(int columnIndex, java.io.InputStream x, int length) throws SQLException {
+		rset.updateBinaryStream(columnIndex, x, length);
+	}
+
+	public void updateCharacterStream(int columnIndex, java.io.Reader x, int length) throws SQLException {
+		rset.updateCharacterStream(columnIndex, x, length);
+	}
+
+	public void updateObject(int columnIndex, Object x, int scaleOrLength) throws SQLException {
+		rset.updateObject(columnIndex, x, scaleOrLength);
+	}
+
+	public void updateObject(int columnIndex, Object x) throws SQLException {
+		rset.updateObject(columnIndex, x);
+	}
+
+	public void updateNull(String columnLabel) throws SQLException {
+		rset.updateNull(columnLabel);
+	}
+
+	public void updateBoolean(String columnLabel, boolean x) throws SQLException {
+		rset.updateBoolean(columnLabel, x);
+	}
+
+	public void updateByte(String columnLabel, byte x) throws SQLException {
+		rset.updateByte(columnLabel, x);
+	}
+
+	public void updateShort(String columnLabel, short x) throws SQLException {
+		rset.updateShort(columnLabel, x);
+	}
+
+	public void updateInt(String columnLabel, int x) throws SQLException {
+		rset.updateInt(columnLabel, x);
+	}
+
+	public void updateLong(String columnLabel, long x) throws SQLException {
+		rset.updateLong(columnLabel, x);
+	}
+
+	public void updateFloat(String columnLabel, float x) throws SQLException {
+		rset.updateFloat(columnLabel, x);
+	}
+
+	public void updateDouble(String columnLabel, double x) throws SQLException {
+		rset.updateDouble(columnLabel, x);
+	}
+
+	public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException {
+		rset.updateBigDecimal(columnLabel, x);
+	}
+
+	public void updateString(String columnLabel, String x) throws SQLException {
+		rset.updateString(columnLabel, x);
+	}
+
+	public void updateBytes(String columnLabel, byte[] x) throws SQLException {
+		rset.updateBytes(columnLabel, x);
+	}
+
+	public void updateDate(String columnLabel, java.sql.Date x) throws SQLException {
+		rset.updateDate(columnLabel, x);
+	}
+
+	public void updateTime(String columnLabel, java.sql.Time x) throws SQLException {
+		rset.updateTime(columnLabel, x);
+	}
+
+	public void updateTimestamp(String columnLabel, java.sql.Timestamp x) throws SQLException {
+		rset.updateTimestamp(columnLabel, x);
+	}
+
+	public void updateAsciiStream(String columnLabel, java.io.InputStream x, int length) throws SQLException {
+		rset.updateAsciiStream(columnLabel, x, length);
+	}
+
+	public void updateBinaryStream(String columnLabel, java.io.InputStream x, int length) throws SQLException {
+		rset.updateBinaryStream(columnLabel, x, length);
+	}
+
+	public void updateCharacterStream(String columnLabel, java.io.Reader reader, int length) throws SQLException {
+		rset.updateCharacterStream(columnLabel, reader, length);
+	}
+
+	public void updateObject(String columnLabel, Object x, int scaleOrLength) throws SQLException {
+		rset.updateObject(columnLabel, x, scaleOrLength);
+	}
+
+	public void updateObject(String columnLabel, Object x) throws SQLException {
+		rset.updateObject(columnLabel, x);
+	}
+
+	public void insertRow() throws SQLException {
+		rset.insertRow();
+	}
+
+	public void updateRow() throws SQLException {
+		rset.updateRow();
+	}
+
+	public void deleteRow() throws SQLException {
+		rset.deleteRow();
+	}
+
+	public void refreshRow() throws SQLException {
+		rset.refreshRow();
+	}
+
+	public void cancelRowUpdates() throws SQLException {
+		rset.cancelRowUpdates();
+	}
+
+	public void moveToInsertRow() throws SQLException {
+		rset.moveToInsertRow();
+	}
+
+	public void moveToCurrentRow() throws SQLException {
+		rset.moveToCurrentRow();
+	}
+
+	public Statement getStatement() throws SQLException {
+		return rset.getStatement();
+	}
+
+	public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
+		return rset.getObject(columnIndex, map);
+	}
+
+	public Ref getRef(int columnIndex) throws SQLException {
+		return rset.getRef(columnIndex);
+	}
+
+	public Blob getBlob(int columnIndex) throws SQLException {
+		return rset.getBlob(columnIndex);
+	}
+
+	public Clob getClob(int columnIndex) throws SQLException {
+		return rset.getClob(columnIndex);
+	}
+
+	public Array getArray(int columnIndex) throws SQLException {
+		return rset.getArray(columnIndex);
+	}
+
+	public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
+		return rset.getObject(columnLabel, map);
+	}
+
+	public Ref getRef(String columnLabel) throws SQLException {
+		return rset.getRef(columnLabel);
+	}
+
+	public Blob getBlob(String columnLabel) throws SQLException {
+		return rset.getBlob(columnLabel);
+	}
+
+	public Clob getClob(String columnLabel) throws SQLException {
+		return rset.getClob(columnLabel);
+	}
+
+	public Array getArray(String columnLabel) throws SQLException {
+		return rset.getArray(columnLabel);
+	}
+
+	public java.sql.Date getDate(int columnIndex, Calendar cal) throws SQLException {
+		return rset.getDate(columnIndex, cal);
+	}
+
+	public java.sql.Date getDate(String columnLabel, Calendar cal) throws SQLException {
+		return rset.getDate(columnLabel, cal);
+	}
+
+	public java.sql.Time getTime(int columnIndex, Calendar cal) throws SQLException {
+		return rset.getTime(columnIndex, cal);
+	}
+
+	public java.sql.Time getTime(String columnLabel, Calendar cal) throws SQLException {
+		return rset.getTime(columnLabel, cal);
+	}
+
+	public java.sql.Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
+		return rset.getTimestamp(columnIndex, cal);
+	}
+
+	public java.sql.Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {
+		return rset.getTimestamp(columnLabel, cal);
+	}
+
+	public java.net.URL getURL(int columnIndex) throws SQLException {
+		return rset.getURL(columnIndex);
+	}
+
+	public java.net.URL getURL(String columnLabel) throws SQLException {
+		return rset.getURL(columnLabel);
+	}
+
+	public void updateRef(int columnIndex, java.sql.Ref x) throws SQLException {
+		rset.updateRef(columnIndex, x);
+	}
+
+	public void updateRef(String columnLabel, java.sql.Ref x) throws SQLException {
+		rset.updateRef(columnLabel, x);
+	}
+
+	public void updateBlob(int columnIndex, java.sql.Blob x) throws SQLException {
+		rset.updateBlob(columnIndex, x);
+	}
+
+	public void updateBlob(String columnLabel, java.sql.Blob x) throws SQLException {
+		rset.updateBlob(columnLabel, x);
+	}
+
+	public void updateClob(int columnIndex, java.sql.Clob x) throws SQLException {
+		rset.updateClob(columnIndex, x);
+	}
+
+	public void updateClob(String columnLabel, java.sql.Clob x) throws SQLException {
+		rset.updateClob(columnLabel, x);
+	}
+
+	public void updateArray(int columnIndex, java.sql.Array x) throws SQLException {
+		rset.updateArray(columnIndex, x);
+	}
+
+	public void updateArray(String columnLabel, java.sql.Array x) throws SQLException {
+		rset.updateArray(columnLabel, x);
+	}
+
+	public RowId getRowId(int columnIndex) throws SQLException {
+		return rset.getRowId(columnIndex);
+	}
+
+	public RowId getRowId(String columnLabel) throws SQLException {
+		return rset.getRowId(columnLabel);
+	}
+
+	public void updateRowId(int columnIndex, RowId x) throws SQLException {
+		rset.updateRowId(columnIndex, x);
+	}
+
+	public void updateRowId(String columnLabel, RowId x) throws SQLException {
+		rset.updateRowId(columnLabel, x);
+	}
+
+	public int getHoldability() throws SQLException {
+		return rset.getHoldability();
+	}
+
+	public boolean isClosed() throws SQLException {
+		return rset.isClosed();
+	}
+
+	public void updateNString(int columnIndex, String nString) throws SQLException {
+		rset.updateNString(columnIndex, nString);
+	}
+
+	public void updateNString(String columnLabel, String nString) throws SQLException {
+		rset.updateNString(columnLabel, nString);
+	}
+
+	public void updateNClob(int columnIndex, NClob nClob) throws SQLException {
+		rset.updateNClob(columnIndex, nClob);
+	}
+
+	public void updateNClob(String columnLabel, NClob nClob) throws SQLException {
+		rset.updateNClob(columnLabel, nClob);
+	}
+
+	public NClob getNClob(int columnIndex) throws SQLException {
+		return rset.getNClob(columnIndex);
+	}
+
+	public NClob getNClob(String columnLabel) throws SQLException {
+		return rset.getNClob(columnLabel);
+	}
+
+	public SQLXML getSQLXML(int columnIndex) throws SQLException {
+		return rset.getSQLXML(columnIndex);
+	}
+
+	public SQLXML getSQLXML(String columnLabel) throws SQLException {
+		return rset.getSQLXML(columnLabel);
+	}
+
+	public void updateSQLXML(int columnIndex, SQLXML xmlObject) throws SQLException {
+		rset.updateSQLXML(columnIndex, xmlObject);
+	}
+
+	public void updateSQLXML(String columnLabel, SQLXML xmlObject) throws SQLException {
+		rset.updateSQLXML(columnLabel, xmlObject);
+	}
+
+	public String getNString(int columnIndex) throws SQLException {
+		return rset.getNString(columnIndex);
+	}
+
+	public String getNString(String columnLabel) throws SQLException {
+		return rset.getNString(columnLabel);
+	}
+
+	public java.io.Reader getNCharacterStream(int columnIndex) throws SQLException {
+		return rset.getNCharacterStream(columnIndex);
+	}
+
+	public java.io.Reader getNCharacterStream(String columnLabel) throws SQLException {
+		return rset.getNCharacterStream(columnLabel);
+	}
+
+	public void updateNCharacterStream(int columnIndex, java.io.Reader x, long length) throws SQLException {
+		rset.updateNCharacterStream(columnIndex, x, length);
+	}
+
+	public void updateNCharacterStream(String columnLabel, java.io.Reader reader, long length) throws SQLException {
+		rset.updateNCharacterStream(columnLabel, reader, length);
+	}
+
+	public void updateAsciiStream(int columnIndex, java.io.InputStream x, long length) throws SQLException {
+		rset.updateAsciiStream(columnIndex, x, length);
+	}
+
+	public void updateBinaryStream(int columnIndex, java.io.InputStream x, long length) throws SQLException {
+		rset.updateBinaryStream(columnIndex, x, length);
+	}
+
+	public void updateCharacterStream(int columnIndex, java.io.Reader x, long length) throws SQLException {
+		rset.updateCharacterStream(columnIndex, x, length);
+	}
+
+	public void updateAsciiStream(String columnLabel, java.io.InputStream x, long length) throws SQLException {
+		rset.updateAsciiStream(columnLabel, x, length);
+	}
+
+	public void updateBinaryStream(String columnLabel, java.io.InputStream x, long length) throws SQLException {
+		rset.updateBinaryStream(columnLabel, x, length);
+	}
+
+	public void updateCharacterStream(String columnLabel, java.io.Reader reader, long length) throws SQLException {
+		rset.updateCharacterStream(columnLabel, reader, length);
+	}
+
+	public void updateBlob(int columnIndex, InputStream inputStream, long length) throws SQLException {
+		rset.updateBlob(columnIndex, inputStream, length);
+	}
+
+	public void updateBlob(String columnLabel, InputStream inputStream, long length) throws SQLException {
+		rset.updateBlob(columnLabel, inputStream, length);
+	}
+
+	public void updateClob(int columnIndex, Reader reader, long length) throws SQLException {
+		rset.updateClob(columnIndex, reader, length);
+	}
+
+	public void updateClob(String columnLabel, Reader reader, long length) throws SQLException {
+		rset.updateClob(columnLabel, reader, length);
+	}
+
+	public void updateNClob(int columnIndex, Reader reader, long length) throws SQLException {
+		rset.updateNClob(columnIndex, reader, length);
+	}
+
+	public void updateNClob(String columnLabel, Reader reader, long length) throws SQLException {
+		rset.updateNClob(columnLabel, reader, length);
+	}
+
+	public void updateNCharacterStream(int columnIndex, java.io.Reader x) throws SQLException {
+		rset.updateNCharacterStream(columnIndex, x);
+	}
+
+	public void updateNCharacterStream(String columnLabel, java.io.Reader reader) throws SQLException {
+		rset.updateNCharacterStream(columnLabel, reader);
+	}
+
+	public void updateAsciiStream(int columnIndex, java.io.InputStream x) throws SQLException {
+		rset.updateAsciiStream(columnIndex, x);
+	}
+
+	public void updateBinaryStream(int columnIndex, java.io.InputStream x) throws SQLException {
+		rset.updateBinaryStream(columnIndex, x);
+	}
+
+	public void updateCharacterStream(int columnIndex, java.io.Reader x) throws SQLException {
+		rset.updateCharacterStream(columnIndex, x);
+	}
+
+	public void updateAsciiStream(String columnLabel, java.io.InputStream x) throws SQLException {
+		rset.updateAsciiStream(columnLabel, x);
+	}
+
+	public void updateBinaryStream(String columnLabel, java.io.InputStream x) throws SQLException {
+		rset.updateBinaryStream(columnLabel, x);
+	}
+
+	public void updateCharacterStream(String columnLabel, java.io.Reader reader) throws SQLException {
+		rset.updateCharacterStream(columnLabel, reader);
+	}
+
+	public void updateBlob(int columnIndex, InputStream inputStream) throws SQLException {
+		rset.updateBlob(columnIndex, inputStream);
+	}
+
+	public void updateBlob(String columnLabel, InputStream inputStream) throws SQLException {
+		rset.updateBlob(columnLabel, inputStream);
+	}
+
+	public void updateClob(int columnIndex, Reader reader) throws SQLException {
+		rset.updateClob(columnIndex, reader);
+	}
+
+	public void updateClob(String columnLabel, Reader reader) throws SQLException {
+		rset.updateClob(columnLabel, reader);
+	}
+
+	public void updateNClob(int columnIndex, Reader reader) throws SQLException {
+		rset.updateNClob(columnIndex, reader);
+	}
+
+	public void updateNClob(String columnLabel, Reader reader) throws SQLException {
+		rset.updateNClob(columnLabel, reader);
+	}
+
+	public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+		return rset.getObject(columnIndex, type);
+	}
+
+	public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+		return rset.getObject(columnLabel, type);
+	}
+
+	public void updateObject(int columnIndex, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException {
+		rset.updateObject(columnIndex, x, targetSqlType, scaleOrLength);
+	}
+
+	public void updateObject(String columnLabel, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException {
+		rset.updateObject(columnLabel, x, targetSqlType, scaleOrLength);
+	}
+
+	public void updateObject(int columnIndex, Object x, SQLType targetSqlType) throws SQLException {
+		rset.updateObject(columnIndex, x, targetSqlType);
+	}
+
+	public void updateObject(String columnLabel, Object x, SQLType targetSqlType) throws SQLException {
+		rset.updateObject(columnLabel, x, targetSqlType);
+	}
+
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		return rset.unwrap(iface);
+	}
+
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return rset.isWrapperFor(iface);
+	}
+
+}
@@ -0,0 +1,166 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.sql.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Hands out ids from blocks that are reserved in the globals row, so that several Wahlzeit nodes
+ * can share one database without handing out the same id twice (hi/lo allocation).
+ *
+ * A block is reserved with a single UPDATE ... RETURNING; the counter column then holds the highest id
+ * reserved by any node. Within a block, ids are handed out with an atomic increment. Ids left in a block
+ * when the node stops are not used again.
+ */
+public class IdAllocator {
+
+	/**
+	 * Counters, named after their globals column
+	 */
+	public static final String USER_IDS = "last_user_id";
+	public static final String PHOTO_IDS = "last_photo_id";
+	public static final String CASE_IDS = "last_case_id";
+	public static final String COORDINATE_IDS = "last_coordinate_id";
+	public static final String LOCATION_IDS = "last_location_id";
+
+	/**
+	 * Null if ids are handed out from the local counters, e.g. in tests or tools without database
+	 */
+	protected static volatile IdAllocator instance = null;
+
+	/**
+	 *
+	 */
+	public static IdAllocator getInstance() {
+		return instance;
+	}
+
+	/**
+	 *
+	 */
+	public static void setInstance(IdAllocator newInstance) {
+		instance = newInstance;
+	}
+
+	/**
+	 *
+	 */
+	protected final int blockSize;
+
+	/**
+	 * Current block per counter
+	 */
+	protected final ConcurrentHashMap<String, Block> blocks = new ConcurrentHashMap<String, Block>();
+
+	/**
+	 *
+	 */
+	public IdAllocator(int myBlockSize) {
+		blockSize = myBlockSize;
+	}
+
+	/**
+	 *
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Ids come from the block this node reserved last, so the ids a node hands out increase, but not necessarily
+	 * by one, and the ids of several nodes interleave. The id classes take their ids from here if there is an instance.
+	 * @return the next id of counter; never returned before by any node
+	 */
+	public int getNextId(String counter) {
+		Block block = blocks.get(counter);
+		int result = (block == null) ? -1 : block.nextId();
+		while (result < 0) {
+			block = ensureBlock(counter, block);
+			result = block.nextId();
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return highest id this node has reserved of counter, or 0 if none
+	 */
+	public int getHighestReservedId(String counter) {
+		Block block = blocks.get(counter);
+		return (block == null) ? 0 : block.limit;
+	}
+
+	/**
+	 * Replaces exhaustedBlock by a new one, unless another thread did that already
+	 */
+	protected synchronized Block ensureBlock(String counter, Block exhaustedBlock) {
+		Block current = blocks.get(counter);
+		if (current != exhaustedBlock) {
+			return current;
+		}
+
+		try {
+			Block result = reserveBlock(counter);
+			blocks.put(counter, result);
+			return result;
+		} catch (SQLException sex) {
+			SysLog.logThrowable(sex);
+			throw new IllegalStateException("could not reserve ids for " + counter, sex);
+		}
+	}
+
+	/**
+	 * Uses a connection of its own, so that the reservation is committed independently of the caller's work
+	 */
+	protected Block reserveBlock(String counter) throws SQLException {
+		DatabaseConnection dbc = DatabaseConnection.ensureDatabaseConnection();
+		try {
+			// counter is one of the constants above, never user input
+			String query = "UPDATE globals SET " + counter + " = " + counter + " + ? WHERE id = 0 RETURNING " + counter;
+			PreparedStatement stmt = dbc.getReadingStatement(query);
+			stmt.setInt(1, blockSize);
+			SysLog.logQuery(stmt);
+			ResultSet rset = stmt.executeQuery();
+			if (!rset.next()) {
+				throw new SQLException("globals row is missing");
+			}
+
+			int limit = rset.getInt(1);
+			SysLog.logSysInfo("reserved " + counter + " block " + (limit - blockSize + 1) + ".." + limit);
+			return new Block(limit - blockSize + 1, limit);
+		} finally {
+			DatabaseConnection.returnDatabaseConnection(dbc);
+		}
+	}
+
+	/**
+	 * A range of reserved ids
+	 */
+	protected static class Block {
+
+		protected final AtomicInteger next;
+		protected final int limit;
+
+		/**
+		 *
+		 */
+		protected Block(int first, int myLimit) {
+			next = new AtomicInteger(first);
+			limit = myLimit;
+		}
+
+		/**
+		 * @return next id in block, or -1 if it is exhausted
+		 */
+		protected int nextId() {
+			int result = next.getAndIncrement();
+			return (result <= limit) ? result : -1;
+		}
+	}
+
+}
@@ -159,4 +159,18 @@ public class Log {
 		 logger.info(sb.toString());
 	}
 	
+	/**
+	 * 
+	 */
+	public static final boolean isDebugEnabled() {
+		return logger.isDebugEnabled();
+	}
+	
+	/**
+	 * 
+	 */
+	public static final void logDebug(StringBuffer sb) {
+		logger.debug(sb.toString());
+	}
+	
 }
@@ -0,0 +1,34 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+/**
+ * A MergePolicy tells ObjectManager what to do when a Versioned object is saved
+ * but its row has been updated since the object was read.
+ */
+public enum MergePolicy {
+	
+	/**
+	 * MERGE = let the object merge its changes into the newer row (e.g. add up praise), then save
+	 * OVERWRITE = save the object as is over the newer row
+	 * DISCARD = drop the object's changes and take the newer row
+	 */
+	MERGE, OVERWRITE, DISCARD;
+	
+	/**
+	 * @methodtype conversion
+	 */
+	public static MergePolicy getFromString(String myPolicy) throws IllegalArgumentException {
+		for (MergePolicy policy : MergePolicy.values()) {
+			if (policy.name().equalsIgnoreCase(myPolicy)) {
+				return policy;
+			}
+		}
+		
+		throw new IllegalArgumentException("invalid MergePolicy string: " + myPolicy);
+	}
+	
+}
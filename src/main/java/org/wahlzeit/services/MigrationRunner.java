@@ -0,0 +1,249 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.io.File;
+import java.sql.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * Brings the database schema up to date by applying migration scripts in version order.
+ *
+ * Migration scripts live in the migrations subdirectory of the scripts directory and are named
+ * V<version>__<description>.sql; a custom script replaces the default script of the same version.
+ * The versions applied are recorded in the schema_version table. A script runs in one transaction,
+ * unless it builds indexes CONCURRENTLY, which PostgreSQL only allows outside of transactions.
+ * Such a script is run again in full if it was interrupted, so it should use CREATE INDEX CONCURRENTLY
+ * IF NOT EXISTS. An interrupted build leaves an invalid index behind, which IF NOT EXISTS would keep;
+ * it is therefore dropped before the index is built again.
+ *
+ * Nodes starting at the same time take turns through an advisory lock.
+ */
+public class MigrationRunner {
+
+	/**
+	 *
+	 */
+	public static final String MIGRATIONS_DIR_NAME = "migrations";
+
+	/**
+	 *
+	 */
+	protected static final Pattern FILE_NAME_PATTERN = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+	/**
+	 * Index builds that an invalid index of the same name would skip
+	 */
+	protected static final Pattern CONCURRENT_INDEX_PATTERN = Pattern.compile(
+		"CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+CONCURRENTLY\\s+IF\\s+NOT\\s+EXISTS\\s+(\\w+)\\b.*",
+		Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+	/**
+	 * Key of the advisory lock held while migrating
+	 */
+	protected static final long LOCK_KEY = 0x5741484C5A454954L;
+
+	/**
+	 *
+	 */
+	protected final Connection conn;
+	protected final ConfigDir scriptsDir;
+
+	/**
+	 *
+	 */
+	public MigrationRunner(Connection myConn, ConfigDir myScriptsDir) {
+		conn = myConn;
+		scriptsDir = myScriptsDir;
+	}
+
+	/**
+	 * @return number of migrations applied
+	 */
+	public int migrate() throws SQLException {
+		execute("SELECT pg_advisory_lock(" + LOCK_KEY + ")");
+		try {
+			execute("CREATE TABLE IF NOT EXISTS schema_version ("
+				+ "version integer PRIMARY KEY, description text, applied_on bigint, duration bigint)");
+
+			int currentVersion = getCurrentVersion();
+			int result = 0;
+			for (Map.Entry<Integer, File> entry : getMigrations().entrySet()) {
+				if (entry.getKey() > currentVersion) {
+					apply(entry.getKey(), entry.getValue());
+					result++;
+				}
+			}
+
+			SysLog.logSysInfo("schema is at version " + getCurrentVersion() + ", applied " + result + " migrations");
+			return result;
+		} finally {
+			execute("SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+		}
+	}
+
+	/**
+	 * @return highest version applied, 0 if none
+	 */
+	public int getCurrentVersion() throws SQLException {
+		Statement stmt = conn.createStatement();
+		try {
+			ResultSet rset = stmt.executeQuery("SELECT max(version) FROM schema_version");
+			return rset.next() ? rset.getInt(1) : 0;
+		} finally {
+			stmt.close();
+		}
+	}
+
+	/**
+	 * @return migration scripts by version
+	 */
+	public SortedMap<Integer, File> getMigrations() {
+		SortedMap<Integer, File> result = new TreeMap<Integer, File>();
+		for (File file : scriptsDir.listFiles(MIGRATIONS_DIR_NAME)) {
+			Matcher matcher = FILE_NAME_PATTERN.matcher(file.getName());
+			if (matcher.matches()) {
+				result.put(Integer.valueOf(matcher.group(1)), file);
+			} else {
+				SysLog.logSysInfo("migration", file.getName(), "ignored file not named V<version>__<description>.sql");
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	protected void apply(int version, File file) throws SQLException {
+		String script = FileUtil.safelyReadFileAsString(file.getAbsolutePath());
+		Matcher matcher = FILE_NAME_PATTERN.matcher(file.getName());
+		String description = matcher.matches() ? matcher.group(2).replace('_', ' ') : file.getName();
+		boolean isTransactional = !script.toUpperCase(Locale.ROOT).contains("CONCURRENTLY");
+
+		long start = System.nanoTime();
+		boolean wasAutoCommit = conn.getAutoCommit();
+		conn.setAutoCommit(!isTransactional);
+		try {
+			for (String sql : splitStatements(script)) {
+				String indexName = getConcurrentIndexName(sql);
+				if (indexName != null) {
+					dropInvalidIndex(indexName);
+				}
+				execute(sql);
+			}
+
+			long nanos = System.nanoTime() - start;
+			PreparedStatement stmt = conn.prepareStatement(
+				"INSERT INTO schema_version(version, description, applied_on, duration) VALUES(?, ?, ?, ?)");
+			try {
+				stmt.setInt(1, version);
+				stmt.setString(2, description);
+				stmt.setLong(3, System.currentTimeMillis());
+				stmt.setLong(4, nanos / 1000000);
+				stmt.executeUpdate();
+			} finally {
+				stmt.close();
+			}
+
+			if (isTransactional) {
+				conn.commit();
+			}
+
+			QueryStats.forSql("migration " + file.getName()).record(nanos, 0, file.getName());
+			SysLog.logSysInfo("migration", file.getName(), "applied in " + (nanos / 1000000) + "ms");
+		} catch (SQLException ex) {
+			if (isTransactional) {
+				conn.rollback();
+			}
+			SysLog.logSysError("migration " + file.getName() + " failed");
+			throw ex;
+		} finally {
+			conn.setAutoCommit(wasAutoCommit);
+		}
+	}
+
+	/**
+	 * @return name of the index that sql builds CONCURRENTLY IF NOT EXISTS, or null
+	 */
+	public static String getConcurrentIndexName(String sql) {
+		Matcher matcher = CONCURRENT_INDEX_PATTERN.matcher(sql);
+		return matcher.matches() ? matcher.group(1).toLowerCase(Locale.ROOT) : null;
+	}
+
+	/**
+	 * Drops the index named indexName if an interrupted concurrent build left it invalid
+	 */
+	protected void dropInvalidIndex(String indexName) throws SQLException {
+		boolean isInvalid = false;
+		PreparedStatement stmt = conn.prepareStatement(
+			"SELECT 1 FROM pg_index JOIN pg_class ON pg_class.oid = pg_index.indexrelid "
+			+ "WHERE pg_class.relname = ? AND pg_table_is_visible(pg_class.oid) AND NOT pg_index.indisvalid");
+		try {
+			stmt.setString(1, indexName);
+			isInvalid = stmt.executeQuery().next();
+		} finally {
+			stmt.close();
+		}
+
+		if (isInvalid) {
+			SysLog.logSysInfo("migration", indexName, "dropping invalid index left by an interrupted build");
+			execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+		}
+	}
+
+	/**
+	 *
+	 */
+	protected void execute(String sql) throws SQLException {
+		SysLog.logQuery(sql);
+		Statement stmt = conn.createStatement();
+		try {
+			stmt.execute(sql);
+		} finally {
+			stmt.close();
+		}
+	}
+
+	/**
+	 * Splits a script at the semicolons that are not in quotes; -- comments are dropped.
+	 * @return the statements of script
+	 */
+	public static List<String> splitStatements(String script) {
+		List<String> result = new ArrayList<String>();
+		StringBuilder current = new StringBuilder();
+		boolean isInQuotes = false;
+		for (int i = 0; i < script.length(); i++) {
+			char c = script.charAt(i);
+			if (!isInQuotes && (c == '-') && script.startsWith("--", i)) {
+				int end = script.indexOf('\n', i);
+				i = (end < 0) ? script.length() : end;
+				current.append('\n');
+			} else if (!isInQuotes && (c == ';')) {
+				addStatement(result, current);
+				current.setLength(0);
+			} else {
+				if (c == '\'') {
+					isInQuotes = !isInQuotes;
+				}
+				current.append(c);
+			}
+		}
+		addStatement(result, current);
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	protected static void addStatement(List<String> statements, StringBuilder sb) {
+		String statement = sb.toString().trim();
+		if (!statement.isEmpty()) {
+			statements.add(statement);
+		}
+	}
+
+}
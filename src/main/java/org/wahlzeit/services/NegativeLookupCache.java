@@ -0,0 +1,209 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Remembers which keys an ObjectManager does not have to look up in the database, because they do not exist.
+ *
+ * Once installed, a Bloom filter of all existing keys proves absence for most unknown keys.
+ * Keys that get past the filter (false positives) and are not found in the database are remembered
+ * for a short time. Both assume that new rows are only added through the ObjectManager of this node, which calls add;
+ * hence no filter is installed while an IdAllocator is, i.e. while other nodes may add rows.
+ */
+public class NegativeLookupCache {
+
+	/**
+	 * All negative lookup caches, for statistics
+	 */
+	protected static final List<NegativeLookupCache> instances = new CopyOnWriteArrayList<NegativeLookupCache>();
+
+	/**
+	 *
+	 */
+	public static List<NegativeLookupCache> getAll() {
+		return Collections.unmodifiableList(instances);
+	}
+
+	/**
+	 *
+	 */
+	protected final String name;
+
+	/**
+	 * Null until the first filter is installed; until then, every key might exist
+	 */
+	protected volatile BloomFilter filter = null;
+
+	/**
+	 * Receives added keys while a new filter is being filled
+	 */
+	protected volatile BloomFilter pendingFilter = null;
+
+	/**
+	 * Key to time in ms after which it must be looked up again
+	 */
+	protected final ConcurrentHashMap<String, Long> absentKeys = new ConcurrentHashMap<String, Long>();
+
+	/**
+	 * Incremented on every add, so that a lookup running concurrently with an add does not record the key as absent
+	 */
+	protected final AtomicLong addCount = new AtomicLong();
+
+	/**
+	 * Statistics
+	 */
+	protected final LongAdder filterHits = new LongAdder();
+	protected final LongAdder cacheHits = new LongAdder();
+	protected final LongAdder falsePositives = new LongAdder();
+
+	/**
+	 *
+	 */
+	public NegativeLookupCache(String myName) {
+		name = myName;
+		instances.add(this);
+	}
+
+	/**
+	 * @return a filter to fill with all existing keys and then install
+	 */
+	public BloomFilter newFilter(int expectedSize) {
+		double fpp = SysConfig.getNegativeLookupFalsePositiveRate();
+		BloomFilter result = new BloomFilter(Math.max(1024, 2 * expectedSize), fpp);
+		pendingFilter = result;
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	public void installFilter(BloomFilter newFilter) {
+		filter = newFilter;
+		if (pendingFilter == newFilter) {
+			pendingFilter = null;
+		}
+	}
+
+	/**
+	 *
+	 */
+	public boolean hasFilter() {
+		return filter != null;
+	}
+
+	/**
+	 * @return false if key definitely does not exist
+	 */
+	public boolean mightExist(String key) {
+		Long expiry = absentKeys.get(key);
+		if (expiry != null) {
+			if (expiry.longValue() > System.currentTimeMillis()) {
+				cacheHits.increment();
+				return false;
+			}
+			absentKeys.remove(key, expiry);
+		}
+
+		BloomFilter current = filter;
+		if ((current != null) && !current.mightContain(key)) {
+			filterHits.increment();
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return stamp to pass to markAbsent after the lookup
+	 */
+	public long getStamp() {
+		return addCount.get();
+	}
+
+	/**
+	 * Records that the database did not have key, unless a key has been added since stamp was taken
+	 */
+	public void markAbsent(String key, long stamp) {
+		if (filter != null) {
+			falsePositives.increment();
+		}
+
+		int maxSize = SysConfig.getNegativeLookupCacheSize();
+		if (absentKeys.size() >= maxSize) {
+			expireAbsentKeys();
+			if (absentKeys.size() >= maxSize) {
+				return;
+			}
+		}
+
+		absentKeys.put(key, System.currentTimeMillis() + SysConfig.getNegativeLookupTtl());
+		if (addCount.get() != stamp) {
+			absentKeys.remove(key);
+		}
+	}
+
+	/**
+	 *
+	 */
+	public void add(String key) {
+		addCount.incrementAndGet();
+		// pending first: installFilter publishes the filter before it clears pendingFilter
+		BloomFilter pending = pendingFilter;
+		if (pending != null) {
+			pending.add(key);
+		}
+		BloomFilter current = filter;
+		if ((current != null) && (current != pending)) {
+			current.add(key);
+		}
+		absentKeys.remove(key);
+	}
+
+	/**
+	 *
+	 */
+	protected void expireAbsentKeys() {
+		long now = System.currentTimeMillis();
+		for (Iterator<Long> i = absentKeys.values().iterator(); i.hasNext(); ) {
+			if (i.next().longValue() <= now) {
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 *
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return lookups answered by the Bloom filter
+	 */
+	public long getFilterHits() {
+		return filterHits.sum();
+	}
+
+	/**
+	 * @return lookups answered by the remembered absent keys
+	 */
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	/**
+	 * @return keys the Bloom filter let through that did not exist
+	 */
+	public long getFalsePositives() {
+		return falsePositives.sum();
+	}
+
+}
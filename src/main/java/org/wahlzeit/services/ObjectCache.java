@@ -0,0 +1,384 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.lang.ref.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * A thread-safe, size-bounded identity map for the objects of an ObjectManager.
+ *
+ * Eviction follows a generalized CLOCK: every hit raises an entry's frequency (up to a small maximum),
+ * the clock hand lowers it again, and an entry is evicted once the hand finds it at zero.
+ * Dirty objects are pinned and never evicted, so unsaved changes are not lost.
+ *
+ * An evicted object may still be referenced elsewhere, e.g. by a session or a user's photo set.
+ * The cache therefore keeps a weak reference to it and takes it back on the next lookup while it
+ * is alive, so that there is never more than one instance per key.
+ */
+public class ObjectCache<K, V extends Persistent> {
+
+	/**
+	 *
+	 */
+	public static final int MAX_FREQUENCY = 3;
+
+	/**
+	 * All caches, for statistics
+	 */
+	protected static final List<ObjectCache<?, ?>> instances = new CopyOnWriteArrayList<ObjectCache<?, ?>>();
+
+	/**
+	 *
+	 */
+	public static List<Stats> getAllStats() {
+		List<Stats> result = new ArrayList<Stats>();
+		for (ObjectCache<?, ?> cache : instances) {
+			result.add(cache.getStats());
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	protected final String name;
+
+	/**
+	 * SysConfig key of the capacity; resolved on first use, as caches may exist before SysConfig is set up
+	 */
+	protected final String capacityKey;
+	protected volatile int capacity = -1;
+
+	/**
+	 *
+	 */
+	protected final ConcurrentHashMap<K, Entry<K, V>> entries = new ConcurrentHashMap<K, Entry<K, V>>();
+
+	/**
+	 * Entries in clock order; may contain entries that have since been removed, these are skipped
+	 */
+	protected final Queue<Entry<K, V>> clock = new ConcurrentLinkedQueue<Entry<K, V>>();
+
+	/**
+	 * Only one thread evicts at a time
+	 */
+	protected final Lock evictionLock = new ReentrantLock();
+
+	/**
+	 * Evicted objects, as long as someone else still holds them
+	 */
+	protected final ConcurrentHashMap<K, Ghost<K, V>> ghosts = new ConcurrentHashMap<K, Ghost<K, V>>();
+	protected final ReferenceQueue<V> collectedGhosts = new ReferenceQueue<V>();
+
+	/**
+	 * Statistics
+	 */
+	protected final LongAdder hits = new LongAdder();
+	protected final LongAdder misses = new LongAdder();
+	protected final LongAdder evictions = new LongAdder();
+	protected final LongAdder revivals = new LongAdder();
+
+	/**
+	 *
+	 */
+	public ObjectCache(String myName, String myCapacityKey) {
+		name = myName;
+		capacityKey = myCapacityKey;
+		instances.add(this);
+	}
+
+	/**
+	 *
+	 */
+	public ObjectCache(String myName, int myCapacity) {
+		this(myName, (String) null);
+		capacity = myCapacity;
+	}
+
+	/**
+	 *
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 *
+	 */
+	public int getCapacity() {
+		if (capacity < 0) {
+			capacity = SysConfig.getInstance().getValueAsInt(capacityKey);
+		}
+		return capacity;
+	}
+
+	/**
+	 * Looks up key and counts the lookup as a hit or miss
+	 */
+	public V get(K key) {
+		V result = peek(key);
+		if (result != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return result;
+	}
+
+	/**
+	 * Looks up key without counting the lookup
+	 */
+	public V peek(K key) {
+		Entry<K, V> entry = entries.get(key);
+		if (entry != null) {
+			entry.touch();
+			return entry.value;
+		}
+
+		return revive(key);
+	}
+
+	/**
+	 *
+	 */
+	public boolean containsKey(K key) {
+		return peek(key) != null;
+	}
+
+	/**
+	 *
+	 */
+	public void put(K key, V value) {
+		Entry<K, V> entry = new Entry<K, V>(key, value);
+		entries.put(key, entry);
+		ghosts.remove(key);
+		clock.offer(entry);
+		evictIfFull();
+	}
+
+	/**
+	 * @return the object now cached for key, which is value unless there was one already
+	 */
+	public V putIfAbsent(K key, V value) {
+		V current = peek(key);
+		return (current != null) ? current : doPutIfAbsent(key, value);
+	}
+
+	/**
+	 * @methodproperties primitive
+	 */
+	protected V doPutIfAbsent(K key, V value) {
+		Entry<K, V> entry = new Entry<K, V>(key, value);
+		Entry<K, V> previous = entries.putIfAbsent(key, entry);
+		if (previous != null) {
+			return previous.value;
+		}
+
+		ghosts.remove(key);
+		clock.offer(entry);
+		evictIfFull();
+		return value;
+	}
+
+	/**
+	 *
+	 */
+	public V remove(K key) {
+		ghosts.remove(key);
+		Entry<K, V> entry = entries.remove(key);
+		return (entry == null) ? null : entry.value;
+	}
+
+	/**
+	 *
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return a snapshot of the cached objects
+	 */
+	public Collection<V> values() {
+		List<V> result = new ArrayList<V>(entries.size());
+		for (Entry<K, V> entry : entries.values()) {
+			result.add(entry.value);
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	protected V revive(K key) {
+		expungeCollectedGhosts();
+
+		Ghost<K, V> ghost = ghosts.get(key);
+		if (ghost == null) {
+			return null;
+		}
+
+		V value = ghost.get();
+		if (value == null) {
+			ghosts.remove(key, ghost);
+			return null;
+		}
+
+		revivals.increment();
+		return doPutIfAbsent(key, value);
+	}
+
+	/**
+	 *
+	 */
+	protected void evictIfFull() {
+		if ((entries.size() <= getCapacity()) || !evictionLock.tryLock()) {
+			return;
+		}
+
+		try {
+			// every entry gets at most MAX_FREQUENCY + 1 turns; what is left after that is pinned
+			int turns = (clock.size() + 1) * (MAX_FREQUENCY + 1);
+			while ((entries.size() > getCapacity()) && (turns-- > 0)) {
+				Entry<K, V> entry = clock.poll();
+				if (entry == null) {
+					break;
+				} else if (entries.get(entry.key) != entry) {
+					continue; // removed or replaced
+				} else if (entry.value.isDirty() || entry.tick()) {
+					clock.offer(entry);
+				} else if (entries.remove(entry.key, entry)) {
+					ghosts.put(entry.key, new Ghost<K, V>(entry.key, entry.value, collectedGhosts));
+					evictions.increment();
+				}
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 */
+	@SuppressWarnings("unchecked")
+	protected void expungeCollectedGhosts() {
+		for (Reference<? extends V> ref = collectedGhosts.poll(); ref != null; ref = collectedGhosts.poll()) {
+			Ghost<K, V> ghost = (Ghost<K, V>) ref;
+			ghosts.remove(ghost.key, ghost);
+		}
+	}
+
+	/**
+	 *
+	 */
+	public Stats getStats() {
+		return new Stats(name, entries.size(), getCapacity(), hits.sum(), misses.sum(), evictions.sum(), revivals.sum());
+	}
+
+	/**
+	 *
+	 */
+	protected static class Entry<K, V> {
+
+		protected final K key;
+		protected final V value;
+		protected final AtomicInteger frequency = new AtomicInteger(0);
+
+		protected Entry(K myKey, V myValue) {
+			key = myKey;
+			value = myValue;
+		}
+
+		protected void touch() {
+			int f = frequency.get();
+			if (f < MAX_FREQUENCY) {
+				frequency.compareAndSet(f, f + 1);
+			}
+		}
+
+		/**
+		 * @return true if the entry survives this turn of the clock hand
+		 */
+		protected boolean tick() {
+			int f = frequency.get();
+			if (f == 0) {
+				return false;
+			}
+
+			frequency.compareAndSet(f, f - 1); // a concurrent hit may win, that only spares the entry longer
+			return true;
+		}
+	}
+
+	/**
+	 *
+	 */
+	protected static class Ghost<K, V> extends WeakReference<V> {
+
+		protected final K key;
+
+		protected Ghost(K myKey, V value, ReferenceQueue<? super V> queue) {
+			super(value, queue);
+			key = myKey;
+		}
+	}
+
+	/**
+	 * An immutable snapshot of a cache's statistics
+	 */
+	public static class Stats {
+
+		protected final String name;
+		protected final int size;
+		protected final int capacity;
+		protected final long hits;
+		protected final long misses;
+		protected final long evictions;
+		protected final long revivals;
+
+		/**
+		 *
+		 */
+		public Stats(String myName, int mySize, int myCapacity, long myHits, long myMisses, long myEvictions, long myRevivals) {
+			name = myName;
+			size = mySize;
+			capacity = myCapacity;
+			hits = myHits;
+			misses = myMisses;
+			evictions = myEvictions;
+			revivals = myRevivals;
+		}
+
+		public String getName() { return name; }
+		public int getSize() { return size; }
+		public int getCapacity() { return capacity; }
+		public long getHits() { return hits; }
+		public long getMisses() { return misses; }
+		public long getEvictions() { return evictions; }
+		public long getRevivals() { return revivals; }
+
+		/**
+		 *
+		 */
+		public double getHitRate() {
+			long lookups = hits + misses;
+			return (lookups == 0) ? 0.0 : (double) hits / lookups;
+		}
+
+		/**
+		 *
+		 */
+		public String toString() {
+			return String.format("%s [size=%d/%d, hits=%d, misses=%d, hit rate=%.1f%%, evictions=%d, revivals=%d]",
+				name, size, capacity, hits, misses, 100.0 * getHitRate(), evictions, revivals);
+		}
+	}
+
+}
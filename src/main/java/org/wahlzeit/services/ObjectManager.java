@@ -10,6 +10,8 @@ import org.wahlzeit.utils.PatternInstance;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * An ObjectManager creates/reads/updates/deletes Persistent (objects) from a database.
@@ -23,6 +25,35 @@ import java.util.*;
 )
 public abstract class ObjectManager {
 	
+	/**
+	 * Objects written to since they were last saved; drained by updateDirtyObjects
+	 */
+	protected final Set<Persistent> dirtyObjects = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Receives the rows of a streamed query, see readRows
+	 */
+	public interface RowHandler {
+		
+		/**
+		 * Called for each row; rset must not be advanced or kept
+		 */
+		public void handleRow(ResultSet rset) throws SQLException;
+		
+	}
+	
+	/**
+	 * Saves that found their row updated since the object was read, over all managers
+	 */
+	protected static final LongAdder updateConflicts = new LongAdder();
+	
+	/**
+	 * 
+	 */
+	public static long getUpdateConflictCount() {
+		return updateConflicts.sum();
+	}
+	
 	/**
 	 * All objects are now saved under this root key. In case of multi-tenancy this may change to several keys.
 	 */
@@ -31,10 +62,18 @@ public abstract class ObjectManager {
 	}
 	    
 	/**
-	 * 
+	 * Plain queries may go to the read replica, see QueryRouter
 	 */
 	protected PreparedStatement getReadingStatement(String stmt) throws SQLException {
-    	DatabaseConnection dbc = getDatabaseConnection();
+    	DatabaseConnection dbc = QueryRouter.getConnectionFor(SessionManager.getThreadLocalSession(), stmt);
+    	return dbc.getReadingStatement(stmt);
+	}
+	
+	/**
+	 * For queries that must not lag behind the primary database
+	 */
+	protected PreparedStatement getPrimaryReadingStatement(String stmt) throws SQLException {
+    	DatabaseConnection dbc = QueryRouter.getConnectionForPrimaryReading(SessionManager.getThreadLocalSession());
     	return dbc.getReadingStatement(stmt);
 	}
 	
@@ -42,7 +81,7 @@ public abstract class ObjectManager {
 	 * 
 	 */
 	protected PreparedStatement getUpdatingStatement(String stmt) throws SQLException {
-    	DatabaseConnection dbc = getDatabaseConnection();
+    	DatabaseConnection dbc = QueryRouter.getConnectionForWriting(SessionManager.getThreadLocalSession());
     	return dbc.getUpdatingStatement(stmt);
 	}
 	
@@ -79,13 +118,12 @@ public abstract class ObjectManager {
 	/**
 	 * 
 	 */
-	protected void readObjects(Collection result, PreparedStatement stmt) throws SQLException {
-		SysLog.logQuery(stmt);
-		ResultSet rset = stmt.executeQuery();
-		while (rset.next()) {
-			Persistent obj = createObject(rset);
-			result.add(obj);
-		}
+	protected void readObjects(final Collection result, PreparedStatement stmt) throws SQLException {
+		readRows(stmt, new RowHandler() {
+			public void handleRow(ResultSet rset) throws SQLException {
+				result.add(createObject(rset));
+			}
+		});
 	}
 		
 	/**
@@ -93,14 +131,57 @@ public abstract class ObjectManager {
 	 */
 	protected void readObjects(Collection result, PreparedStatement stmt, String value) throws SQLException {
 		stmt.setString(1, value);
-		SysLog.logQuery(stmt);
-		ResultSet rset = stmt.executeQuery();
-		while (rset.next()) {
-			Persistent obj = createObject(rset);
-			result.add(obj);
-		}
+		readObjects(result, stmt);
 	}
+	
+	/**
+	 * Runs the query stmt and hands each row to handler, without holding the whole result in memory:
+	 * the driver fetches DB_FETCH_SIZE rows at a time through a cursor, which PostgreSQL only keeps
+	 * within a transaction. Hence, unless the connection is in a transaction already, the rows are
+	 * read in a read-only transaction of their own. The connection's settings are restored afterwards;
+	 * a replica connection, for example, stays read-only.
+	 */
+	protected void readRows(PreparedStatement stmt, RowHandler handler) throws SQLException {
+		Connection conn = stmt.getConnection();
+		boolean isOwnTransaction = conn.getAutoCommit();
+		boolean wasReadOnly = isOwnTransaction && conn.isReadOnly();
+		if (isOwnTransaction) {
+			conn.setAutoCommit(false);
+			if (!wasReadOnly) {
+				conn.setReadOnly(true);
+			}
+		}
 		
+		try {
+			stmt.setFetchSize(Math.max(1, SysConfig.getDbFetchSize()));
+			SysLog.logQuery(stmt);
+			ResultSet rset = stmt.executeQuery();
+			try {
+				while (rset.next()) {
+					handler.handleRow(rset);
+				}
+			} finally {
+				rset.close();
+			}
+			
+			if (isOwnTransaction) {
+				conn.commit();
+			}
+		} catch (SQLException ex) {
+			if (isOwnTransaction) {
+				conn.rollback();
+			}
+			throw ex;
+		} finally {
+			if (isOwnTransaction) {
+				if (!wasReadOnly) {
+					conn.setReadOnly(false);
+				}
+				conn.setAutoCommit(true);
+			}
+		}
+	}
+	
 	/**
 	 * 
 	 */
@@ -113,6 +194,7 @@ public abstract class ObjectManager {
 		stmt.setInt(1, value);
 		SysLog.logQuery(stmt);
 		stmt.executeUpdate();
+		registerInsert(obj);
 	}
 	
 	/**
@@ -122,34 +204,352 @@ public abstract class ObjectManager {
 		stmt.setString(1, value);
 		SysLog.logQuery(stmt);
 		stmt.executeUpdate();
+		registerInsert(obj);
 	}
 	
 	/**
-	 * 
+	 * Lets the unit of work drop obj again if the transaction that inserted it is rolled back
 	 */
-	protected void updateObject(Persistent obj, PreparedStatement stmt) throws SQLException {
+	protected void registerInsert(Persistent obj) {
+		UnitOfWork unitOfWork = SessionManager.getUnitOfWork();
+		if (unitOfWork != null) {
+			unitOfWork.registerInsert(this, obj);
+		}
+	}
+
+	/**
+	 * Forgets obj, whose row was rolled back, so it is not found and saved any longer
+	 * @methodproperty hook
+	 */
+	protected void dropObject(Persistent obj) {
+		dirtyObjects.remove(obj);
+	}
+
+	/**
+	 * Saves obj with one UPDATE statement, if it is dirty
+	 */
+	protected void updateObject(String tableName, Persistent obj) throws SQLException {
 		if (obj.isDirty()) {
+			dirtyObjects.remove(obj);
+			int writeCount = getWriteCount(obj);
+			if (writeObject(tableName, obj) || resolveConflict(tableName, obj)) {
+				updateDependents(obj);
+				resetWriteCount(obj, writeCount);
+			}
+		}
+	}
+	
+	/**
+	 * @return write count of obj to pass to resetWriteCount(obj, writeCount) once obj is written; take it before capturing obj
+	 */
+	protected static int getWriteCount(Persistent obj) {
+		return (obj instanceof ChangeTracked) ? ((ChangeTracked) obj).getWriteCount() : -1;
+	}
+	
+	/**
+	 * Marks obj as saved, unless it changed while it was written, see ChangeTracked.resetWriteCount(int)
+	 */
+	protected static void resetWriteCount(Persistent obj, int writeCount) {
+		if (obj instanceof ChangeTracked) {
+			((ChangeTracked) obj).resetWriteCount(writeCount);
+		} else {
+			obj.resetWriteCount();
+		}
+	}
+	
+	/**
+	 * Only the columns that changed are written, see ChangeTracked.
+	 * A Versioned obj is only written if its row is still at the object's version.
+	 * @return true if the row was written, or there was nothing to write
+	 */
+	protected boolean writeObject(String tableName, Persistent obj) throws SQLException {
+		RowImage image = RowImage.captureChanges(obj);
+		if (image.getColumnCount() == 0) {
+			return true;
+		}
+		
+		boolean isVersioned = obj instanceof Versioned;
+		PreparedStatement stmt = getReadingStatement(image.asUpdateStatement(tableName, isVersioned));
+		image.writeOn(stmt);
+		obj.writeId(stmt, image.getColumnCount() + 1);
+		int version = isVersioned ? ((Versioned) obj).getVersion() : 0;
+		if (isVersioned) {
+			stmt.setInt(image.getColumnCount() + 2, version);
+		}
+		
+		SysLog.logQuery(stmt);
+		if (stmt.executeUpdate() == 0) {
+			return false;
+		}
+		
+		if (isVersioned) {
+			((Versioned) obj).setVersion(version + 1);
+		}
+		return true;
+	}
+	
+	/**
+	 * Handles a failed write of obj: a Versioned obj whose row has been updated since it was read is 
+	 * merged with, written over, or replaced by the newer row, as DB_MERGE_POLICY says.
+	 * @return true if obj was written after all
+	 */
+	protected boolean resolveConflict(String tableName, Persistent obj) throws SQLException {
+		MergePolicy policy = SysConfig.getDbMergePolicy();
+		int retries = SysConfig.getDbMergeRetries();
+		for (int i = 0; i <= retries; i++) {
+			PreparedStatement stmt = getPrimaryReadingStatement("SELECT * FROM " + tableName + " WHERE id = ?");
 			obj.writeId(stmt, 1);
 			SysLog.logQuery(stmt);
 			ResultSet rset = stmt.executeQuery();
-			if (rset.next()) {
-				obj.writeOn(rset);
-				rset.updateRow();
-				updateDependents(obj);
-				obj.resetWriteCount();
-			} else {
+			if (!(obj instanceof Versioned) || !rset.next()) {
 				SysLog.logSysError("trying to update non-existent object: " + obj.getIdAsString() + "(" + obj.toString() + ")");
+				return false;
+			}
+			
+			updateConflicts.increment();
+			Versioned vobj = (Versioned) obj;
+			if (policy == MergePolicy.DISCARD) {
+				vobj.readFrom(rset);
+				vobj.resetWriteCount();
+				updateReloaded(obj);
+				return false;
+			} else if (policy == MergePolicy.OVERWRITE) {
+				vobj.setVersion(rset.getInt(Versioned.VERSION));
+			} else {
+				vobj.mergeWith(rset);
+			}
+			
+			if (writeObject(tableName, obj)) {
+				return true;
+			}
+		}
+		
+		SysLog.logSysError("giving up on saving object updated concurrently: " + obj.getIdAsString() + "(" + obj.toString() + ")");
+		markDirty(obj);
+		return false;
+	}
+	
+	/**
+	 * 
+	 */
+	public void markDirty(Persistent obj) {
+		dirtyObjects.add(obj);
+	}
+	
+	/**
+	 * 
+	 */
+	public int getDirtyObjectCount() {
+		return dirtyObjects.size();
+	}
+	
+	/**
+	 * @methodproperty hook
+	 * 
+	 * Tells whether obj is the instance this manager caches; dirty objects that are not are dropped on save.
+	 */
+	protected boolean isManaged(Persistent obj) {
+		return true;
+	}
+	
+	/**
+	 * @methodproperty hook
+	 * 
+	 * Within a UnitOfWork, objects of managers with a lower rank are saved first, 
+	 * so that rows are written before the rows that refer to them.
+	 */
+	protected int getDependencyRank() {
+		return 0;
+	}
+	
+	/**
+	 * Registers obj with the request's UnitOfWork, if there is one, to be saved when the request commits;
+	 * else hands obj to the WriteBehindQueue, if there is one, to be saved off the calling thread.
+	 * @return false if obj was not taken and the caller has to save it
+	 */
+	protected boolean saveLater(String tableName, Persistent obj) {
+		UnitOfWork unitOfWork = SessionManager.getUnitOfWork();
+		if (unitOfWork != null) {
+			unitOfWork.register(this, tableName, obj);
+			return true;
+		}
+		
+		WriteBehindQueue queue = WriteBehindQueue.getInstance();
+		return (queue != null) && queue.add(this, tableName, obj);
+	}
+	
+	/**
+	 * Saves the dirty objects of tableName, see saveObjects.
+	 */
+	protected void updateDirtyObjects(String tableName) throws SQLException {
+		List<Persistent> objs = new ArrayList<Persistent>();
+		for (Iterator<Persistent> i = dirtyObjects.iterator(); i.hasNext(); ) {
+			Persistent obj = i.next();
+			i.remove();
+			if (isManaged(obj)) {
+				objs.add(obj);
+			}
+		}
+
+		saveObjects(tableName, objs);
+	}
+	
+	/**
+	 * Saves those of objs that are dirty with batched UPDATE statements, or, if batch updates are
+	 * switched off, through an updatable ResultSet per object. Objects that could not be saved stay marked.
+	 */
+	protected void saveObjects(String tableName, Collection<? extends Persistent> coll) throws SQLException {
+		List<Persistent> objs = new ArrayList<Persistent>();
+		for (Persistent obj : coll) {
+			if (obj.isDirty()) {
+				dirtyObjects.remove(obj);
+				objs.add(obj);
 			}
 		}
+
+		try {
+			if (SysConfig.isDbBatchUpdates()) {
+				updateObjects(tableName, objs);
+			} else {
+				updateRows(tableName, objs);
+			}
+		} catch (SQLException ex) {
+			for (Persistent obj : objs) {
+				if (obj.isDirty()) {
+					markDirty(obj);
+				}
+			}
+			throw ex;
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	protected void updateObjects(String tableName, List<? extends Persistent> objs) throws SQLException {
+		int batchSize = Math.max(1, SysConfig.getDbBatchSize());
+		for (int from = 0; from < objs.size(); from += batchSize) {
+			updateBatch(tableName, objs.subList(from, Math.min(from + batchSize, objs.size())));
+		}
 	}
 	
 	/**
 	 * 
 	 */
-	protected void updateObjects(Collection coll, PreparedStatement stmt) throws SQLException {
-		for (Iterator i = coll.iterator(); i.hasNext(); ) {
-			Persistent obj = (Persistent) i.next();
-			updateObject(obj, stmt);
+	protected void updateRows(String tableName, List<? extends Persistent> objs) throws SQLException {
+		for (Persistent obj : objs) {
+			int writeCount = getWriteCount(obj);
+			if (updateRow(tableName, obj) || resolveConflict(tableName, obj)) {
+				updateDependents(obj);
+				resetWriteCount(obj, writeCount);
+			}
+		}
+	}
+	
+	/**
+	 * Writes all columns of obj on its row, read through an updatable ResultSet; two round trips per object.
+	 * A Versioned obj is only written if its row is still at the object's version.
+	 * @return true if the row was written
+	 */
+	protected boolean updateRow(String tableName, Persistent obj) throws SQLException {
+		PreparedStatement stmt = getUpdatingStatement("SELECT * FROM " + tableName + " WHERE id = ?");
+		obj.writeId(stmt, 1);
+		SysLog.logQuery(stmt);
+		try (ResultSet rset = stmt.executeQuery()) {
+			if (!rset.next()) {
+				return false;
+			}
+			
+			boolean isVersioned = obj instanceof Versioned;
+			int version = isVersioned ? ((Versioned) obj).getVersion() : 0;
+			if (isVersioned && (rset.getInt(Versioned.VERSION) != version)) {
+				return false;
+			}
+			
+			obj.writeOn(rset);
+			if (isVersioned) {
+				rset.updateInt(Versioned.VERSION, version + 1);
+			}
+			rset.updateRow();
+			
+			if (isVersioned) {
+				((Versioned) obj).setVersion(version + 1);
+			}
+			return true;
+		}
+	}
+	
+	/**
+	 * Objects that write different columns (e.g. Photo and CGIPhoto, or photos with different changed columns) 
+	 * end up in different statements.
+	 * Versioned objects whose rows were updated concurrently are resolved one by one after the batch.
+	 */
+	protected void updateBatch(String tableName, List<? extends Persistent> objs) throws SQLException {
+		Map<String, List<Persistent>> objsByStmt = new LinkedHashMap<String, List<Persistent>>();
+		Map<Persistent, RowImage> images = new HashMap<Persistent, RowImage>();
+		Map<Persistent, Integer> versions = new HashMap<Persistent, Integer>();
+		Map<Persistent, Integer> writeCounts = new HashMap<Persistent, Integer>();
+		List<Persistent> unchanged = new ArrayList<Persistent>();
+		for (Persistent obj : objs) {
+			writeCounts.put(obj, getWriteCount(obj));
+			RowImage image = RowImage.captureChanges(obj);
+			if (image.getColumnCount() == 0) {
+				unchanged.add(obj);
+				continue;
+			}
+			images.put(obj, image);
+			if (obj instanceof Versioned) {
+				versions.put(obj, ((Versioned) obj).getVersion());
+			}
+			String sql = image.asUpdateStatement(tableName, obj instanceof Versioned);
+			List<Persistent> group = objsByStmt.get(sql);
+			if (group == null) {
+				group = new ArrayList<Persistent>();
+				objsByStmt.put(sql, group);
+			}
+			group.add(obj);
+		}
+
+		List<Persistent> conflicts = new ArrayList<Persistent>();
+		for (Map.Entry<String, List<Persistent>> entry : objsByStmt.entrySet()) {
+			List<Persistent> group = entry.getValue();
+			PreparedStatement stmt = getReadingStatement(entry.getKey());
+			for (Persistent obj : group) {
+				RowImage image = images.get(obj);
+				image.writeOn(stmt);
+				obj.writeId(stmt, image.getColumnCount() + 1);
+				if (versions.containsKey(obj)) {
+					stmt.setInt(image.getColumnCount() + 2, versions.get(obj));
+				}
+				stmt.addBatch();
+			}
+
+			SysLog.logQuery(entry.getKey() + " [batch of " + group.size() + "]");
+			int[] counts = stmt.executeBatch();
+			for (int i = 0; i < group.size(); i++) {
+				Persistent obj = group.get(i);
+				if (counts[i] == 0) {
+					conflicts.add(obj);
+				} else {
+					if (versions.containsKey(obj)) {
+						((Versioned) obj).setVersion(versions.get(obj) + 1);
+					}
+					updateDependents(obj);
+					resetWriteCount(obj, writeCounts.get(obj));
+				}
+			}
+		}
+		
+		for (Persistent obj : unchanged) {
+			updateDependents(obj);
+			resetWriteCount(obj, writeCounts.get(obj));
+		}
+		
+		for (Persistent obj : conflicts) {
+			if (resolveConflict(tableName, obj)) {
+				updateDependents(obj);
+				resetWriteCount(obj, writeCounts.get(obj));
+			}
 		}
 	}
 	
@@ -160,6 +560,22 @@ public abstract class ObjectManager {
 		// do nothing
 	}
 	
+	/**
+	 * Brings what depends on obj up to date after obj was read again from its row, which bypasses its setters
+	 * @methodproperty hook
+	 */
+	protected void updateReloaded(Persistent obj) {
+		// do nothing
+	}
+	
+	/**
+	 * Takes back what updateDependents() recorded as written, after the transaction that saved obj was rolled back
+	 * @methodproperty hook
+	 */
+	protected void rollbackDependents(Persistent obj) {
+		// do nothing
+	}
+	
 	/**
 	 * 
 	 */
@@ -0,0 +1,108 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Decides whether a statement runs on the primary database or on the read replica, and counts the decisions.
+ *
+ * Plain queries go to the replica, unless the session has written recently and must see its own writes.
+ * Everything else, including queries through updatable ResultSets, goes to the primary database.
+ */
+public class QueryRouter {
+
+	/**
+	 * Routing decisions
+	 */
+	protected static final LongAdder replicaReads = new LongAdder();
+	protected static final LongAdder stickyReads = new LongAdder();
+	protected static final LongAdder primaryReads = new LongAdder();
+	protected static final LongAdder writes = new LongAdder();
+
+	/**
+	 * @return true if sql cannot change the database
+	 */
+	public static boolean isReadOnlyQuery(String sql) {
+		String query = sql.trim().toUpperCase(Locale.ROOT);
+		return query.startsWith("SELECT") && !query.contains(" FOR UPDATE") && !query.contains(" FOR SHARE");
+	}
+
+	/**
+	 * @return connection to run sql on
+	 */
+	public static DatabaseConnection getConnectionFor(Session session, String sql) {
+		if (!isReadOnlyQuery(sql)) {
+			return getConnectionForWriting(session);
+		}
+
+		if (session.mustReadFromPrimary()) {
+			stickyReads.increment();
+			return session.ensureDatabaseConnection();
+		}
+
+		DatabaseConnection result = session.ensureReplicaConnection();
+		if (result == null) {
+			primaryReads.increment();
+			return session.ensureDatabaseConnection();
+		}
+
+		replicaReads.increment();
+		return result;
+	}
+
+	/**
+	 * @return connection for queries that must see everything committed so far
+	 */
+	public static DatabaseConnection getConnectionForPrimaryReading(Session session) {
+		primaryReads.increment();
+		return session.ensureDatabaseConnection();
+	}
+
+	/**
+	 * @return connection for statements that write, or may write through their ResultSet;
+	 * in the transaction of the session's UnitOfWork, if there is one
+	 */
+	public static DatabaseConnection getConnectionForWriting(Session session) {
+		writes.increment();
+		session.setHasWritten();
+		DatabaseConnection result = session.ensureDatabaseConnection();
+		if (session.getUnitOfWork() != null) {
+			session.getUnitOfWork().begin(result);
+		}
+		return result;
+	}
+
+	/**
+	 * @return queries that went to the replica
+	 */
+	public static long getReplicaReads() {
+		return replicaReads.sum();
+	}
+
+	/**
+	 * @return queries that went to the primary database because the session had written
+	 */
+	public static long getStickyReads() {
+		return stickyReads.sum();
+	}
+
+	/**
+	 * @return queries that went to the primary database because there is no replica or they must not lag behind
+	 */
+	public static long getPrimaryReads() {
+		return primaryReads.sum();
+	}
+
+	/**
+	 *
+	 */
+	public static long getWrites() {
+		return writes.sum();
+	}
+
+}
@@ -0,0 +1,252 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Execution statistics of one SQL statement shape, i.e. of the statement text with parameters as ?.
+ * Times go into a histogram with four buckets per power of two microseconds, so percentiles are
+ * accurate to 25%. Recording takes a few atomic increments and no locks.
+ *
+ * Statements slower than DB_SLOW_QUERY_THRESHOLD milliseconds are logged with their parameters.
+ */
+public class QueryStats {
+
+	/**
+	 * Beyond this many shapes, statements are counted together
+	 */
+	public static final int MAX_SHAPES = 1000;
+	public static final String OTHER_SHAPES = "(other statements)";
+
+	/**
+	 *
+	 */
+	protected static final int NO_BUCKETS = 160;
+
+	/**
+	 * By statement text
+	 */
+	protected static final ConcurrentHashMap<String, QueryStats> allStats = new ConcurrentHashMap<String, QueryStats>();
+
+	/**
+	 * In milliseconds; read from SysConfig on first use, 0 means off
+	 */
+	protected static volatile long slowQueryThreshold = -1;
+
+	/**
+	 * @return statistics of sql, created on first use
+	 */
+	public static QueryStats forSql(String sql) {
+		QueryStats result = allStats.get(sql);
+		if (result == null) {
+			if (allStats.size() >= MAX_SHAPES) {
+				sql = OTHER_SHAPES;
+			}
+			QueryStats stats = new QueryStats(sql);
+			result = allStats.putIfAbsent(sql, stats);
+			if (result == null) {
+				result = stats;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	public static Collection<QueryStats> getAll() {
+		return Collections.unmodifiableCollection(allStats.values());
+	}
+
+	/**
+	 * @return the noStats statements that took the most time overall, most first
+	 */
+	public static List<QueryStats> getTopByTotalTime(int noStats) {
+		List<QueryStats> result = new ArrayList<QueryStats>(allStats.values());
+		Collections.sort(result, new Comparator<QueryStats>() {
+			public int compare(QueryStats s1, QueryStats s2) {
+				return Long.compare(s2.getTotalNanos(), s1.getTotalNanos());
+			}
+		});
+		return result.subList(0, Math.min(noStats, result.size()));
+	}
+
+	/**
+	 *
+	 */
+	public static void resetAll() {
+		allStats.clear();
+	}
+
+	/**
+	 *
+	 */
+	public static long getSlowQueryThreshold() {
+		if (slowQueryThreshold < 0) {
+			slowQueryThreshold = SysConfig.getDbSlowQueryThreshold();
+		}
+		return slowQueryThreshold;
+	}
+
+	/**
+	 *
+	 */
+	public static void setSlowQueryThreshold(long newThreshold) {
+		slowQueryThreshold = newThreshold;
+	}
+
+	/**
+	 * @return histogram bucket of a duration
+	 */
+	protected static int getBucket(long micros) {
+		if (micros < 4) {
+			return (int) Math.max(0, micros);
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int) (micros >>> (exponent - 2)) & 3;
+		return Math.min(NO_BUCKETS - 1, 4 * (exponent - 1) + sub);
+	}
+
+	/**
+	 * @return largest duration in a histogram bucket, in microseconds
+	 */
+	protected static long getBucketLimit(int bucket) {
+		if (bucket < 4) {
+			return bucket;
+		}
+
+		int exponent = bucket / 4 + 1;
+		long lower = (4L + bucket % 4) << (exponent - 2);
+		return lower + (1L << (exponent - 2)) - 1;
+	}
+
+	/**
+	 *
+	 */
+	protected final String sql;
+
+	/**
+	 *
+	 */
+	protected final LongAdder count = new LongAdder();
+	protected final LongAdder rows = new LongAdder();
+	protected final LongAdder totalNanos = new LongAdder();
+	protected final AtomicLong maxNanos = new AtomicLong();
+	protected final AtomicLongArray histogram = new AtomicLongArray(NO_BUCKETS);
+
+	/**
+	 *
+	 */
+	protected QueryStats(String mySql) {
+		sql = mySql;
+	}
+
+	/**
+	 * Records one execution; statement is logged if the execution was slow
+	 */
+	public void record(long nanos, long noRows, Object statement) {
+		count.increment();
+		if (noRows > 0) {
+			rows.add(noRows);
+		}
+		totalNanos.add(nanos);
+		histogram.incrementAndGet(getBucket(nanos / 1000));
+
+		long max = maxNanos.get();
+		while ((nanos > max) && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+
+		long threshold = getSlowQueryThreshold();
+		if ((threshold > 0) && (nanos >= threshold * 1000000)) {
+			SysLog.logSysInfo("slow query", String.valueOf(statement), String.format(Locale.ROOT, "%.1fms", nanos / 1e6));
+		}
+	}
+
+	/**
+	 * Adds rows read after the execution was recorded
+	 */
+	public void addRows(long noRows) {
+		rows.add(noRows);
+	}
+
+	/**
+	 *
+	 */
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 *
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return rows read or written
+	 */
+	public long getRows() {
+		return rows.sum();
+	}
+
+	/**
+	 *
+	 */
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	/**
+	 * @return total time in milliseconds
+	 */
+	public double getTotalTime() {
+		return getTotalNanos() / 1000000.0;
+	}
+
+	/**
+	 * @return longest execution in milliseconds
+	 */
+	public double getMaxTime() {
+		return maxNanos.get() / 1000000.0;
+	}
+
+	/**
+	 * @return execution time in milliseconds that a fraction of the executions did not exceed
+	 */
+	public double getPercentile(double fraction) {
+		long[] buckets = new long[NO_BUCKETS];
+		long total = 0;
+		for (int i = 0; i < NO_BUCKETS; i++) {
+			buckets[i] = histogram.get(i);
+			total += buckets[i];
+		}
+
+		long rank = (long) Math.ceil(fraction * total);
+		long seen = 0;
+		for (int i = 0; i < NO_BUCKETS; i++) {
+			seen += buckets[i];
+			if ((seen >= rank) && (seen > 0)) {
+				return Math.min(getBucketLimit(i) / 1000.0, getMaxTime());
+			}
+		}
+		return 0.0;
+	}
+
+	/**
+	 *
+	 */
+	public String getStatsAsString() {
+		return String.format(Locale.ROOT, "%d runs, %d rows, %.1fms total, p50 %.2fms, p99 %.2fms, max %.2fms",
+			getCount(), getRows(), getTotalTime(), getPercentile(0.5), getPercentile(0.99), getMaxTime());
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.lang.reflect.*;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * A row image captures the column values a Persistent writes in writeOn(ResultSet), in order,
+ * so that they can be bound to a plain parameterized UPDATE statement instead of an updatable ResultSet.
+ * As the columns keep the order of writeOn, each set of changed columns makes one statement text,
+ * which the StatementCache of a connection keeps prepared.
+ */
+public class RowImage {
+
+	/**
+	 * Column name to value, in the order written; the id and version columns are kept out, they go into the WHERE clause
+	 */
+	protected final Map<String, Object> columns = new LinkedHashMap<String, Object>();
+
+	/**
+	 * @methodtype factory
+	 */
+	public static RowImage capture(Persistent obj) throws SQLException {
+		final RowImage result = new RowImage();
+		ResultSet rset = (ResultSet) Proxy.newProxyInstance(
+			RowImage.class.getClassLoader(),
+			new Class<?>[] { ResultSet.class },
+			new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					return result.handle(method, args);
+				}
+			}
+		);
+
+		obj.writeOn(rset);
+		return result;
+	}
+
+	/**
+	 * @return image of the columns of obj that changed since it was last saved, if obj tracks them, else of all columns
+	 */
+	public static RowImage captureChanges(Persistent obj) throws SQLException {
+		Set<String> changedColumns = (obj instanceof ChangeTracked) ? ((ChangeTracked) obj).getChangedColumns() : null;
+		RowImage result = capture(obj);
+		if (changedColumns != null) {
+			result.columns.keySet().retainAll(changedColumns);
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	protected RowImage() {
+		// do nothing
+	}
+
+	/**
+	 * Records updateXxx(String columnName, value) and updateNull(String columnName); anything else is not a write.
+	 */
+	protected Object handle(Method method, Object[] args) throws SQLException {
+		String name = method.getName();
+		if (name.startsWith("update") && (args != null) && (args.length >= 1) && (args[0] instanceof String)) {
+			String column = (String) args[0];
+			if (!column.equals(DataObject.ID) && !column.equals(Versioned.VERSION)) {
+				columns.put(column, name.equals("updateNull") ? null : args[1]);
+			}
+			return null;
+		} else if (name.equals("toString")) {
+			return "RowImage" + columns.keySet();
+		} else if (name.equals("hashCode")) {
+			return System.identityHashCode(this);
+		} else if (name.equals("equals")) {
+			return false;
+		}
+
+		throw new SQLFeatureNotSupportedException("row image does not support " + name);
+	}
+
+	/**
+	 *
+	 */
+	public int getColumnCount() {
+		return columns.size();
+	}
+
+	/**
+	 *
+	 */
+	public Set<String> getColumnNames() {
+		return Collections.unmodifiableSet(columns.keySet());
+	}
+
+	/**
+	 * @return UPDATE statement setting all captured columns; its last parameter is the id
+	 */
+	public String asUpdateStatement(String tableName) {
+		return asUpdateStatement(tableName, false);
+	}
+
+	/**
+	 * @return UPDATE statement setting all captured columns; its parameters after the columns are the id and, 
+	 * if isVersioned, the version the row must still be at
+	 */
+	public String asUpdateStatement(String tableName, boolean isVersioned) {
+		StringBuilder result = new StringBuilder("UPDATE ").append(tableName).append(" SET ");
+		boolean isFirst = true;
+		for (String column : columns.keySet()) {
+			if (!isFirst) {
+				result.append(", ");
+			}
+			result.append(column).append(" = ?");
+			isFirst = false;
+		}
+
+		if (isVersioned) {
+			result.append(isFirst ? "" : ", ").append(Versioned.VERSION).append(" = ").append(Versioned.VERSION).append(" + 1");
+		}
+
+		result.append(" WHERE ").append(DataObject.ID).append(" = ?");
+		if (isVersioned) {
+			result.append(" AND ").append(Versioned.VERSION).append(" = ?");
+		}
+
+		return result.toString();
+	}
+
+	/**
+	 * Binds the captured values to parameters 1..getColumnCount()
+	 */
+	public void writeOn(PreparedStatement stmt) throws SQLException {
+		int pos = 1;
+		for (Object value : columns.values()) {
+			stmt.setObject(pos++, value);
+		}
+	}
+
+}
@@ -22,6 +22,23 @@ public class Session {
 	 */
 	protected DatabaseConnection databaseConnection = null;
 	
+	/**
+	 * Connection to a read replica, if there is one; see QueryRouter
+	 */
+	protected DatabaseConnection replicaConnection = null;
+	
+	/**
+	 * Set on the first write until the connections are returned, i.e. for the rest of the request;
+	 * the session then reads from the primary database so it sees its own writes
+	 */
+	protected boolean hasWritten = false;
+	protected long lastWriteTime = 0;
+	
+	/**
+	 * Collects the writes of the current request, if any; see SessionManager
+	 */
+	protected UnitOfWork unitOfWork = null;
+	
 	/**
 	 * processing time for requests
 	 */
@@ -96,6 +113,57 @@ public class Session {
 			DatabaseConnection.returnDatabaseConnection(databaseConnection);
 			databaseConnection = null;
 		}
+		
+		if (replicaConnection != null) {
+			DatabaseConnection.returnReplicaConnection(replicaConnection);
+			replicaConnection = null;
+		}
+		
+		hasWritten = false;
+	}
+	
+	/**
+	 * @return connection to the read replica, or null if there is none or it cannot be reached
+	 */
+	public DatabaseConnection ensureReplicaConnection() {
+		if ((replicaConnection == null) && DatabaseConnection.hasReplicaPool()) {
+			try {
+				replicaConnection = DatabaseConnection.ensureReplicaConnection();
+			} catch (Throwable t) {
+				SysLog.logThrowable(t);
+			}
+		}
+		
+		return replicaConnection;
+	}
+	
+	/**
+	 * 
+	 */
+	public void setHasWritten() {
+		hasWritten = true;
+		lastWriteTime = System.currentTimeMillis();
+	}
+	
+	/**
+	 * 
+	 */
+	public UnitOfWork getUnitOfWork() {
+		return unitOfWork;
+	}
+	
+	/**
+	 * 
+	 */
+	public void setUnitOfWork(UnitOfWork newUnitOfWork) {
+		unitOfWork = newUnitOfWork;
+	}
+	
+	/**
+	 * @return true if reads must go to the primary database to see this session's writes
+	 */
+	public boolean mustReadFromPrimary() {
+		return hasWritten || (System.currentTimeMillis() - lastWriteTime < SysConfig.getDbReplicaStickyTime());
 	}
 	
 	/**
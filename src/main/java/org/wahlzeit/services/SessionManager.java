@@ -5,6 +5,8 @@
 
 package org.wahlzeit.services;
 
+import java.sql.*;
+
 /**
  * A manager for Session objects (user (web) sessions, agent threads, etc.) Clients can look up the session by thread.
  */
@@ -43,4 +45,50 @@ public class SessionManager {
 		return getThreadLocalSession().ensureDatabaseConnection();
 	}
 	
+	/**
+	 * @return unit of work of the thread's session, or null if writes are not collected
+	 */
+	public static UnitOfWork getUnitOfWork() {
+		Session session = getThreadLocalSession();
+		return (session != null) ? session.getUnitOfWork() : null;
+	}
+	
+	/**
+	 * Makes the writes of the thread's session, until endUnitOfWork(), go into one transaction
+	 */
+	public static void beginUnitOfWork() {
+		Session session = getThreadLocalSession();
+		if ((session != null) && SysConfig.isDbUnitOfWork()) {
+			session.setUnitOfWork(new UnitOfWork(session));
+		}
+	}
+	
+	/**
+	 * Commits the writes collected so far.
+	 * @return false if they were rolled back
+	 */
+	public static boolean commitUnitOfWork() {
+		UnitOfWork unitOfWork = getUnitOfWork();
+		if (unitOfWork != null) {
+			try {
+				unitOfWork.commit();
+			} catch (SQLException sex) {
+				SysLog.logThrowable(sex);
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Rolls back writes not committed yet, and goes back to writing right away
+	 */
+	public static void endUnitOfWork() {
+		UnitOfWork unitOfWork = getUnitOfWork();
+		if (unitOfWork != null) {
+			unitOfWork.rollback();
+			getThreadLocalSession().setUnitOfWork(null);
+		}
+	}
+	
 }
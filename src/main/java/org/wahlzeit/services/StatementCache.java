@@ -0,0 +1,161 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A size-bounded cache of the prepared statements of one DatabaseConnection, by SQL text.
+ * The least recently used statement is evicted when the cache is full.
+ *
+ * An evicted statement may still be executing or have an open ResultSet further up the stack,
+ * so it is only retired; retired statements are closed when the connection goes back to the pool.
+ * Like its connection, a statement cache is used by one thread at a time.
+ */
+public class StatementCache {
+
+	/**
+	 * Totals over all statement caches
+	 */
+	protected static final LongAdder totalHits = new LongAdder();
+	protected static final LongAdder totalMisses = new LongAdder();
+	protected static final LongAdder totalEvictions = new LongAdder();
+
+	/**
+	 *
+	 */
+	public static long getTotalHits() {
+		return totalHits.sum();
+	}
+
+	/**
+	 *
+	 */
+	public static long getTotalMisses() {
+		return totalMisses.sum();
+	}
+
+	/**
+	 *
+	 */
+	public static long getTotalEvictions() {
+		return totalEvictions.sum();
+	}
+
+	/**
+	 *
+	 */
+	public static double getTotalHitRate() {
+		long hits = getTotalHits();
+		long lookups = hits + getTotalMisses();
+		return (lookups == 0) ? 0.0 : (double) hits / lookups;
+	}
+
+	/**
+	 *
+	 */
+	protected final int capacity;
+
+	/**
+	 * In access order, so the eldest entry is the least recently used
+	 */
+	protected final LinkedHashMap<String, PreparedStatement> statements;
+
+	/**
+	 * Evicted, but not closed yet
+	 */
+	protected final List<PreparedStatement> retired = new ArrayList<PreparedStatement>();
+
+	/**
+	 *
+	 */
+	public StatementCache(int myCapacity) {
+		capacity = Math.max(1, myCapacity);
+		statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() <= capacity) {
+					return false;
+				}
+
+				retired.add(eldest.getValue());
+				totalEvictions.increment();
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * @return cached statement for sql, or null
+	 */
+	public PreparedStatement get(String sql) {
+		PreparedStatement result = statements.get(sql);
+		if (result != null) {
+			totalHits.increment();
+		} else {
+			totalMisses.increment();
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	public void put(String sql, PreparedStatement stmt) {
+		PreparedStatement previous = statements.put(sql, stmt);
+		if ((previous != null) && (previous != stmt)) {
+			retired.add(previous);
+		}
+	}
+
+	/**
+	 *
+	 */
+	public int size() {
+		return statements.size();
+	}
+
+	/**
+	 *
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Closes evicted statements; only call while no statement of this cache is in use
+	 */
+	public void closeRetired() {
+		for (PreparedStatement stmt : retired) {
+			close(stmt);
+		}
+		retired.clear();
+	}
+
+	/**
+	 * Closes all statements, cached and evicted
+	 */
+	public void closeAll() {
+		closeRetired();
+		for (PreparedStatement stmt : statements.values()) {
+			close(stmt);
+		}
+		statements.clear();
+	}
+
+	/**
+	 *
+	 */
+	protected void close(PreparedStatement stmt) {
+		try {
+			stmt.close();
+		} catch (SQLException sex) {
+			SysLog.logThrowable(sex);
+		}
+	}
+
+}
@@ -20,6 +20,102 @@ public class SysConfig extends AbstractConfig {
 	public static final String DB_USER = "DB_USER";
 	public static final String DB_PASSWORD = "DB_PASSWORD";
 	
+	/**
+	 * Database connection pool definitions, times in milliseconds
+	 */
+	public static final String DB_POOL_MAX_SIZE = "DB_POOL_MAX_SIZE";
+	public static final String DB_POOL_ACQUIRE_TIMEOUT = "DB_POOL_ACQUIRE_TIMEOUT";
+	public static final String DB_POOL_IDLE_TIMEOUT = "DB_POOL_IDLE_TIMEOUT";
+	public static final String DB_POOL_MAX_LIFETIME = "DB_POOL_MAX_LIFETIME";
+	public static final String DB_POOL_LEAK_THRESHOLD = "DB_POOL_LEAK_THRESHOLD";
+	public static final String DB_POOL_VALIDATION_TIMEOUT = "DB_POOL_VALIDATION_TIMEOUT";
+	public static final String DB_POOL_HOUSEKEEPING_PERIOD = "DB_POOL_HOUSEKEEPING_PERIOD";
+	
+	/**
+	 * Read replica; queries go there unless DB_REPLICA_CONNECTION is empty or the session has just written.
+	 * A session keeps reading from the primary for the rest of the request and DB_REPLICA_STICKY_TIME ms after a write.
+	 */
+	public static final String DB_REPLICA_CONNECTION = "DB_REPLICA_CONNECTION";
+	public static final String DB_REPLICA_STICKY_TIME = "DB_REPLICA_STICKY_TIME";
+	
+	/**
+	 * Saving objects; with DB_BATCH_UPDATES false, dirty objects are written through an updatable ResultSet each
+	 * DB_MERGE_POLICY is one of merge, overwrite, discard, see MergePolicy
+	 */
+	public static final String DB_BATCH_UPDATES = "DB_BATCH_UPDATES";
+	public static final String DB_BATCH_SIZE = "DB_BATCH_SIZE";
+	public static final String DB_MERGE_POLICY = "DB_MERGE_POLICY";
+	public static final String DB_MERGE_RETRIES = "DB_MERGE_RETRIES";
+	
+	/**
+	 * Saving objects off the request thread, see WriteBehindQueue; the offer timeout is in milliseconds
+	 */
+	public static final String WRITE_BEHIND = "WRITE_BEHIND";
+	public static final String WRITE_BEHIND_QUEUE_SIZE = "WRITE_BEHIND_QUEUE_SIZE";
+	public static final String WRITE_BEHIND_WORKERS = "WRITE_BEHIND_WORKERS";
+	public static final String WRITE_BEHIND_BATCH_SIZE = "WRITE_BEHIND_BATCH_SIZE";
+	public static final String WRITE_BEHIND_OFFER_TIMEOUT = "WRITE_BEHIND_OFFER_TIMEOUT";
+	
+	/**
+	 * Writing each request in one transaction, see UnitOfWork. The two do not combine: within a unit of work,
+	 * saves are committed with the request, on the request thread, so that a failed request can be reported,
+	 * and only saves outside of requests, e.g. by agents, go to the WriteBehindQueue. Hence the unit of work
+	 * is off by default, and request threads leave their writes to the WriteBehindQueue.
+	 */
+	public static final String DB_UNIT_OF_WORK = "DB_UNIT_OF_WORK";
+	
+	/**
+	 * Milliseconds between two saves of the praise given since, see SavePraiseAgent
+	 */
+	public static final String PRAISE_SAVE_PERIOD = "PRAISE_SAVE_PERIOD";
+	
+	/**
+	 * Maximum number of prepared statements each connection keeps, per kind (reading, updating)
+	 */
+	public static final String DB_STATEMENT_CACHE_SIZE = "DB_STATEMENT_CACHE_SIZE";
+	
+	/**
+	 * Timing prepared statements, see QueryStats; statements taking DB_SLOW_QUERY_THRESHOLD milliseconds or more are logged
+	 */
+	public static final String DB_QUERY_STATS = "DB_QUERY_STATS";
+	public static final String DB_SLOW_QUERY_THRESHOLD = "DB_SLOW_QUERY_THRESHOLD";
+	
+	/**
+	 * Loading objects; joined hydration reads photos with their locations and coordinates in one query
+	 * Streamed reads fetch DB_FETCH_SIZE rows at a time through a cursor, see ObjectManager.readRows
+	 */
+	public static final String DB_JOINED_HYDRATION = "DB_JOINED_HYDRATION";
+	public static final String DB_PRELOAD_PHOTOS = "DB_PRELOAD_PHOTOS";
+	public static final String DB_FETCH_SIZE = "DB_FETCH_SIZE";
+	
+	/**
+	 * Object caches; maximum number of objects each ObjectManager keeps in memory, dirty objects excepted
+	 */
+	public static final String CACHE_PHOTOS_SIZE = "CACHE_PHOTOS_SIZE";
+	public static final String CACHE_USERS_SIZE = "CACHE_USERS_SIZE";
+	public static final String CACHE_LOCATIONS_SIZE = "CACHE_LOCATIONS_SIZE";
+	public static final String CACHE_COORDINATES_SIZE = "CACHE_COORDINATES_SIZE";
+	
+	/**
+	 * Filter results; maximum number of distinct photo filters whose matching photo ids are shared across sessions
+	 */
+	public static final String CACHE_FILTERS_SIZE = "CACHE_FILTERS_SIZE";
+	
+	/**
+	 * Negative lookups; Bloom filters of existing photo ids and user names, and how long a missing key is remembered
+	 */
+	public static final String NEGATIVE_LOOKUP_FILTERS = "NEGATIVE_LOOKUP_FILTERS";
+	public static final String NEGATIVE_LOOKUP_FPP = "NEGATIVE_LOOKUP_FPP";
+	public static final String NEGATIVE_LOOKUP_TTL = "NEGATIVE_LOOKUP_TTL";
+	public static final String NEGATIVE_LOOKUP_CACHE_SIZE = "NEGATIVE_LOOKUP_CACHE_SIZE";
+	
+	/**
+	 * Ids; with ID_BLOCK_SIZE > 0, ids are reserved in blocks through IdAllocator, which lets several nodes share
+	 * one database. Off by default; when on, NEGATIVE_LOOKUP_FILTERS is ignored, as a node's filters would not see
+	 * other nodes' additions.
+	 */
+	public static final String ID_BLOCK_SIZE = "ID_BLOCK_SIZE";
+	
 	/**
 	 * 
 	 */
@@ -114,6 +210,56 @@ public class SysConfig extends AbstractConfig {
 		doSetValue(SysConfig.DB_CONNECTION, "jdbc:postgresql://" + dbHostName + ":5432/wahlzeit");
 		doSetValue(SysConfig.DB_USER, "wahlzeit");
 		doSetValue(SysConfig.DB_PASSWORD, "wahlzeit");
+		
+		// Read replica
+		doSetValue(SysConfig.DB_REPLICA_CONNECTION, "");
+		doSetValue(SysConfig.DB_REPLICA_STICKY_TIME, "2000");
+		
+		// Database connection pool
+		doSetValue(SysConfig.DB_POOL_MAX_SIZE, "20");
+		doSetValue(SysConfig.DB_POOL_ACQUIRE_TIMEOUT, "5000");
+		doSetValue(SysConfig.DB_POOL_IDLE_TIMEOUT, "600000");
+		doSetValue(SysConfig.DB_POOL_MAX_LIFETIME, "1800000");
+		doSetValue(SysConfig.DB_POOL_LEAK_THRESHOLD, "60000");
+		doSetValue(SysConfig.DB_POOL_VALIDATION_TIMEOUT, "2");
+		doSetValue(SysConfig.DB_POOL_HOUSEKEEPING_PERIOD, "30000");
+		
+		// Saving objects
+		doSetValue(SysConfig.DB_BATCH_UPDATES, "true");
+		doSetValue(SysConfig.DB_BATCH_SIZE, "500");
+		doSetValue(SysConfig.DB_MERGE_POLICY, "merge");
+		doSetValue(SysConfig.DB_MERGE_RETRIES, "3");
+		doSetValue(SysConfig.WRITE_BEHIND, "true");
+		doSetValue(SysConfig.WRITE_BEHIND_QUEUE_SIZE, "10000");
+		doSetValue(SysConfig.WRITE_BEHIND_WORKERS, "2");
+		doSetValue(SysConfig.WRITE_BEHIND_BATCH_SIZE, "200");
+		doSetValue(SysConfig.WRITE_BEHIND_OFFER_TIMEOUT, "100");
+		doSetValue(SysConfig.DB_UNIT_OF_WORK, "false");
+		doSetValue(SysConfig.PRAISE_SAVE_PERIOD, "1000");
+		doSetValue(SysConfig.DB_STATEMENT_CACHE_SIZE, "64");
+		doSetValue(SysConfig.DB_QUERY_STATS, "true");
+		doSetValue(SysConfig.DB_SLOW_QUERY_THRESHOLD, "500");
+		
+		// Loading objects
+		doSetValue(SysConfig.DB_JOINED_HYDRATION, "true");
+		doSetValue(SysConfig.DB_PRELOAD_PHOTOS, "true");
+		doSetValue(SysConfig.DB_FETCH_SIZE, "1000");
+		
+		// Object caches
+		doSetValue(SysConfig.CACHE_PHOTOS_SIZE, "10000");
+		doSetValue(SysConfig.CACHE_USERS_SIZE, "10000");
+		doSetValue(SysConfig.CACHE_LOCATIONS_SIZE, "10000");
+		doSetValue(SysConfig.CACHE_COORDINATES_SIZE, "10000");
+		doSetValue(SysConfig.CACHE_FILTERS_SIZE, "1000");
+		
+		// Negative lookups
+		doSetValue(SysConfig.NEGATIVE_LOOKUP_FILTERS, "true");
+		doSetValue(SysConfig.NEGATIVE_LOOKUP_FPP, "0.01");
+		doSetValue(SysConfig.NEGATIVE_LOOKUP_TTL, "60000");
+		doSetValue(SysConfig.NEGATIVE_LOOKUP_CACHE_SIZE, "10000");
+		
+		// Ids
+		doSetValue(SysConfig.ID_BLOCK_SIZE, "0");
 	}
 	
 	/**
@@ -192,5 +338,236 @@ public class SysConfig extends AbstractConfig {
 	public static String getDbPasswordAsString() {
 		return getInstance().getValue(SysConfig.DB_PASSWORD);
 	}
+	
+	/**
+	 * 
+	 */
+	public static boolean hasDbReplica() {
+		return !getDbReplicaConnectionAsString().trim().isEmpty();
+	}
+	
+	/**
+	 * 
+	 */
+	public static String getDbReplicaConnectionAsString() {
+		return getInstance().getValue(SysConfig.DB_REPLICA_CONNECTION);
+	}
+	
+	/**
+	 * 
+	 */
+	public static long getDbReplicaStickyTime() {
+		return getInstance().getValueAsLong(SysConfig.DB_REPLICA_STICKY_TIME);
+	}
+
+	/**
+	 * 
+	 */
+	public static int getDbPoolMaxSize() {
+		return getInstance().getValueAsInt(SysConfig.DB_POOL_MAX_SIZE);
+	}
+	
+	/**
+	 * 
+	 */
+	public static long getDbPoolAcquireTimeout() {
+		return getInstance().getValueAsLong(SysConfig.DB_POOL_ACQUIRE_TIMEOUT);
+	}
+	
+	/**
+	 * 
+	 */
+	public static long getDbPoolIdleTimeout() {
+		return getInstance().getValueAsLong(SysConfig.DB_POOL_IDLE_TIMEOUT);
+	}
+	
+	/**
+	 * 
+	 */
+	public static long getDbPoolMaxLifetime() {
+		return getInstance().getValueAsLong(SysConfig.DB_POOL_MAX_LIFETIME);
+	}
+	
+	/**
+	 * 
+	 */
+	public static long getDbPoolLeakThreshold() {
+		return getInstance().getValueAsLong(SysConfig.DB_POOL_LEAK_THRESHOLD);
+	}
+	
+	/**
+	 * 
+	 */
+	public static int getDbPoolValidationTimeout() {
+		return getInstance().getValueAsInt(SysConfig.DB_POOL_VALIDATION_TIMEOUT);
+	}
+	
+	/**
+	 * 
+	 */
+	public static long getDbPoolHousekeepingPeriod() {
+		return getInstance().getValueAsLong(SysConfig.DB_POOL_HOUSEKEEPING_PERIOD);
+	}
+	
+	/**
+	 * 
+	 */
+	public static boolean isDbBatchUpdates() {
+		return getInstance().getValueAsBoolean(SysConfig.DB_BATCH_UPDATES);
+	}
+	
+	/**
+	 * 
+	 */
+	public static int getDbBatchSize() {
+		return getInstance().getValueAsInt(SysConfig.DB_BATCH_SIZE);
+	}
+	
+	/**
+	 * 
+	 */
+	public static boolean isDbJoinedHydration() {
+		return getInstance().getValueAsBoolean(SysConfig.DB_JOINED_HYDRATION);
+	}
+	
+	/**
+	 * 
+	 */
+	public static boolean isDbPreloadPhotos() {
+		return getInstance().getValueAsBoolean(SysConfig.DB_PRELOAD_PHOTOS);
+	}
+
+	/**
+	 * 
+	 */
+	public static boolean isNegativeLookupFilters() {
+		return getInstance().getValueAsBoolean(SysConfig.NEGATIVE_LOOKUP_FILTERS);
+	}
+	
+	/**
+	 * 
+	 */
+	public static double getNegativeLookupFalsePositiveRate() {
+		return Double.parseDouble(getInstance().getValue(SysConfig.NEGATIVE_LOOKUP_FPP).trim());
+	}
+	
+	/**
+	 * 
+	 */
+	public static long getNegativeLookupTtl() {
+		return getInstance().getValueAsLong(SysConfig.NEGATIVE_LOOKUP_TTL);
+	}
+	
+	/**
+	 * 
+	 */
+	public static int getNegativeLookupCacheSize() {
+		return getInstance().getValueAsInt(SysConfig.NEGATIVE_LOOKUP_CACHE_SIZE);
+	}
+
+	/**
+	 * 
+	 */
+	public static int getIdBlockSize() {
+		return getInstance().getValueAsInt(SysConfig.ID_BLOCK_SIZE);
+	}
+
+	/**
+	 * 
+	 */
+	public static int getDbStatementCacheSize() {
+		return getInstance().getValueAsInt(SysConfig.DB_STATEMENT_CACHE_SIZE);
+	}
+
+	/**
+	 * 
+	 */
+	public static MergePolicy getDbMergePolicy() {
+		return MergePolicy.getFromString(getInstance().getValue(SysConfig.DB_MERGE_POLICY));
+	}
+
+	/**
+	 * 
+	 */
+	public static int getDbMergeRetries() {
+		return getInstance().getValueAsInt(SysConfig.DB_MERGE_RETRIES);
+	}
+
+	/**
+	 * 
+	 */
+	public static boolean isWriteBehind() {
+		return getInstance().getValueAsBoolean(SysConfig.WRITE_BEHIND);
+	}
+
+	/**
+	 * 
+	 */
+	public static int getWriteBehindQueueSize() {
+		return getInstance().getValueAsInt(SysConfig.WRITE_BEHIND_QUEUE_SIZE);
+	}
+
+	/**
+	 * 
+	 */
+	public static int getWriteBehindWorkers() {
+		return getInstance().getValueAsInt(SysConfig.WRITE_BEHIND_WORKERS);
+	}
+
+	/**
+	 * 
+	 */
+	public static int getWriteBehindBatchSize() {
+		return getInstance().getValueAsInt(SysConfig.WRITE_BEHIND_BATCH_SIZE);
+	}
+
+	/**
+	 * 
+	 */
+	public static long getWriteBehindOfferTimeout() {
+		return getInstance().getValueAsLong(SysConfig.WRITE_BEHIND_OFFER_TIMEOUT);
+	}
+
+	/**
+	 * 
+	 */
+	public static long getPraiseSavePeriod() {
+		return getInstance().getValueAsLong(SysConfig.PRAISE_SAVE_PERIOD);
+	}
+
+	/**
+	 * 
+	 */
+	public static boolean isDbQueryStats() {
+		return getInstance().getValueAsBoolean(SysConfig.DB_QUERY_STATS);
+	}
+
+	/**
+	 * 
+	 */
+	public static long getDbSlowQueryThreshold() {
+		return getInstance().getValueAsLong(SysConfig.DB_SLOW_QUERY_THRESHOLD);
+	}
+
+	/**
+	 * 
+	 */
+	public static int getDbFetchSize() {
+		return getInstance().getValueAsInt(SysConfig.DB_FETCH_SIZE);
+	}
+
+	/**
+	 * 
+	 */
+	public static boolean isDbUnitOfWork() {
+		return getInstance().getValueAsBoolean(SysConfig.DB_UNIT_OF_WORK);
+	}
+
+	/**
+	 * 
+	 */
+	public static int getCacheFiltersSize() {
+		return getInstance().getValueAsInt(SysConfig.CACHE_FILTERS_SIZE);
+	}
 
 }
@@ -52,23 +52,27 @@ public class SysLog extends Log {
 	}
 	
 	/**
-	 * 
+	 * Queries are logged at debug level only; slow ones are logged by QueryStats
 	 */
 	public static final void logQuery(Statement q) {
-		StringBuffer sb = createSysLogEntry();
-		addLogType(sb, "info");
-		addQuery(sb, q);
-		log(sb);
+		if (isDebugEnabled()) {
+			StringBuffer sb = createSysLogEntry();
+			addLogType(sb, "debug");
+			addQuery(sb, q);
+			logDebug(sb);
+		}
 	}
 	
 	/**
 	 * 
 	 */
 	public static final void logQuery(String s) {
-		StringBuffer sb = createSysLogEntry();
-		addLogType(sb, "info");
-		addField(sb, "query", s);
-		log(sb);
+		if (isDebugEnabled()) {
+			StringBuffer sb = createSysLogEntry();
+			addLogType(sb, "debug");
+			addField(sb, "query", s);
+			logDebug(sb);
+		}
 	}
 	
 	/**
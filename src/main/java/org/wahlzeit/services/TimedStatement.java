@@ -0,0 +1,129 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.sql.*;
+
+/**
+ * Wraps a PreparedStatement so that its executions are timed and recorded in the QueryStats of its SQL text.
+ * Rows are counted as update counts for updates and as they are read for queries.
+ */
+public class TimedStatement extends DelegatingPreparedStatement {
+
+	/**
+	 * @methodtype factory
+	 */
+	public static PreparedStatement wrap(PreparedStatement stmt, String sql) {
+		return new TimedStatement(stmt, QueryStats.forSql(sql));
+	}
+
+	/**
+	 *
+	 */
+	protected final QueryStats stats;
+
+	/**
+	 *
+	 */
+	protected TimedStatement(PreparedStatement myStmt, QueryStats myStats) {
+		super(myStmt);
+		stats = myStats;
+	}
+
+	/**
+	 *
+	 */
+	public ResultSet executeQuery() throws SQLException {
+		long start = System.nanoTime();
+		ResultSet result = stmt.executeQuery();
+		stats.record(System.nanoTime() - start, 0, stmt);
+		return countRows(result);
+	}
+
+	/**
+	 *
+	 */
+	public ResultSet executeQuery(String sql) throws SQLException {
+		long start = System.nanoTime();
+		ResultSet result = stmt.executeQuery(sql);
+		stats.record(System.nanoTime() - start, 0, stmt);
+		return countRows(result);
+	}
+
+	/**
+	 *
+	 */
+	public int executeUpdate() throws SQLException {
+		long start = System.nanoTime();
+		int result = stmt.executeUpdate();
+		stats.record(System.nanoTime() - start, Math.max(0, result), stmt);
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	public long executeLargeUpdate() throws SQLException {
+		long start = System.nanoTime();
+		long result = stmt.executeLargeUpdate();
+		stats.record(System.nanoTime() - start, Math.max(0, result), stmt);
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	public boolean execute() throws SQLException {
+		long start = System.nanoTime();
+		boolean result = stmt.execute();
+		stats.record(System.nanoTime() - start, 0, stmt);
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	public int[] executeBatch() throws SQLException {
+		long start = System.nanoTime();
+		int[] result = stmt.executeBatch();
+		long rows = 0;
+		for (int count : result) {
+			rows += Math.max(0, count);
+		}
+		stats.record(System.nanoTime() - start, rows, stmt);
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	public long[] executeLargeBatch() throws SQLException {
+		long start = System.nanoTime();
+		long[] result = stmt.executeLargeBatch();
+		long rows = 0;
+		for (long count : result) {
+			rows += Math.max(0, count);
+		}
+		stats.record(System.nanoTime() - start, rows, stmt);
+		return result;
+	}
+
+	/**
+	 * Counts the rows read through rset
+	 */
+	protected ResultSet countRows(ResultSet rset) {
+		return new DelegatingResultSet(rset) {
+			public boolean next() throws SQLException {
+				boolean result = rset.next();
+				if (result) {
+					stats.addRows(1);
+				}
+				return result;
+			}
+		};
+	}
+
+}
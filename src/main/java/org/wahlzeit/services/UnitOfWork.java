@@ -0,0 +1,332 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A UnitOfWork makes the writes of one request a single transaction.
+ *
+ * The first write of the request starts the transaction on the session's database connection; inserts and
+ * deletes run right away within it. Saves of changed objects are only registered, and at commit() each object
+ * is saved once, in the dependency order of its manager, see ObjectManager.getDependencyRank(). Registered
+ * actions, e.g. saving the globals, run after the objects. If anything fails, the whole transaction is
+ * rolled back and the objects are left dirty, to be saved again later; objects inserted within the
+ * transaction are dropped by their managers, as their rows are gone, and the managers of the other objects
+ * forget what they took as written of their dependents, see ObjectManager.rollbackDependents().
+ *
+ * A UnitOfWork belongs to the session of the request thread and is not thread-safe.
+ */
+public class UnitOfWork {
+
+	/**
+	 * A write to run once at commit time
+	 */
+	public interface Action {
+
+		/**
+		 *
+		 */
+		public void perform() throws SQLException;
+
+	}
+
+	/**
+	 * Statistics over all units of work
+	 */
+	protected static final LongAdder commits = new LongAdder();
+	protected static final LongAdder rollbacks = new LongAdder();
+	protected static final LongAdder savedObjects = new LongAdder();
+
+	/**
+	 *
+	 */
+	protected final Session session;
+
+	/**
+	 * Objects to save, in the order of their first registration
+	 */
+	protected final Map<Persistent, Registration> objects = new LinkedHashMap<Persistent, Registration>();
+
+	/**
+	 * Actions by key; registering a key again does not run the action twice
+	 */
+	protected final Map<String, Action> actions = new LinkedHashMap<String, Action>();
+
+	/**
+	 * Objects inserted within the transaction, to be dropped if it is rolled back
+	 */
+	protected final List<Registration> inserts = new ArrayList<Registration>();
+
+	/**
+	 * The connection the transaction runs on, null if none has been started
+	 */
+	protected DatabaseConnection transactionConnection = null;
+
+	/**
+	 *
+	 */
+	public UnitOfWork(Session mySession) {
+		session = mySession;
+	}
+
+	/**
+	 * Starts the transaction on dbc, if it has not been started yet
+	 */
+	public void begin(DatabaseConnection dbc) {
+		if (transactionConnection == null) {
+			try {
+				dbc.getRdbmsConnection().setAutoCommit(false);
+				transactionConnection = dbc;
+			} catch (SQLException sex) {
+				SysLog.logThrowable(sex);
+			}
+		}
+	}
+
+	/**
+	 *
+	 */
+	public boolean isInTransaction() {
+		return transactionConnection != null;
+	}
+
+	/**
+	 * Registers obj to be saved to tableName by manager at commit time
+	 */
+	public void register(ObjectManager manager, String tableName, Persistent obj) {
+		if (!objects.containsKey(obj)) {
+			objects.put(obj, new Registration(manager, tableName, obj));
+		}
+	}
+
+	/**
+	 * Registers obj as inserted by manager within the transaction
+	 */
+	public void registerInsert(ObjectManager manager, Persistent obj) {
+		if (isInTransaction()) {
+			inserts.add(new Registration(manager, "", obj));
+		}
+	}
+
+	/**
+	 * Registers action to run at commit time, after the objects have been saved
+	 */
+	public void registerAction(String key, Action action) {
+		if (!actions.containsKey(key)) {
+			actions.put(key, action);
+		}
+	}
+
+	/**
+	 *
+	 */
+	public int getRegisteredCount() {
+		return objects.size() + actions.size();
+	}
+
+	/**
+	 * Saves the registered objects, runs the registered actions, and commits the transaction.
+	 * The unit of work can take further writes afterwards, for another transaction.
+	 */
+	public void commit() throws SQLException {
+		if (!isInTransaction() && (getRegisteredCount() == 0)) {
+			return;
+		}
+
+		DatabaseConnection dbc = session.ensureDatabaseConnection();
+		if (dbc != null) {
+			begin(dbc);
+		}
+		if (!isInTransaction()) {
+			rollback();
+			throw new SQLException("could not start transaction for session " + session.getName());
+		}
+
+		List<Registration> registrations = getRegistrationsInOrder();
+		List<Action> todo = new ArrayList<Action>(actions.values());
+		objects.clear();
+		actions.clear();
+
+		Map<Versioned, Integer> versions = new HashMap<Versioned, Integer>();
+		for (Registration registration : registrations) {
+			if (registration.obj instanceof Versioned) {
+				versions.put((Versioned) registration.obj, ((Versioned) registration.obj).getVersion());
+			}
+		}
+
+		Connection conn = transactionConnection.getRdbmsConnection();
+		try {
+			for (int from = 0; from < registrations.size(); ) {
+				Registration first = registrations.get(from);
+				List<Persistent> objs = new ArrayList<Persistent>();
+				int to = from;
+				for (; (to < registrations.size()) && first.isForSameTable(registrations.get(to)); to++) {
+					objs.add(registrations.get(to).obj);
+				}
+				first.manager.saveObjects(first.tableName, objs);
+				from = to;
+			}
+
+			for (Action action : todo) {
+				action.perform();
+			}
+
+			conn.commit();
+			commits.increment();
+			savedObjects.add(registrations.size());
+			inserts.clear();
+		} catch (SQLException ex) {
+			rollbackTransaction();
+			Set<Persistent> droppedObjects = dropInserts();
+			for (Registration registration : registrations) {
+				Persistent obj = registration.obj;
+				if (droppedObjects.contains(obj)) {
+					continue;
+				}
+				registration.manager.rollbackDependents(obj);
+				if (obj instanceof Versioned) {
+					((Versioned) obj).setVersion(versions.get(obj));
+				}
+				if (obj.isDirty()) {
+					registration.manager.markDirty(obj);
+				} else {
+					obj.incWriteCount();
+				}
+			}
+			throw ex;
+		} finally {
+			endTransaction();
+		}
+	}
+
+	/**
+	 * Rolls back what has been written so far and drops the registered saves;
+	 * the objects stay dirty, so they are saved later on
+	 */
+	public void rollback() {
+		boolean wasInTransaction = isInTransaction();
+		Set<Persistent> droppedObjects = Collections.emptySet();
+		if (wasInTransaction) {
+			rollbackTransaction();
+			droppedObjects = dropInserts();
+			endTransaction();
+		}
+
+		for (Registration registration : objects.values()) {
+			if (droppedObjects.contains(registration.obj)) {
+				continue;
+			}
+			if (wasInTransaction) {
+				registration.manager.rollbackDependents(registration.obj);
+			}
+			if (registration.obj.isDirty()) {
+				registration.manager.markDirty(registration.obj);
+			}
+		}
+		objects.clear();
+		actions.clear();
+	}
+
+	/**
+	 * @return the registrations, sorted by dependency rank, and else in the order of registration
+	 */
+	protected List<Registration> getRegistrationsInOrder() {
+		List<Registration> result = new ArrayList<Registration>(objects.values());
+		Collections.sort(result, new Comparator<Registration>() {
+			public int compare(Registration r1, Registration r2) {
+				int order = Integer.compare(r1.manager.getDependencyRank(), r2.manager.getDependencyRank());
+				if (order == 0) {
+					order = Integer.compare(System.identityHashCode(r1.manager), System.identityHashCode(r2.manager));
+				}
+				return (order != 0) ? order : r1.tableName.compareTo(r2.tableName);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	protected void rollbackTransaction() {
+		try {
+			transactionConnection.getRdbmsConnection().rollback();
+		} catch (SQLException sex) {
+			SysLog.logThrowable(sex);
+		}
+		rollbacks.increment();
+	}
+
+	/**
+	 * Has the managers forget the objects whose inserts were rolled back
+	 * @return the dropped objects
+	 */
+	protected Set<Persistent> dropInserts() {
+		Set<Persistent> result = new HashSet<Persistent>();
+		for (Registration insert : inserts) {
+			insert.manager.dropObject(insert.obj);
+			result.add(insert.obj);
+		}
+		inserts.clear();
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	protected void endTransaction() {
+		try {
+			transactionConnection.getRdbmsConnection().setAutoCommit(true);
+		} catch (SQLException sex) {
+			SysLog.logThrowable(sex);
+		}
+		transactionConnection = null;
+	}
+
+	/**
+	 *
+	 */
+	public static long getCommitCount() {
+		return commits.sum();
+	}
+
+	/**
+	 *
+	 */
+	public static long getRollbackCount() {
+		return rollbacks.sum();
+	}
+
+	/**
+	 *
+	 */
+	public static long getSavedObjectCount() {
+		return savedObjects.sum();
+	}
+
+	/**
+	 * A registered save
+	 */
+	protected static class Registration {
+
+		protected final ObjectManager manager;
+		protected final String tableName;
+		protected final Persistent obj;
+
+		protected Registration(ObjectManager myManager, String myTableName, Persistent myObj) {
+			manager = myManager;
+			tableName = myTableName;
+			obj = myObj;
+		}
+
+		protected boolean isForSameTable(Registration other) {
+			return (manager == other.manager) && tableName.equals(other.tableName);
+		}
+	}
+
+}
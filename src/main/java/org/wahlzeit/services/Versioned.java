@@ -0,0 +1,38 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.sql.*;
+
+/**
+ * A Versioned object is a Persistent object whose row has a version column.
+ * ObjectManager only updates the row if it is still at the version the object was read at,
+ * so that concurrent saves of the same object are detected rather than overwriting each other.
+ */
+public interface Versioned extends Persistent {
+	
+	/**
+	 * Name of the version column
+	 */
+	public static final String VERSION = "version";
+	
+	/**
+	 * 
+	 */
+	public int getVersion();
+	
+	/**
+	 * Tells the object that its row now is at newVersion and holds the object's values
+	 */
+	public void setVersion(int newVersion);
+	
+	/**
+	 * Merges the changes made to this object since it was read or saved into rset, the newer version of its row.
+	 * Afterwards, the object holds the merged values and is at the version of rset.
+	 */
+	public void mergeWith(ResultSet rset) throws SQLException;
+	
+}
@@ -0,0 +1,406 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.services;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Saves objects on persistence worker threads instead of the request thread (write-behind).
+ *
+ * Each object always goes to the same worker, so writes of one object never overtake each other.
+ * An object that is already waiting to be written is not queued again; the write saves its latest state.
+ * A worker writes whatever has accumulated in its queue, up to a batch size, in one transaction.
+ * An object is taken off the pending objects before it is written, so a save requested while the write
+ * is under way queues it again; changes made during the write keep it dirty, see ChangeTracked.
+ * If the transaction fails, its objects are queued again after a delay that doubles with each failed
+ * attempt, up to MAX_RETRY_DELAY; after shutDown(), they are left dirty for ObjectManager.saveAll().
+ *
+ * The queues are bounded: if a queue stays full for the offer timeout, add() declines and the caller
+ * saves the object itself. After shutDown(), add() declines as well.
+ *
+ * Saves within a UnitOfWork do not come here, see ObjectManager.saveLater() and SysConfig.DB_UNIT_OF_WORK.
+ */
+public class WriteBehindQueue {
+
+	/**
+	 * Delay of the first retry of a failed write, and the most a retry is delayed, in milliseconds
+	 */
+	protected static final long RETRY_DELAY = 1000;
+	protected static final long MAX_RETRY_DELAY = 60000;
+
+	/**
+	 * Null if objects are saved on the calling thread, e.g. in tools and tests
+	 */
+	protected static volatile WriteBehindQueue instance = null;
+
+	/**
+	 *
+	 */
+	public static WriteBehindQueue getInstance() {
+		return instance;
+	}
+
+	/**
+	 *
+	 */
+	public static void setInstance(WriteBehindQueue newInstance) {
+		instance = newInstance;
+	}
+
+	/**
+	 *
+	 */
+	protected final Worker[] workers;
+	protected final int batchSize;
+	protected final long offerTimeout;
+
+	/**
+	 * Objects waiting to be written
+	 */
+	protected final ConcurrentHashMap<Persistent, Write> pending = new ConcurrentHashMap<Persistent, Write>();
+
+	/**
+	 *
+	 */
+	protected volatile boolean isStopped = false;
+
+	/**
+	 * Statistics
+	 */
+	protected final LongAdder queued = new LongAdder();
+	protected final LongAdder coalesced = new LongAdder();
+	protected final LongAdder declined = new LongAdder();
+	protected final LongAdder written = new LongAdder();
+	protected final LongAdder failed = new LongAdder();
+	protected final LongAdder retried = new LongAdder();
+	protected final LongAdder transactions = new LongAdder();
+
+	/**
+	 *
+	 */
+	public WriteBehindQueue(int capacity, int noWorkers, int myBatchSize, long myOfferTimeout) {
+		batchSize = Math.max(1, myBatchSize);
+		offerTimeout = myOfferTimeout;
+
+		workers = new Worker[Math.max(1, noWorkers)];
+		int workerCapacity = Math.max(1, capacity / workers.length);
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Worker("write-behind" + i, workerCapacity);
+		}
+	}
+
+	/**
+	 * @methodtype factory
+	 */
+	public static WriteBehindQueue createFromSysConfig() {
+		return new WriteBehindQueue(
+			SysConfig.getWriteBehindQueueSize(),
+			SysConfig.getWriteBehindWorkers(),
+			SysConfig.getWriteBehindBatchSize(),
+			SysConfig.getWriteBehindOfferTimeout()
+		);
+	}
+
+	/**
+	 *
+	 */
+	public void start() {
+		for (Worker worker : workers) {
+			worker.start();
+		}
+	}
+
+	/**
+	 * Queues obj to be saved to tableName by manager.
+	 * @return false if obj was not queued and the caller has to save it
+	 */
+	public boolean add(ObjectManager manager, String tableName, Persistent obj) {
+		if (isStopped) {
+			declined.increment();
+			return false;
+		}
+
+		Write write = new Write(manager, tableName, obj);
+		if (pending.putIfAbsent(obj, write) != null) {
+			coalesced.increment();
+			return true;
+		}
+
+		try {
+			if (getWorker(obj).queue.offer(write, offerTimeout, TimeUnit.MILLISECONDS)) {
+				queued.increment();
+				return true;
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+
+		pending.remove(obj, write);
+		declined.increment();
+		return false;
+	}
+
+	/**
+	 * Stops taking objects, lets the workers write what is queued, and writes what they left behind
+	 */
+	public void shutDown() throws InterruptedException {
+		isStopped = true;
+		for (Worker worker : workers) {
+			worker.join();
+		}
+
+		for (Worker worker : workers) {
+			List<Write> writes = new ArrayList<Write>(worker.retries);
+			worker.retries.clear();
+			worker.queue.drainTo(writes);
+			if (!writes.isEmpty()) {
+				flush(writes);
+			}
+		}
+
+		SysLog.logSysInfo("write-behind queue stopped: " + getStatsAsString());
+	}
+
+	/**
+	 *
+	 */
+	protected Worker getWorker(Persistent obj) {
+		return workers[(System.identityHashCode(obj) & Integer.MAX_VALUE) % workers.length];
+	}
+
+	/**
+	 * Writes writes in one transaction; if it fails, the objects are left dirty for the next save.
+	 * Uses and returns the database connection of the current thread's session.
+	 */
+	protected void flush(List<Write> writes) {
+		Map<ObjectManager, Map<String, List<Persistent>>> objsByManager = new LinkedHashMap<ObjectManager, Map<String, List<Persistent>>>();
+		Map<Versioned, Integer> versions = new HashMap<Versioned, Integer>();
+		for (Write write : writes) {
+			pending.remove(write.obj, write);
+			if (write.obj instanceof Versioned) {
+				versions.put((Versioned) write.obj, ((Versioned) write.obj).getVersion());
+			}
+
+			Map<String, List<Persistent>> objsByTable = objsByManager.get(write.manager);
+			if (objsByTable == null) {
+				objsByTable = new LinkedHashMap<String, List<Persistent>>();
+				objsByManager.put(write.manager, objsByTable);
+			}
+			List<Persistent> objs = objsByTable.get(write.tableName);
+			if (objs == null) {
+				objs = new ArrayList<Persistent>();
+				objsByTable.put(write.tableName, objs);
+			}
+			objs.add(write.obj);
+		}
+
+		Session session = SessionManager.getThreadLocalSession();
+		try {
+			Connection conn = session.ensureDatabaseConnection().getRdbmsConnection();
+			conn.setAutoCommit(false);
+			try {
+				for (Map.Entry<ObjectManager, Map<String, List<Persistent>>> managerEntry : objsByManager.entrySet()) {
+					for (Map.Entry<String, List<Persistent>> tableEntry : managerEntry.getValue().entrySet()) {
+						managerEntry.getKey().saveObjects(tableEntry.getKey(), tableEntry.getValue());
+					}
+				}
+				conn.commit();
+				transactions.increment();
+				written.add(writes.size());
+			} catch (Exception ex) {
+				conn.rollback();
+				throw ex;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		} catch (Exception ex) {
+			SysLog.logThrowable(ex);
+			failed.add(writes.size());
+			for (Write write : writes) {
+				Persistent obj = write.obj;
+				write.manager.rollbackDependents(obj);
+				if (obj instanceof Versioned) {
+					((Versioned) obj).setVersion(versions.get(obj));
+				}
+				if (obj.isDirty()) {
+					write.manager.markDirty(obj);
+				} else {
+					obj.incWriteCount();
+				}
+				retry(write);
+			}
+		} finally {
+			session.returnDatabaseConnection();
+		}
+	}
+
+	/**
+	 * Queues the failed write again, after a delay, unless the object is pending already or the queue stopped
+	 */
+	protected void retry(Write write) {
+		if (isStopped) {
+			return;
+		}
+
+		int attempt = write.attempt + 1;
+		long delay = Math.min(MAX_RETRY_DELAY, RETRY_DELAY << Math.min(attempt - 1, 16));
+		Write retry = new Write(write.manager, write.tableName, write.obj, attempt, System.currentTimeMillis() + delay);
+		if (pending.putIfAbsent(write.obj, retry) == null) {
+			getWorker(write.obj).retries.add(retry);
+			retried.increment();
+		}
+	}
+
+	/**
+	 *
+	 */
+	public int getQueueSize() {
+		int result = 0;
+		for (Worker worker : workers) {
+			result += worker.queue.size() + worker.retries.size();
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	public long getQueuedCount() {
+		return queued.sum();
+	}
+
+	/**
+	 *
+	 */
+	public long getCoalescedCount() {
+		return coalesced.sum();
+	}
+
+	/**
+	 * @return saves that were left to the caller because a queue was full or the queue was stopped
+	 */
+	public long getDeclinedCount() {
+		return declined.sum();
+	}
+
+	/**
+	 *
+	 */
+	public long getWrittenCount() {
+		return written.sum();
+	}
+
+	/**
+	 *
+	 */
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	/**
+	 * @return failed writes that were queued again
+	 */
+	public long getRetriedCount() {
+		return retried.sum();
+	}
+
+	/**
+	 *
+	 */
+	public long getTransactionCount() {
+		return transactions.sum();
+	}
+
+	/**
+	 *
+	 */
+	public String getStatsAsString() {
+		return "queued=" + getQueuedCount() + " coalesced=" + getCoalescedCount() + " declined=" + getDeclinedCount()
+			+ " written=" + getWrittenCount() + " failed=" + getFailedCount() + " retried=" + getRetriedCount()
+			+ " transactions=" + getTransactionCount();
+	}
+
+	/**
+	 * A pending save; a retry is due at dueTime
+	 */
+	protected static class Write implements Delayed {
+
+		protected final ObjectManager manager;
+		protected final String tableName;
+		protected final Persistent obj;
+		protected final int attempt;
+		protected final long dueTime;
+
+		protected Write(ObjectManager myManager, String myTableName, Persistent myObj) {
+			this(myManager, myTableName, myObj, 0, 0);
+		}
+
+		protected Write(ObjectManager myManager, String myTableName, Persistent myObj, int myAttempt, long myDueTime) {
+			manager = myManager;
+			tableName = myTableName;
+			obj = myObj;
+			attempt = myAttempt;
+			dueTime = myDueTime;
+		}
+
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(dueTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+		}
+
+		public int compareTo(Delayed other) {
+			return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+		}
+	}
+
+	/**
+	 * A persistence worker with a queue of its own
+	 */
+	protected class Worker extends Thread {
+
+		protected final BlockingQueue<Write> queue;
+		protected final DelayQueue<Write> retries = new DelayQueue<Write>();
+
+		protected Worker(String myName, int capacity) {
+			super(myName);
+			queue = new LinkedBlockingQueue<Write>(capacity);
+		}
+
+		public void run() {
+			SessionManager.setThreadLocalSession(new SysSession(getName()));
+			SysLog.logSysInfo("started persistence worker", getName());
+
+			while (true) {
+				Write first = retries.poll();
+				try {
+					if (first == null) {
+						first = queue.poll(100, TimeUnit.MILLISECONDS);
+					}
+				} catch (InterruptedException ex) {
+					// check isStopped
+				}
+
+				if (first == null) {
+					if (isStopped) {
+						break;
+					}
+					continue;
+				}
+
+				List<Write> writes = new ArrayList<Write>();
+				writes.add(first);
+				retries.drainTo(writes, batchSize - 1);
+				queue.drainTo(writes, batchSize - writes.size());
+				flush(writes);
+			}
+
+			SessionManager.dropThreadLocalSession();
+		}
+	}
+
+}
@@ -60,8 +60,14 @@ public abstract class AbstractServlet extends HttpServlet {
 		if (ServiceMain.getInstance().isShuttingDown() || (us == null)) {
 			displayNullPage(request, response);
 		} else {
-			myGet(request, response);
-			us.returnDatabaseConnection();
+			SessionManager.beginUnitOfWork();
+			try {
+				myGet(request, response);
+				SessionManager.commitUnitOfWork();
+			} finally {
+				SessionManager.endUnitOfWork();
+				us.returnDatabaseConnection();
+			}
 		}
 
 		SessionManager.dropThreadLocalSession();
@@ -84,8 +90,14 @@ public abstract class AbstractServlet extends HttpServlet {
 		if (ServiceMain.getInstance().isShuttingDown() || (us == null)) {
 			displayNullPage(request, response);
 		} else {
-			myPost(request, response);
-			us.returnDatabaseConnection();
+			SessionManager.beginUnitOfWork();
+			try {
+				myPost(request, response);
+				SessionManager.commitUnitOfWork();
+			} finally {
+				SessionManager.endUnitOfWork();
+				us.returnDatabaseConnection();
+			}
 		}
 
 		SessionManager.dropThreadLocalSession();
@@ -142,6 +154,18 @@ public abstract class AbstractServlet extends HttpServlet {
 		response.setStatus(HttpServletResponse.SC_OK);
 	}
 	
+	/**
+	 * For requests whose writes could not be saved
+	 */
+	protected void displayErrorPage(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		response.setContentType("text/html");
+		response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+
+		PrintWriter out = response.getWriter();
+		out.print("Your changes could not be saved. Please go back and try again!");
+		out.close();
+	}
+	
 	/**
 	 * 
 	 */
@@ -57,6 +57,11 @@ public class MainServlet extends AbstractServlet {
 			newLink = handler.handleGet(us, link, args);
 		}
 
+		if (!SessionManager.commitUnitOfWork()) { // before the response, so the next request sees the writes
+			displayErrorPage(request, response);
+			return;
+		}
+		
 		if (newLink.equals(link)) { // no redirect necessary
 			WebPart result = handler.makeWebPart(us);
 			us.addProcessingTime(System.currentTimeMillis() - startTime);
@@ -96,6 +101,10 @@ public class MainServlet extends AbstractServlet {
 			link = formHandler.handlePost(us, args);
 		}
 
+		if (!SessionManager.commitUnitOfWork()) { // before the redirect, so the redirected request sees the writes
+			displayErrorPage(request, response);
+			return;
+		}
 		redirectRequest(response, link);
 		us.addProcessingTime(System.currentTimeMillis() - startTime);
 	}
@@ -0,0 +1,127 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.tools;
+
+import java.util.*;
+
+import org.wahlzeit.main.*;
+import org.wahlzeit.model.*;
+import org.wahlzeit.services.*;
+import org.wahlzeit.utils.*;
+
+/**
+ * A script to compare how fast PhotoManager, UserManager and LocationManager flush their dirty objects
+ * through updatable ResultSets (DB_BATCH_UPDATES false), with a single UPDATE per object (batches of one),
+ * and with batched UPDATE statements. It loads the existing rows, marks them all dirty and saves them again; 
+ * the rows' values do not change. Run it against a copy of the database, e.g. with
+ * "FlushBenchmark --rounds 5 --batchsize 100", and read the results from the log.
+ */
+@PatternInstance(
+	patternName = "Command",
+	participants = {
+		"ConcreteCommand"
+	}
+)
+public class FlushBenchmark extends ScriptMain {
+
+	/**
+	 *
+	 */
+	public static void main(String[] argv) {
+		new FlushBenchmark().run(argv);
+	}
+
+	/**
+	 *
+	 */
+	protected int rounds = 3;
+	protected String batchSize = null;
+
+	/**
+	 *
+	 */
+	protected int handleArg(String arg, int i, String[] argv) {
+		if (arg.equals("--rounds")) {
+			rounds = Integer.parseInt(argv[++i]);
+		} else if (arg.equals("--batchsize")) {
+			batchSize = argv[++i];
+		} else {
+			i = super.handleArg(arg, i, argv);
+		}
+
+		return i;
+	}
+
+	/**
+	 *
+	 */
+	protected void execute() throws Exception {
+		if (batchSize == null) {
+			batchSize = String.valueOf(SysConfig.getDbBatchSize());
+		}
+
+		final List<Photo> photos = new ArrayList<Photo>();
+		PhotoManager.getInstance().loadPhotos(photos);
+		benchmark("photos", photos, new Runnable() {
+			public void run() {
+				PhotoManager.getInstance().savePhotos();
+			}
+		});
+
+		final List<User> users = new ArrayList<User>();
+		UserManager.getInstance().loadUsers(users);
+		benchmark("users", users, new Runnable() {
+			public void run() {
+				UserManager.getInstance().saveUsers();
+			}
+		});
+
+		final List<Location> locations = new ArrayList<Location>();
+		LocationManager.getInstance().loadLocations(locations);
+		benchmark("locations", locations, new Runnable() {
+			public void run() {
+				LocationManager.getInstance().saveLocations();
+			}
+		});
+	}
+
+	/**
+	 *
+	 */
+	protected void benchmark(String name, Collection<? extends Persistent> objs, Runnable flush) {
+		if (objs.isEmpty()) {
+			SysLog.logSysInfo("benchmark", name, "no rows to flush");
+			return;
+		}
+
+		benchmark(name, objs, flush, "false", batchSize, "updatable result set");
+		benchmark(name, objs, flush, "true", "1", "single UPDATE per object (batch size 1)");
+		benchmark(name, objs, flush, "true", batchSize, "batch update (size " + batchSize + ")");
+	}
+
+	/**
+	 * Flushes objs rounds times with the given settings and logs the best time
+	 */
+	protected void benchmark(String name, Collection<? extends Persistent> objs, Runnable flush, String batchUpdates, String size, String label) {
+		SysConfig.getInstance().setValue(SysConfig.DB_BATCH_UPDATES, batchUpdates);
+		SysConfig.getInstance().setValue(SysConfig.DB_BATCH_SIZE, size);
+		long bestTime = Long.MAX_VALUE;
+		for (int round = 0; round < rounds; round++) {
+			for (Persistent obj : objs) {
+				obj.incWriteCount();
+			}
+
+			long startTime = System.nanoTime();
+			flush.run();
+			bestTime = Math.min(bestTime, System.nanoTime() - startTime);
+		}
+
+		double objsPerSecond = objs.size() * 1e9 / Math.max(1, bestTime);
+		SysLog.logSysInfo("benchmark", name, String.format(Locale.ROOT, "%s: %d rows in %.1f ms, %.0f rows/s",
+			label, objs.size(), bestTime / 1e6, objsPerSecond));
+	}
+
+}
@@ -0,0 +1,483 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.utils;
+
+import java.util.*;
+
+/**
+ * A compressed set of non-negative ints, e.g. photo ids, in the style of a Roaring bitmap.
+ *
+ * Values are grouped by their high 16 bits. Each group (container) holds the low 16 bits either in a sorted array,
+ * two bytes per value, or, once it has more than 4096 values, in a bitmap of 8 KB. Membership takes a binary search
+ * over the containers and then an array search or a bit test. select(rank), the value at a position in ascending
+ * order, binary-searches the running totals of the container counts, and in a bitmap skips blocks of 64 words and
+ * then single words by their counts. Sparse sets take little more than two bytes per value.
+ */
+public class IntBitmap {
+
+	/**
+	 * Containers with more values than this are bitmaps
+	 */
+	protected static final int MAX_ARRAY_SIZE = 4096;
+
+	/**
+	 * High 16 bits of the values in containers[i], ascending
+	 */
+	protected char[] keys = new char[0];
+	protected Container[] containers = new Container[0];
+	protected int noContainers = 0;
+
+	/**
+	 *
+	 */
+	protected int cardinality = 0;
+
+	/**
+	 * Number of values in containers[0] to containers[i]; computed by select, dropped on change
+	 */
+	protected int[] runningCounts = null;
+
+	/**
+	 * A frozen bitmap can be shared, as it no longer changes
+	 */
+	protected boolean isFrozen = false;
+
+	/**
+	 *
+	 */
+	public IntBitmap() {
+		// do nothing
+	}
+
+	/**
+	 * @methodtype factory
+	 */
+	public static IntBitmap fromArray(int[] values) {
+		IntBitmap result = new IntBitmap();
+		for (int value : values) {
+			result.add(value);
+		}
+		return result;
+	}
+
+	/**
+	 * @return true if value was not in the set
+	 */
+	public boolean add(int value) {
+		assertIsNotFrozen();
+		assertIsNonNegative(value);
+		char key = (char) (value >>> 16);
+		int pos = getContainerPos(key);
+		if (pos < 0) {
+			pos = -pos - 1;
+			insertContainerAt(pos, key, new ArrayContainer());
+		}
+
+		Container container = containers[pos];
+		int oldCardinality = container.getCardinality();
+		containers[pos] = container.add((char) value);
+		if (containers[pos].getCardinality() == oldCardinality) {
+			return false;
+		}
+
+		cardinality++;
+		runningCounts = null;
+		return true;
+	}
+
+	/**
+	 * @return true if value was in the set
+	 */
+	public boolean remove(int value) {
+		assertIsNotFrozen();
+		if (value < 0) {
+			return false;
+		}
+
+		int pos = getContainerPos((char) (value >>> 16));
+		if (pos < 0) {
+			return false;
+		}
+
+		Container container = containers[pos];
+		int oldCardinality = container.getCardinality();
+		containers[pos] = container.remove((char) value);
+		if (containers[pos].getCardinality() == oldCardinality) {
+			return false;
+		}
+
+		cardinality--;
+		runningCounts = null;
+		if (containers[pos].getCardinality() == 0) {
+			removeContainerAt(pos);
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 */
+	public boolean contains(int value) {
+		if (value < 0) {
+			return false;
+		}
+
+		int pos = getContainerPos((char) (value >>> 16));
+		return (pos >= 0) && containers[pos].contains((char) value);
+	}
+
+	/**
+	 *
+	 */
+	public int size() {
+		return cardinality;
+	}
+
+	/**
+	 *
+	 */
+	public boolean isEmpty() {
+		return cardinality == 0;
+	}
+
+	/**
+	 *
+	 */
+	public void clear() {
+		assertIsNotFrozen();
+		keys = new char[0];
+		containers = new Container[0];
+		noContainers = 0;
+		cardinality = 0;
+		runningCounts = null;
+	}
+
+	/**
+	 * Makes the bitmap unchangeable
+	 * @return this
+	 */
+	public IntBitmap freeze() {
+		isFrozen = true;
+		getRunningCounts(); // before the bitmap is shared
+		return this;
+	}
+
+	/**
+	 *
+	 */
+	public boolean isFrozen() {
+		return isFrozen;
+	}
+
+	/**
+	 * @return the value at position rank (0-based) in ascending order
+	 */
+	public int select(int rank) {
+		if ((rank < 0) || (rank >= cardinality)) {
+			throw new IndexOutOfBoundsException("rank " + rank + " of " + cardinality + " values");
+		}
+
+		// the first container whose running count exceeds rank; counts increase strictly, as no container is empty
+		int[] counts = getRunningCounts();
+		int i = Arrays.binarySearch(counts, 0, noContainers, rank + 1);
+		if (i < 0) {
+			i = -i - 1;
+		}
+
+		int containerRank = (i == 0) ? rank : rank - counts[i - 1];
+		return (keys[i] << 16) | containers[i].select(containerRank);
+	}
+
+	/**
+	 *
+	 */
+	protected int[] getRunningCounts() {
+		int[] result = runningCounts;
+		if (result == null) {
+			result = new int[noContainers];
+			int count = 0;
+			for (int i = 0; i < noContainers; i++) {
+				count += containers[i].getCardinality();
+				result[i] = count;
+			}
+			runningCounts = result;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the values in ascending order
+	 */
+	public int[] toArray() {
+		int[] result = new int[cardinality];
+		int pos = 0;
+		for (int i = 0; i < noContainers; i++) {
+			pos = containers[i].copyTo(result, pos, keys[i] << 16);
+		}
+		return result;
+	}
+
+	/**
+	 * @return approximate memory taken by the values, in bytes
+	 */
+	public long getSizeInBytes() {
+		long result = 0;
+		for (int i = 0; i < noContainers; i++) {
+			result += 2 + containers[i].getSizeInBytes();
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	public String toString() {
+		return "IntBitmap[" + cardinality + " values in " + noContainers + " containers]";
+	}
+
+	/**
+	 *
+	 */
+	protected int getContainerPos(char key) {
+		return Arrays.binarySearch(keys, 0, noContainers, key);
+	}
+
+	/**
+	 *
+	 */
+	protected void insertContainerAt(int pos, char key, Container container) {
+		if (noContainers == keys.length) {
+			int newLength = noContainers + (noContainers >> 1) + 1;
+			keys = Arrays.copyOf(keys, newLength);
+			containers = Arrays.copyOf(containers, newLength);
+		}
+		System.arraycopy(keys, pos, keys, pos + 1, noContainers - pos);
+		System.arraycopy(containers, pos, containers, pos + 1, noContainers - pos);
+		keys[pos] = key;
+		containers[pos] = container;
+		noContainers++;
+	}
+
+	/**
+	 *
+	 */
+	protected void removeContainerAt(int pos) {
+		System.arraycopy(keys, pos + 1, keys, pos, noContainers - pos - 1);
+		System.arraycopy(containers, pos + 1, containers, pos, noContainers - pos - 1);
+		noContainers--;
+		containers[noContainers] = null;
+	}
+
+	/**
+	 *
+	 */
+	protected void assertIsNotFrozen() {
+		if (isFrozen) {
+			throw new UnsupportedOperationException("bitmap is frozen");
+		}
+	}
+
+	/**
+	 *
+	 */
+	protected void assertIsNonNegative(int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("value should not be negative: " + value);
+		}
+	}
+
+	/**
+	 * The low 16 bits of the values that share their high 16 bits.
+	 * Changes return the container to use from then on, which may be of the other kind.
+	 */
+	protected static abstract class Container {
+
+		protected abstract int getCardinality();
+
+		protected abstract boolean contains(char value);
+
+		protected abstract Container add(char value);
+
+		protected abstract Container remove(char value);
+
+		protected abstract char select(int rank);
+
+		protected abstract int copyTo(int[] values, int pos, int high);
+
+		protected abstract long getSizeInBytes();
+	}
+
+	/**
+	 * Sorted array of up to MAX_ARRAY_SIZE values
+	 */
+	protected static class ArrayContainer extends Container {
+
+		protected char[] values = new char[4];
+		protected int size = 0;
+
+		protected int getCardinality() {
+			return size;
+		}
+
+		protected boolean contains(char value) {
+			return Arrays.binarySearch(values, 0, size, value) >= 0;
+		}
+
+		protected Container add(char value) {
+			int pos = Arrays.binarySearch(values, 0, size, value);
+			if (pos >= 0) {
+				return this;
+			}
+
+			if (size == MAX_ARRAY_SIZE) {
+				return toBitmapContainer().add(value);
+			}
+
+			pos = -pos - 1;
+			if (size == values.length) {
+				values = Arrays.copyOf(values, Math.min(MAX_ARRAY_SIZE, size + (size >> 1) + 1));
+			}
+			System.arraycopy(values, pos, values, pos + 1, size - pos);
+			values[pos] = value;
+			size++;
+			return this;
+		}
+
+		protected Container remove(char value) {
+			int pos = Arrays.binarySearch(values, 0, size, value);
+			if (pos >= 0) {
+				System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+				size--;
+			}
+			return this;
+		}
+
+		protected char select(int rank) {
+			return values[rank];
+		}
+
+		protected int copyTo(int[] result, int pos, int high) {
+			for (int i = 0; i < size; i++) {
+				result[pos++] = high | values[i];
+			}
+			return pos;
+		}
+
+		protected long getSizeInBytes() {
+			return 2L * values.length;
+		}
+
+		protected BitmapContainer toBitmapContainer() {
+			BitmapContainer result = new BitmapContainer();
+			for (int i = 0; i < size; i++) {
+				result.add(values[i]);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Bitmap of all 65536 low values, with the number of values in each block of 64 words
+	 */
+	protected static class BitmapContainer extends Container {
+
+		protected final long[] words = new long[1024];
+		protected final int[] blockCounts = new int[16];
+		protected int cardinality = 0;
+
+		protected int getCardinality() {
+			return cardinality;
+		}
+
+		protected boolean contains(char value) {
+			return (words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		protected Container add(char value) {
+			long bit = 1L << value;
+			if ((words[value >>> 6] & bit) == 0) {
+				words[value >>> 6] |= bit;
+				blockCounts[value >>> 12]++;
+				cardinality++;
+			}
+			return this;
+		}
+
+		protected Container remove(char value) {
+			long bit = 1L << value;
+			if ((words[value >>> 6] & bit) != 0) {
+				words[value >>> 6] &= ~bit;
+				blockCounts[value >>> 12]--;
+				cardinality--;
+				if (cardinality <= MAX_ARRAY_SIZE) {
+					return toArrayContainer();
+				}
+			}
+			return this;
+		}
+
+		protected char select(int rank) {
+			int block = 0;
+			while ((block < blockCounts.length) && (rank >= blockCounts[block])) {
+				rank -= blockCounts[block++];
+			}
+
+			for (int i = block << 6; i < words.length; i++) {
+				int bitCount = Long.bitCount(words[i]);
+				if (rank < bitCount) {
+					return (char) ((i << 6) + selectInWord(words[i], rank));
+				}
+				rank -= bitCount;
+			}
+			throw new IllegalStateException("cardinality does not match bits");
+		}
+
+		/**
+		 * @return position of the set bit of word at rank; halves the word six times rather than clearing up to 63 bits
+		 */
+		protected static int selectInWord(long word, int rank) {
+			int result = 0;
+			for (int width = 32; width > 0; width >>= 1) {
+				int lowCount = Long.bitCount(word & ((1L << width) - 1));
+				if (rank >= lowCount) {
+					rank -= lowCount;
+					word >>>= width;
+					result += width;
+				}
+			}
+			return result;
+		}
+
+		protected int copyTo(int[] result, int pos, int high) {
+			for (int i = 0; i < words.length; i++) {
+				long word = words[i];
+				while (word != 0) {
+					result[pos++] = high | ((i << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return pos;
+		}
+
+		protected long getSizeInBytes() {
+			return 8L * words.length;
+		}
+
+		protected ArrayContainer toArrayContainer() {
+			ArrayContainer result = new ArrayContainer();
+			result.values = new char[cardinality];
+			for (int i = 0; i < words.length; i++) {
+				long word = words[i];
+				while (word != 0) {
+					result.values[result.size++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return result;
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+
+package org.wahlzeit.utils;
+
+/**
+ * A seeded random permutation of 0 .. size-1 that is computed, not stored.
+ *
+ * get(i) enciphers i with a small Feistel network over the least number of bits that covers size; a Feistel
+ * network is a bijection for any round function, so no two positions map to the same value. Results that are
+ * size or larger are enciphered again (cycle walking) until they fall below size; as the bit range is less than
+ * four times size, this takes few rounds on average. Walking positions 0, 1, 2, ... thus visits every value
+ * exactly once, in random order, in constant time per value and constant memory.
+ */
+public class RandomPermutation {
+
+	/**
+	 *
+	 */
+	protected static final int NO_ROUNDS = 4;
+
+	/**
+	 *
+	 */
+	protected final int size;
+
+	/**
+	 * Each half of the enciphered bits
+	 */
+	protected final int halfBits;
+	protected final int halfMask;
+
+	/**
+	 *
+	 */
+	protected final long[] roundKeys = new long[NO_ROUNDS];
+
+	/**
+	 *
+	 */
+	public RandomPermutation(int mySize, long seed) {
+		if (mySize < 0) {
+			throw new IllegalArgumentException("size should not be negative: " + mySize);
+		}
+
+		size = mySize;
+
+		int bits = 32 - Integer.numberOfLeadingZeros(Math.max(size - 1, 1));
+		halfBits = (bits + 1) / 2;
+		halfMask = (1 << halfBits) - 1;
+
+		long key = seed;
+		for (int i = 0; i < NO_ROUNDS; i++) {
+			key = mix(key + 0x9E3779B97F4A7C15L);
+			roundKeys[i] = key;
+		}
+	}
+
+	/**
+	 *
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the value at position index
+	 */
+	public int get(int index) {
+		if ((index < 0) || (index >= size)) {
+			throw new IndexOutOfBoundsException("index " + index + " of " + size);
+		}
+
+		int result = index;
+		do {
+			result = encipher(result);
+		} while ((result < 0) || (result >= size)); // below 0 if all 32 bits are in use
+
+		return result;
+	}
+
+	/**
+	 *
+	 */
+	protected int encipher(int value) {
+		int left = value >>> halfBits;
+		int right = value & halfMask;
+		for (int i = 0; i < NO_ROUNDS; i++) {
+			int next = left ^ ((int) mix(right ^ roundKeys[i]) & halfMask);
+			left = right;
+			right = next;
+		}
+
+		return (left << halfBits) | right;
+	}
+
+	/**
+	 * Finalizer of SplitMix64
+	 */
+	protected static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+
+}
@@ -12,7 +12,8 @@ CREATE TABLE users (
 	status integer,
 	confirmation_code bigint,
 	photo integer,
-	creation_time bigint
+	creation_time bigint,
+	version integer NOT NULL DEFAULT 0
 );
 
 CREATE TABLE photos (
@@ -31,7 +32,8 @@ CREATE TABLE photos (
 	praise_sum integer,
 	no_votes integer,
 	creation_time bigint,
-	location integer
+	location integer,
+	version integer NOT NULL DEFAULT 0
 );
 
 CREATE TABLE tags (
@@ -47,7 +49,8 @@ CREATE TABLE cases (
 	explanation text,
 	creation_time bigint,
 	was_decided boolean,
-	decision_time bigint
+	decision_time bigint,
+	version integer NOT NULL DEFAULT 0
 );
 
 CREATE TABLE coordinates (
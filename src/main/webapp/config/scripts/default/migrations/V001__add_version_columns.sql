@@ -0,0 +1,5 @@
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version integer NOT NULL DEFAULT 0;
+
+ALTER TABLE photos ADD COLUMN IF NOT EXISTS version integer NOT NULL DEFAULT 0;
+
+ALTER TABLE cases ADD COLUMN IF NOT EXISTS version integer NOT NULL DEFAULT 0;
@@ -0,0 +1,19 @@
+-- Built concurrently, so this migration does not lock the tables and runs outside a transaction
+-- If it is interrupted, it runs again in full; indexes left invalid are dropped and built anew
+
+-- Tag filters and tag updates; photo_id is included so that filters need not visit the table
+CREATE INDEX CONCURRENTLY IF NOT EXISTS tags_tag_photo_id_idx ON tags(tag, photo_id);
+
+-- Deleting and reading the tags of one photo
+CREATE INDEX CONCURRENTLY IF NOT EXISTS tags_photo_id_idx ON tags(photo_id);
+
+-- Photos by owner and by CGI software
+CREATE INDEX CONCURRENTLY IF NOT EXISTS photos_owner_name_idx ON photos(owner_name);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS photos_software_name_idx ON photos(software_name);
+
+-- Login and user lookup
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_name_as_tag_idx ON users(name_as_tag);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_email_address_idx ON users(email_address);
+
+-- Open cases only, which is what is loaded
+CREATE INDEX CONCURRENTLY IF NOT EXISTS cases_open_idx ON cases(id) WHERE was_decided = FALSE;
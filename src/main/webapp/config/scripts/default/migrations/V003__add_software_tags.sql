@@ -0,0 +1,7 @@
+-- Tags CGI photos with their software, as the CGIPhotoTagCollector does, so photo queries can use sw:
+
+INSERT INTO tags (tag, photo_id)
+	SELECT 'sw:' || lower(regexp_replace(photos.software_name, '[^[:alnum:]]', '', 'g')), photos.id
+	FROM photos
+	WHERE regexp_replace(coalesce(photos.software_name, ''), '[^[:alnum:]]', '', 'g') <> ''
+	AND NOT EXISTS (SELECT 1 FROM tags WHERE tags.photo_id = photos.id AND tags.tag LIKE 'sw:%');
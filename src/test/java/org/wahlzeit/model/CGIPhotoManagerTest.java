@@ -1,5 +1,7 @@
 package org.wahlzeit.model;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 import java.sql.PreparedStatement;
@@ -9,6 +11,33 @@ import static org.junit.Assert.*;
 
 public class CGIPhotoManagerTest {
 
+    private PhotoManager savedInstance;
+
+    @Before
+    public void saveInstance() {
+        savedInstance = PhotoManager.getInstance();
+    }
+
+    @After
+    public void restoreInstance() {
+        PhotoManager.setInstance(savedInstance);
+    }
+
+    @Test
+    public void testGetMyInstanceReturnsInstalledManager() {
+        CGIPhotoManager manager = new CGIPhotoManager();
+        PhotoManager.setInstance(manager);
+
+        assertSame(manager, PhotoManager.getInstance());
+        assertSame(manager, CGIPhotoManager.getMyInstance());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetMyInstanceRejectsPlainManager() {
+        PhotoManager.setInstance(new PhotoManager());
+        CGIPhotoManager.getMyInstance();
+    }
+
 //    @Test
 //    public void exposeReadingStatement() {
 //        CGIPhotoManager cgiPhotoManager = CGIPhotoManager.getMyInstance();
@@ -19,4 +48,4 @@ public class CGIPhotoManagerTest {
 //            fail();
 //        }
 //    }
-}
\ No newline at end of file
+}
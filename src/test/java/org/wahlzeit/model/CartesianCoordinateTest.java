@@ -3,6 +3,7 @@ package org.wahlzeit.model;
 import org.junit.Test;
 
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertEquals;
 
 public class CartesianCoordinateTest {
@@ -53,4 +54,13 @@ public class CartesianCoordinateTest {
         double distance = a.getCartesianDistance(b);
         assertEquals(6.782329983125268, distance, Coordinate.EPSILON);
     }
+
+    @Test
+    public void testLoadKeepsIdAndIsNotDirty() {
+        CoordinateId id = new CoordinateId(4711);
+        CartesianCoordinate c = CartesianCoordinate.loadCartesianCoordinate(id, 1, 2, 3);
+        assertEquals(id, c.getId());
+        assertEquals(2.0, c.getY(), Coordinate.EPSILON);
+        assertFalse(c.isDirty());
+    }
 }
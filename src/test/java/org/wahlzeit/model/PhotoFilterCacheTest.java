@@ -0,0 +1,64 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.model;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wahlzeit.utils.IntBitmap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for the PhotoFilterCache class.
+ */
+public class PhotoFilterCacheTest {
+
+	private PhotoTagIndex index;
+	private PhotoFilterCache cache;
+
+	@Before
+	public void initCache() {
+		index = new PhotoTagIndex();
+		index.add(1, Arrays.asList("un:ann", "tg:sea"));
+		index.add(2, Arrays.asList("un:bob", "tg:sea"));
+		cache = new PhotoFilterCache(index);
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testFiltersWithSameConditionsShareResult() {
+		IntBitmap photoIds = cache.getPhotoIds(Arrays.asList("tg:sea", "un:ann"));
+
+		assertTrue(photoIds.isFrozen());
+		assertArrayEquals(new int[] { 1 }, photoIds.toArray());
+		assertSame(photoIds, cache.getPhotoIds(Arrays.asList("un:ann", "tg:sea", "tg:sea")));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testChangedTagsInvalidateResult() {
+		IntBitmap seaPhotoIds = cache.getPhotoIds(Arrays.asList("tg:sea"));
+		IntBitmap bobPhotoIds = cache.getPhotoIds(Arrays.asList("un:bob"));
+
+		index.add(3, Arrays.asList("un:ann", "tg:sea"));
+
+		assertArrayEquals(new int[] { 1, 2, 3 }, cache.getPhotoIds(Arrays.asList("tg:sea")).toArray());
+		assertNotSame(seaPhotoIds, cache.getPhotoIds(Arrays.asList("tg:sea")));
+		assertSame(bobPhotoIds, cache.getPhotoIds(Arrays.asList("un:bob")));
+	}
+
+}
@@ -6,8 +6,10 @@ package org.wahlzeit.model;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.wahlzeit.utils.IntBitmap;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -55,10 +57,10 @@ public class PhotoFilterTest {
 		photoFilter.setTags(new Tags("test"));
 		assertEquals("test", photoFilter.getTags().asString());
 
-		photoFilter.displayablePhotoIds.add(new PhotoId(3));
+		photoFilter.displayablePhotoIds.add(3);
 		assertTrue(photoFilter.displayablePhotoIds.size() == 1);
 
-		photoFilter.processedPhotoIds.add(new PhotoId(2));
+		photoFilter.processedPhotoIds.add(2);
 		assertTrue(photoFilter.processedPhotoIds.size() == 1);
 
 		photoFilter.clear();
@@ -69,4 +71,21 @@ public class PhotoFilterTest {
 		assertTrue(photoFilter.processedPhotoIds.isEmpty());
 	}
 
+	/**
+	 *
+	 */
+	@Test
+	public void testRandomDisplayablePhotoIdsComeUpOnce() {
+		photoFilter.setDisplayablePhotoIds(IntBitmap.fromArray(new int[] { 1, 2, 3, 4, 5 }));
+		photoFilter.processedPhotoIds.add(4);
+
+		IntBitmap handedOut = new IntBitmap();
+		for (int i = 0; i < 4; i++) {
+			assertTrue(handedOut.add(photoFilter.getRandomDisplayablePhotoId().asInt()));
+		}
+
+		assertFalse(handedOut.contains(4));
+		assertEquals(PhotoId.NULL_ID, photoFilter.getRandomDisplayablePhotoId());
+	}
+
 }
@@ -0,0 +1,103 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for the PhotoId class.
+ */
+public class PhotoIdTest {
+
+	/**
+	 *
+	 */
+	@Test
+	public void testUnknownIdsAreNullId() {
+		assertSame(PhotoId.NULL_ID, PhotoId.getIdFromInt(0));
+		assertSame(PhotoId.NULL_ID, PhotoId.getIdFromInt(-1));
+		assertSame(PhotoId.NULL_ID, PhotoId.getIdFromInt(PhotoId.getCurrentIdAsInt() + 1));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testIdsSurviveChunkGrowth() {
+		PhotoId first = PhotoId.getNextId();
+		for (int i = 0; i < 40 * PhotoId.CHUNK_SIZE; i++) {
+			PhotoId.getNextId();
+		}
+
+		assertSame(first, PhotoId.getIdFromInt(first.asInt()));
+		assertEquals(first.asString(), PhotoId.getIdFromString(first.asString()).asString());
+	}
+
+	/**
+	 * Threads hand out ids and look up each other's; every number must be handed out once and map to one object
+	 */
+	@Test
+	public void testConcurrentNextIdAndLookup() throws InterruptedException {
+		final int threads = 8;
+		final int idsPerThread = 20000;
+		final int start = PhotoId.getCurrentIdAsInt();
+		final ConcurrentHashMap<Integer, PhotoId> seen = new ConcurrentHashMap<Integer, PhotoId>();
+		final Set<Integer> handedOut = ConcurrentHashMap.newKeySet();
+		final AtomicInteger failures = new AtomicInteger();
+		final CountDownLatch go = new CountDownLatch(1);
+
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++) {
+			Thread worker = new Thread() {
+				public void run() {
+					try {
+						go.await();
+					} catch (InterruptedException ex) {
+						return;
+					}
+					for (int i = 0; i < idsPerThread; i++) {
+						PhotoId id = PhotoId.getNextId();
+						PhotoId known = seen.putIfAbsent(id.asInt(), id);
+						if (!handedOut.add(id.asInt()) || ((known != null) && (known != id))) {
+							failures.incrementAndGet();
+						}
+						int other = start + 1 + (i * 7919) % (id.asInt() - start);
+						PhotoId lookedUp = PhotoId.getIdFromInt(other);
+						PhotoId previous = seen.putIfAbsent(other, lookedUp);
+						if ((previous != null) && (previous != lookedUp)) {
+							failures.incrementAndGet();
+						}
+					}
+				}
+			};
+			worker.start();
+			workers.add(worker);
+		}
+
+		go.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		assertEquals(0, failures.get());
+		assertEquals(start + threads * idsPerThread, PhotoId.getCurrentIdAsInt());
+		for (int i = start + 1; i <= PhotoId.getCurrentIdAsInt(); i++) {
+			assertSame(seen.get(i), PhotoId.getIdFromInt(i));
+		}
+		assertTrue(handedOut.size() == threads * idsPerThread);
+	}
+
+}
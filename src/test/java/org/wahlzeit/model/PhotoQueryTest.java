@@ -0,0 +1,92 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.model;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test cases for the PhotoQuery class.
+ */
+public class PhotoQueryTest {
+
+	private PhotoTagIndex index;
+
+	@Before
+	public void initIndex() {
+		index = new PhotoTagIndex();
+		index.add(1, Arrays.asList("un:ann", "tg:ann", "tg:landscape", "tg:sunset"));
+		index.add(2, Arrays.asList("un:ann", "tg:ann", "tg:landscape", "tg:flower"));
+		index.add(3, Arrays.asList("un:bob", "tg:bob", "tg:flowers", "sw:blender"));
+		index.add(4, Arrays.asList("un:bob", "tg:bob", "tg:landscape", "sw:maya"));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testParseNormalizes() {
+		assertEquals("(tg:flower AND tg:sea)", PhotoQuery.parse("Sea, flower sea").asString());
+		assertEquals("(tg:landscape AND NOT tg:sunset)", PhotoQuery.parse("landscape NOT sunset").asString());
+		assertEquals("((tg:lake* OR tg:sea) AND un:ann)", PhotoQuery.parse("un:Ann AND (sea OR lake*)").asString());
+		assertEquals(PhotoQuery.parse("a OR b c"), PhotoQuery.parse("(c AND b) OR a"));
+		assertTrue(PhotoQuery.parse(" ").isEmpty());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testMalformedQueries() {
+		String[] queries = { "(sea", "sea)", "sea OR", "NOT", "()", "!!" };
+		for (String query : queries) {
+			try {
+				PhotoQuery.parse(query);
+				fail("parsed malformed query " + query);
+			} catch (IllegalArgumentException ex) {
+				// expected
+			}
+		}
+
+		assertEquals("(tg:flower AND tg:sea)", PhotoQuery.parseLeniently("(sea, flower").asString());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testEvaluate() {
+		assertArrayEquals(new int[] { 2, 4 }, index.getPhotoIds(PhotoQuery.parse("landscape NOT sunset")));
+		assertArrayEquals(new int[] { 2, 3 }, index.getPhotoIds(PhotoQuery.parse("flow*")));
+		assertArrayEquals(new int[] { 3 }, index.getPhotoIds(PhotoQuery.parse("sw:blender OR (un:ann AND sw:maya)")));
+		assertArrayEquals(new int[] { 3, 4 }, index.getPhotoIds(PhotoQuery.parse("NOT un:ann")));
+		assertArrayEquals(new int[] { 1, 3, 4 }, index.getPhotoIds(PhotoQuery.parse("NOT (ann AND flower)")));
+		assertArrayEquals(new int[] { 1, 2 }, index.getPhotoIds(PhotoQuery.parse("landscape NOT (sw:* OR un:bob)")));
+		assertArrayEquals(new int[] { 1, 2, 3, 4 }, index.getPhotoIds(PhotoQuery.EMPTY_QUERY));
+		assertArrayEquals(new int[0], index.getPhotoIds(PhotoQuery.parse("landscape unknown")));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testVersionCoversPrefixesAndExclusions() {
+		long prefixVersion = index.getVersion(PhotoQuery.parse("flow*"));
+		long exclusionVersion = index.getVersion(PhotoQuery.parse("NOT sunset"));
+
+		index.add(5, Arrays.asList("un:cid", "tg:flowerbed"));
+
+		assertTrue(index.getVersion(PhotoQuery.parse("flow*")) > prefixVersion);
+		assertTrue(index.getVersion(PhotoQuery.parse("NOT sunset")) > exclusionVersion);
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for the PhotoTagIndex class.
+ */
+public class PhotoTagIndexTest {
+
+	private PhotoTagIndex index;
+
+	@Before
+	public void initIndex() {
+		index = new PhotoTagIndex();
+		index.add(3, Arrays.asList("un:ann", "tg:ann", "tg:sea"));
+		index.add(1, Arrays.asList("un:bob", "tg:bob", "tg:sea", "tg:sky"));
+		index.add(2, Arrays.asList("un:ann", "tg:ann", "tg:sky"));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testQueryMatchesPhotosWithAllTags() {
+		assertArrayEquals(new int[] { 1, 3 }, index.getPhotoIds(Arrays.asList("tg:sea")));
+		assertArrayEquals(new int[] { 3 }, index.getPhotoIds(Arrays.asList("un:ann", "tg:sea")));
+		assertArrayEquals(new int[0], index.getPhotoIds(Arrays.asList("un:bob", "tg:ann")));
+		assertArrayEquals(new int[0], index.getPhotoIds(Arrays.asList("tg:unknown")));
+		assertArrayEquals(new int[] { 1, 2, 3 }, index.getPhotoIds(Collections.<String>emptyList()));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testAddingAgainReplacesTags() {
+		index.add(3, Arrays.asList("un:ann", "tg:ann"));
+		assertArrayEquals(new int[] { 1 }, index.getPhotoIds(Arrays.asList("tg:sea")));
+
+		index.remove(1);
+		assertArrayEquals(new int[] { 2, 3 }, index.getPhotoIds(Collections.<String>emptyList()));
+		assertEquals(3, index.getNoTags());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testVersionMovesOnlyForChangedTags() {
+		long seaVersion = index.getVersion(Arrays.asList("tg:sea"));
+		long skyVersion = index.getVersion(Arrays.asList("tg:sky"));
+
+		index.add(2, Arrays.asList("un:ann", "tg:ann", "tg:sky"));
+		index.add(2, Arrays.asList("un:ann", "tg:ann"));
+
+		assertEquals(seaVersion, index.getVersion(Arrays.asList("tg:sea")));
+		assertTrue(index.getVersion(Arrays.asList("tg:sky")) > skyVersion);
+		assertTrue(index.getVersion(Arrays.asList("tg:sea", "tg:sky")) > skyVersion);
+	}
+
+}
@@ -2,6 +2,14 @@ package org.wahlzeit.model;
 
 import org.junit.Test;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.Assert.*;
 
 public class PhotoTest {
@@ -28,4 +36,48 @@ public class PhotoTest {
         photo.setLocation(loc);
         assertTrue(photo.getLocation().isEqual(loc));
     }
+
+    @Test
+    public void testMergeKeepsUnsavedPraise() throws SQLException {
+        Photo photo = new Photo();
+        photo.setVersion(1);
+        photo.addToPraise(5);
+
+        Map<String, Integer> newerRow = new HashMap<String, Integer>();
+        newerRow.put("praise_sum", 17);
+        newerRow.put("no_votes", 2);
+        newerRow.put("version", 2);
+        photo.mergeWith(newRowResultSet(newerRow));
+
+        assertEquals(2, photo.getVersion());
+        assertEquals((17.0 + 5) / 3, photo.getPraise(), 0.0001);
+    }
+
+    @Test
+    public void testSavedPraiseIsNoLongerUnsaved() {
+        Photo photo = new Photo();
+        photo.addToPraise(4);
+        photo.addToPraise(6);
+        assertEquals(10, photo.getUnsavedPraiseSum());
+        assertEquals(2, photo.getUnsavedNoVotes());
+
+        photo.praiseWasSaved(10, 2);
+        photo.addToPraise(1);
+
+        assertEquals(1, photo.getUnsavedPraiseSum());
+        assertEquals(1, photo.getUnsavedNoVotes());
+        assertEquals((10.0 + 11) / 4, photo.getPraise(), 0.0001);
+    }
+
+    private ResultSet newRowResultSet(final Map<String, Integer> row) {
+        return (ResultSet) Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class<?>[] { ResultSet.class },
+            new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    return row.get(args[0]);
+                }
+            }
+        );
+    }
 }
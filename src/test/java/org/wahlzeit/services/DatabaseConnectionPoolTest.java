@@ -0,0 +1,183 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test cases for the DatabaseConnectionPool class, using proxy connections instead of a database.
+ */
+public class DatabaseConnectionPoolTest {
+
+	/**
+	 * Connections handed out by the factory report this as their isValid() result
+	 */
+	private boolean isValid;
+
+	private int openCount;
+
+	private DatabaseConnectionPool.ConnectionFactory factory;
+
+	@Before
+	public void initFactory() {
+		isValid = true;
+		openCount = 0;
+		factory = new DatabaseConnectionPool.ConnectionFactory() {
+			public Connection openConnection() {
+				openCount++;
+				return createConnection();
+			}
+		};
+	}
+
+	/**
+	 *
+	 */
+	private Connection createConnection() {
+		InvocationHandler handler = new InvocationHandler() {
+			private boolean isClosed = false;
+
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if (name.equals("isValid")) {
+					return isValid && !isClosed;
+				} else if (name.equals("isClosed")) {
+					return isClosed;
+				} else if (name.equals("close")) {
+					isClosed = true;
+				} else if (name.equals("getAutoCommit")) {
+					return true;
+				} else if (name.equals("hashCode")) {
+					return System.identityHashCode(proxy);
+				} else if (name.equals("equals")) {
+					return proxy == args[0];
+				} else if (name.equals("toString")) {
+					return "proxy connection";
+				}
+				return null;
+			}
+		};
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, handler);
+	}
+
+	/**
+	 *
+	 */
+	private DatabaseConnectionPool createPool(int maxSize, long maxLifetime) {
+		return new DatabaseConnectionPool("test", factory, maxSize, 50, 0, maxLifetime, 0, 1);
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testReturnedConnectionIsReused() throws SQLException {
+		DatabaseConnectionPool pool = createPool(2, 0);
+		DatabaseConnection dbc = pool.borrow();
+		pool.release(dbc);
+
+		assertSame(dbc, pool.borrow());
+		assertEquals(1, openCount);
+	}
+
+	/**
+	 *
+	 */
+	@Test(expected = SQLTimeoutException.class)
+	public void testBorrowTimesOutWhenExhausted() throws SQLException {
+		DatabaseConnectionPool pool = createPool(1, 0);
+		pool.borrow();
+		pool.borrow();
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testInvalidConnectionIsNotReused() throws SQLException {
+		DatabaseConnectionPool pool = createPool(1, 0);
+		DatabaseConnection first = pool.borrow();
+		pool.release(first);
+
+		isValid = false;
+		DatabaseConnection second = pool.borrow();
+
+		assertNotSame(first, second);
+		assertEquals(false, first.isOpen());
+		assertEquals(1, pool.getStats().getInvalid());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testExpiredConnectionIsEvicted() throws Exception {
+		DatabaseConnectionPool pool = createPool(1, 1);
+		DatabaseConnection first = pool.borrow();
+		Thread.sleep(5);
+		pool.release(first);
+
+		assertNotSame(first, pool.borrow());
+		assertEquals(2, openCount);
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testHousekeepingEvictsIdleConnection() throws Exception {
+		DatabaseConnectionPool pool = new DatabaseConnectionPool("test", factory, 1, 50, 1, 0, 0, 1);
+		DatabaseConnection dbc = pool.borrow();
+		pool.release(dbc);
+		pool.startHousekeeping(5);
+
+		long deadline = System.currentTimeMillis() + 2000;
+		while (dbc.isOpen() && (System.currentTimeMillis() < deadline)) {
+			Thread.sleep(5);
+		}
+		pool.shutDown();
+
+		assertFalse(dbc.isOpen());
+		assertEquals(1, pool.getStats().getEvicted());
+		assertEquals(0, pool.getStats().getIdle());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testStats() throws SQLException {
+		DatabaseConnectionPool pool = createPool(3, 0);
+		DatabaseConnection first = pool.borrow();
+		pool.borrow();
+		pool.release(first);
+
+		DatabaseConnectionPool.Stats stats = pool.getStats();
+		assertEquals(1, stats.getActive());
+		assertEquals(1, stats.getIdle());
+		assertEquals(0, stats.getWaiters());
+		assertEquals(2, stats.getBorrows());
+
+		long waits = 0;
+		for (long count : stats.getWaitTimeHistogram()) {
+			waits += count;
+		}
+		assertEquals(2, waits);
+	}
+
+}
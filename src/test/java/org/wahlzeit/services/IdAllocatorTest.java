@@ -0,0 +1,86 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for the IdAllocator class.
+ */
+public class IdAllocatorTest {
+
+	/**
+	 * Two nodes sharing one globals row
+	 */
+	@Test
+	public void testNodesGetDisjointBlocks() {
+		int[] globals = { 0 };
+		IdAllocator node1 = new TestIdAllocator(10, globals);
+		IdAllocator node2 = new TestIdAllocator(10, globals);
+
+		assertEquals(1, node1.getNextId(IdAllocator.PHOTO_IDS));
+		assertEquals(11, node2.getNextId(IdAllocator.PHOTO_IDS));
+		assertEquals(2, node1.getNextId(IdAllocator.PHOTO_IDS));
+		assertEquals(20, globals[0]);
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testConcurrentIdsAreUnique() throws InterruptedException {
+		final IdAllocator allocator = new TestIdAllocator(7, new int[] { 0 });
+		final Set<Integer> ids = ConcurrentHashMap.newKeySet();
+		final int idsPerThread = 5000;
+
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			Thread worker = new Thread() {
+				public void run() {
+					for (int i = 0; i < idsPerThread; i++) {
+						ids.add(allocator.getNextId(IdAllocator.USER_IDS));
+					}
+				}
+			};
+			worker.start();
+			workers.add(worker);
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		assertEquals(4 * idsPerThread, ids.size());
+		assertTrue(allocator.getHighestReservedId(IdAllocator.USER_IDS) >= 4 * idsPerThread);
+	}
+
+	/**
+	 * Reserves from an array instead of the globals row
+	 */
+	private static class TestIdAllocator extends IdAllocator {
+
+		private final int[] globals;
+
+		TestIdAllocator(int blockSize, int[] myGlobals) {
+			super(blockSize);
+			globals = myGlobals;
+		}
+
+		protected Block reserveBlock(String counter) {
+			synchronized (globals) {
+				globals[0] += blockSize;
+				return new Block(globals[0] - blockSize + 1, globals[0]);
+			}
+		}
+	}
+
+}
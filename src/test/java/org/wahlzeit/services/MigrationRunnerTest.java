@@ -0,0 +1,55 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test cases for the MigrationRunner class.
+ */
+public class MigrationRunnerTest {
+
+	/**
+	 *
+	 */
+	@Test
+	public void testSplitStatementsDropsComments() {
+		List<String> statements = MigrationRunner.splitStatements(
+			"-- first\nCREATE INDEX a ON t(x);\n\n-- second; not a statement\nCREATE INDEX b ON t(y);\n");
+		assertEquals(2, statements.size());
+		assertEquals("CREATE INDEX a ON t(x)", statements.get(0));
+		assertEquals("CREATE INDEX b ON t(y)", statements.get(1));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testSplitStatementsKeepsQuotedSemicolons() {
+		List<String> statements = MigrationRunner.splitStatements("UPDATE t SET s = 'a; -- b'; DELETE FROM t");
+		assertEquals(2, statements.size());
+		assertEquals("UPDATE t SET s = 'a; -- b'", statements.get(0));
+		assertEquals("DELETE FROM t", statements.get(1));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testGetConcurrentIndexName() {
+		assertEquals("tags_photo_id_idx", MigrationRunner.getConcurrentIndexName(
+			"CREATE INDEX CONCURRENTLY IF NOT EXISTS tags_photo_id_idx ON tags(photo_id)"));
+		assertEquals("cases_open_idx", MigrationRunner.getConcurrentIndexName(
+			"create unique index concurrently if not exists Cases_Open_Idx\nON cases(id) WHERE was_decided = FALSE"));
+		assertNull(MigrationRunner.getConcurrentIndexName("CREATE INDEX CONCURRENTLY tags_idx ON tags(tag)"));
+		assertNull(MigrationRunner.getConcurrentIndexName("CREATE INDEX IF NOT EXISTS tags_idx ON tags(tag)"));
+	}
+
+}
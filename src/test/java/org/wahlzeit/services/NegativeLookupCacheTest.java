@@ -0,0 +1,90 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for the NegativeLookupCache and BloomFilter classes.
+ */
+public class NegativeLookupCacheTest {
+
+	/**
+	 *
+	 */
+	@Test
+	public void testBloomFilterHasNoFalseNegatives() {
+		BloomFilter filter = new BloomFilter(1000, 0.01);
+		for (int i = 0; i < 1000; i++) {
+			filter.add("key" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(filter.mightContain("key" + i));
+			if (filter.mightContain("other" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 50);
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testEverythingMightExistWithoutFilter() {
+		NegativeLookupCache lookups = new NegativeLookupCache("test");
+
+		assertTrue(lookups.mightExist("unknown"));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testAddedKeysPassInstalledFilter() {
+		NegativeLookupCache lookups = new NegativeLookupCache("test");
+		BloomFilter filter = lookups.newFilter(10);
+		filter.add("existing");
+		lookups.add("added-while-loading");
+		lookups.installFilter(filter);
+		lookups.add("added");
+
+		assertTrue(lookups.mightExist("existing"));
+		assertTrue(lookups.mightExist("added-while-loading"));
+		assertTrue(lookups.mightExist("added"));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testAbsentKeyIsRememberedUntilAdded() {
+		NegativeLookupCache lookups = new NegativeLookupCache("test");
+		lookups.markAbsent("name", lookups.getStamp());
+		assertFalse(lookups.mightExist("name"));
+
+		lookups.add("name");
+		assertTrue(lookups.mightExist("name"));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testConcurrentAddPreventsMarkAbsent() {
+		NegativeLookupCache lookups = new NegativeLookupCache("test");
+		long stamp = lookups.getStamp();
+		lookups.add("name");
+		lookups.markAbsent("name", stamp);
+
+		assertTrue(lookups.mightExist("name"));
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test cases for the ObjectCache class.
+ */
+public class ObjectCacheTest {
+
+	/**
+	 *
+	 */
+	@Test
+	public void testEvictsColdObjectsFirst() {
+		ObjectCache<Integer, TestDataObject> cache = new ObjectCache<Integer, TestDataObject>("test", 2);
+		TestDataObject hot = new TestDataObject();
+		cache.put(1, hot);
+		cache.put(2, new TestDataObject());
+		cache.get(1);
+		cache.put(3, new TestDataObject());
+
+		assertEquals(2, cache.size());
+		assertSame(hot, cache.get(1));
+		assertEquals(1, cache.getStats().getEvictions());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testDirtyObjectsArePinned() {
+		ObjectCache<Integer, TestDataObject> cache = new ObjectCache<Integer, TestDataObject>("test", 1);
+		TestDataObject dirty = new TestDataObject();
+		dirty.incWriteCount();
+		cache.put(1, dirty);
+		cache.put(2, new TestDataObject());
+
+		assertEquals(1, cache.size());
+		assertSame(dirty, cache.peek(1));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testEvictedObjectStillInUseIsRevived() {
+		ObjectCache<Integer, TestDataObject> cache = new ObjectCache<Integer, TestDataObject>("test", 1);
+		TestDataObject inUse = new TestDataObject();
+		cache.put(1, inUse);
+		cache.put(2, new TestDataObject());
+
+		assertSame(inUse, cache.get(1));
+		cache.remove(1);
+		assertNull(cache.get(1));
+
+		ObjectCache.Stats stats = cache.getStats();
+		assertEquals(1, stats.getHits());
+		assertEquals(1, stats.getMisses());
+		assertEquals(1, stats.getRevivals());
+	}
+
+}
@@ -0,0 +1,203 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for the dirty object registry and the streamed reads of ObjectManager.
+ */
+public class ObjectManagerTest {
+
+	private TestObjectManager manager;
+
+	@Before
+	public void initManager() {
+		manager = new TestObjectManager();
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testIncWriteCountMarksDirty() {
+		TestDataObject obj = new TestDataObject(manager);
+		obj.incWriteCount();
+		obj.incWriteCount();
+
+		assertEquals(1, manager.getDirtyObjectCount());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testUnmanagedObjectIsNotMarked() {
+		new TestDataObject(null).incWriteCount();
+
+		assertEquals(0, manager.getDirtyObjectCount());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testReadRowsStreamsInReadOnlyTransaction() throws SQLException {
+		assertEquals("[getAutoCommit, isReadOnly, setAutoCommit false, setReadOnly true, setFetchSize "
+			+ SysConfig.getDbFetchSize() + ", executeQuery, commit, setReadOnly false, setAutoCommit true]",
+			readRows(false).toString());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testReadRowsKeepsReplicaReadOnly() throws SQLException {
+		assertEquals("[getAutoCommit, isReadOnly, setAutoCommit false, setFetchSize " + SysConfig.getDbFetchSize()
+			+ ", executeQuery, commit, setAutoCommit true]", readRows(true).toString());
+	}
+
+	/**
+	 * Reads three rows from a connection that is read-only or not
+	 * @return the calls made to the connection and the statement
+	 */
+	private List<String> readRows(final boolean isReadOnly) throws SQLException {
+		final List<String> calls = new ArrayList<String>();
+		final int[] autoCommit = { 1 };
+		final Connection conn = (Connection) newProxy(Connection.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				calls.add(method.getName() + (args == null ? "" : " " + args[0]));
+				if (method.getName().equals("setAutoCommit")) {
+					autoCommit[0] = Boolean.TRUE.equals(args[0]) ? 1 : 0;
+				}
+				if (method.getName().equals("isReadOnly")) {
+					return Boolean.valueOf(isReadOnly);
+				}
+				return method.getName().equals("getAutoCommit") ? Boolean.valueOf(autoCommit[0] == 1) : null;
+			}
+		});
+		final int[] rowsLeft = { 3 };
+		final ResultSet rset = (ResultSet) newProxy(ResultSet.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				return method.getName().equals("next") ? Boolean.valueOf(rowsLeft[0]-- > 0) : null;
+			}
+		});
+		PreparedStatement stmt = (PreparedStatement) newProxy(PreparedStatement.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getConnection")) {
+					return conn;
+				} else if (method.getName().equals("executeQuery")) {
+					calls.add("executeQuery");
+					return rset;
+				} else if (method.getName().equals("setFetchSize")) {
+					calls.add("setFetchSize " + args[0]);
+				}
+				return null;
+			}
+		});
+
+		final int[] rows = { 0 };
+		manager.readRows(stmt, new ObjectManager.RowHandler() {
+			public void handleRow(ResultSet rset) {
+				rows[0]++;
+			}
+		});
+
+		assertEquals(3, rows[0]);
+		return calls;
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testChangeDuringWriteIsKept() throws SQLException {
+		final TestDataObject obj = new TestDataObject();
+		final int[] noWrites = { 0 };
+		final PreparedStatement stmt = (PreparedStatement) newProxy(PreparedStatement.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("executeUpdate")) {
+					if (noWrites[0]++ == 0) {
+						obj.incWriteCount("size"); // a setter running while the row is written
+					}
+					return Integer.valueOf(1);
+				}
+				return null;
+			}
+		});
+		ObjectManager writingManager = new TestObjectManager() {
+			protected PreparedStatement getReadingStatement(String sql) {
+				return stmt;
+			}
+		};
+
+		obj.incWriteCount("name");
+		writingManager.updateObject("things", obj);
+
+		assertTrue(obj.isDirty());
+		assertEquals("[name, size]", new TreeSet<String>(obj.getChangedColumns()).toString());
+
+		writingManager.updateObject("things", obj);
+		assertFalse(obj.isDirty());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testUpdateRowsWritesThroughResultSet() throws SQLException {
+		final List<String> calls = new ArrayList<String>();
+		final ResultSet rset = (ResultSet) newProxy(ResultSet.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				calls.add(method.getName() + (args == null ? "" : " " + args[0]));
+				return method.getName().equals("next") ? Boolean.TRUE : null;
+			}
+		});
+		final PreparedStatement stmt = (PreparedStatement) newProxy(PreparedStatement.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				return method.getName().equals("executeQuery") ? rset : null;
+			}
+		});
+		ObjectManager writingManager = new TestObjectManager() {
+			protected PreparedStatement getUpdatingStatement(String sql) {
+				calls.add(sql);
+				return stmt;
+			}
+		};
+
+		TestDataObject obj = new TestDataObject();
+		obj.incWriteCount("name");
+		List<TestDataObject> objs = new ArrayList<TestDataObject>();
+		objs.add(obj);
+		writingManager.updateRows("things", objs);
+
+		assertFalse(obj.isDirty());
+		assertEquals("[SELECT * FROM things WHERE id = ?, next, updateInt id, updateString name, updateLong size, updateRow, close]", calls.toString());
+	}
+
+	/**
+	 *
+	 */
+	private Object newProxy(Class<?> type, InvocationHandler handler) {
+		return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, handler);
+	}
+
+}
@@ -0,0 +1,36 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for the QueryRouter class.
+ */
+public class QueryRouterTest {
+
+	/**
+	 *
+	 */
+	@Test
+	public void testPlainQueriesAreReadOnly() {
+		assertTrue(QueryRouter.isReadOnlyQuery("SELECT * FROM photos WHERE id = ?"));
+		assertTrue(QueryRouter.isReadOnlyQuery("  select photo_id from tags"));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testWritesAndLockingQueriesAreNotReadOnly() {
+		assertFalse(QueryRouter.isReadOnlyQuery("INSERT INTO users(id) VALUES(?)"));
+		assertFalse(QueryRouter.isReadOnlyQuery("DELETE FROM photos WHERE id = ?"));
+		assertFalse(QueryRouter.isReadOnlyQuery("SELECT * FROM globals WHERE id = 0 FOR UPDATE"));
+	}
+
+}
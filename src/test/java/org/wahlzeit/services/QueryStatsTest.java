@@ -0,0 +1,47 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for the QueryStats class.
+ */
+public class QueryStatsTest {
+
+	/**
+	 *
+	 */
+	@Test
+	public void testPercentilesAreWithinBucketAccuracy() {
+		QueryStats.setSlowQueryThreshold(0);
+		QueryStats stats = new QueryStats("SELECT 1");
+		for (int i = 1; i <= 100; i++) {
+			stats.record(i * 1000000L, 1, null);
+		}
+
+		assertEquals(100, stats.getCount());
+		assertEquals(100, stats.getRows());
+		assertEquals(100.0, stats.getMaxTime(), 0.001);
+		assertEquals(50.0, stats.getPercentile(0.5), 50.0 * 0.25);
+		assertEquals(99.0, stats.getPercentile(0.99), 99.0 * 0.25);
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testBucketLimitsCoverTheirDurations() {
+		for (long micros = 0; micros < 100000; micros += 7) {
+			int bucket = QueryStats.getBucket(micros);
+			assertTrue(micros <= QueryStats.getBucketLimit(bucket));
+			assertTrue((bucket == 0) || (micros > QueryStats.getBucketLimit(bucket - 1)));
+		}
+	}
+
+}
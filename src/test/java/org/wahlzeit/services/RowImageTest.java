@@ -0,0 +1,70 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test cases for the RowImage class.
+ */
+public class RowImageTest {
+
+	/**
+	 *
+	 */
+	@Test
+	public void testCapturedColumnsMakeUpdateStatement() throws SQLException {
+		RowImage image = RowImage.capture(new TestDataObject());
+
+		assertEquals(2, image.getColumnCount());
+		assertEquals("UPDATE things SET name = ?, size = ? WHERE id = ?", image.asUpdateStatement("things"));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testVersionedUpdateStatementChecksVersion() throws SQLException {
+		RowImage image = RowImage.capture(new TestDataObject());
+
+		assertEquals("UPDATE things SET name = ?, size = ?, version = version + 1 WHERE id = ? AND version = ?",
+			image.asUpdateStatement("things", true));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testOnlyChangedColumnsAreCaptured() throws SQLException {
+		TestDataObject obj = new TestDataObject();
+		obj.incWriteCount("size");
+
+		assertEquals("UPDATE things SET size = ? WHERE id = ?", RowImage.captureChanges(obj).asUpdateStatement("things"));
+
+		obj.incWriteCount();
+		assertEquals(2, RowImage.captureChanges(obj).getColumnCount());
+
+		obj.resetWriteCount();
+		assertEquals(0, RowImage.captureChanges(obj).getColumnCount());
+	}
+
+	/**
+	 *
+	 */
+	@Test(expected = SQLException.class)
+	public void testReadingIsNotSupported() throws SQLException {
+		RowImage.capture(new TestDataObject() {
+			public void writeOn(ResultSet rset) throws SQLException {
+				rset.getString("name");
+			}
+		});
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for the StatementCache class.
+ */
+public class StatementCacheTest {
+
+	private final Set<String> closed = new HashSet<String>();
+
+	/**
+	 *
+	 */
+	@Test
+	public void testLeastRecentlyUsedIsEvictedAndClosedLater() {
+		StatementCache cache = new StatementCache(2);
+		PreparedStatement a = newStatement("a");
+		cache.put("a", a);
+		cache.put("b", newStatement("b"));
+		assertSame(a, cache.get("a"));
+		cache.put("c", newStatement("c"));
+
+		assertEquals(2, cache.size());
+		assertNull(cache.get("b"));
+		assertTrue(closed.isEmpty());
+
+		cache.closeRetired();
+		assertEquals(1, closed.size());
+		assertTrue(closed.contains("b"));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testCloseAllClosesEverything() {
+		StatementCache cache = new StatementCache(1);
+		cache.put("a", newStatement("a"));
+		cache.put("b", newStatement("b"));
+		cache.closeAll();
+
+		assertEquals(0, cache.size());
+		assertEquals(2, closed.size());
+	}
+
+	/**
+	 *
+	 */
+	private PreparedStatement newStatement(final String name) {
+		return (PreparedStatement) Proxy.newProxyInstance(
+			getClass().getClassLoader(),
+			new Class<?>[] { PreparedStatement.class },
+			new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					if (method.getName().equals("close")) {
+						closed.add(name);
+					} else if (method.getName().equals("hashCode")) {
+						return name.hashCode();
+					} else if (method.getName().equals("equals")) {
+						return proxy == args[0];
+					}
+					return null;
+				}
+			}
+		);
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A DataObject for test cases, a row of a things table with id 1, a name and a size.
+ */
+class TestDataObject extends DataObject {
+
+	private final ObjectManager manager;
+
+	TestDataObject() {
+		this(null);
+	}
+
+	TestDataObject(ObjectManager myManager) {
+		manager = myManager;
+	}
+
+	protected ObjectManager getObjectManager() {
+		return manager;
+	}
+
+	public String getIdAsString() {
+		return "1";
+	}
+
+	public void readFrom(ResultSet rset) {
+	}
+
+	public void writeOn(ResultSet rset) throws SQLException {
+		rset.updateInt("id", 1);
+		rset.updateString("name", "thing");
+		rset.updateLong("size", 42L);
+	}
+
+	public void writeId(PreparedStatement stmt, int pos) throws SQLException {
+		stmt.setInt(pos, 1);
+	}
+
+}
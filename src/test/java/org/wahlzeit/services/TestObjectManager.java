@@ -0,0 +1,46 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An ObjectManager for test cases; it creates no objects and records the objects its hooks are called with.
+ */
+class TestObjectManager extends ObjectManager {
+
+	final List<Persistent> droppedObjects = new ArrayList<Persistent>();
+	final List<Persistent> rolledBackObjects = new ArrayList<Persistent>();
+
+	private final int rank;
+
+	TestObjectManager() {
+		this(0);
+	}
+
+	TestObjectManager(int myRank) {
+		rank = myRank;
+	}
+
+	protected Persistent createObject(ResultSet rset) {
+		return null;
+	}
+
+	protected int getDependencyRank() {
+		return rank;
+	}
+
+	protected void dropObject(Persistent obj) {
+		super.dropObject(obj);
+		droppedObjects.add(obj);
+	}
+
+	protected void rollbackDependents(Persistent obj) {
+		rolledBackObjects.add(obj);
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test cases for the UnitOfWork class; nothing is committed.
+ */
+public class UnitOfWorkTest {
+
+	/**
+	 *
+	 */
+	@Test
+	public void testObjectsAreOrderedByDependencyRank() {
+		UnitOfWork unitOfWork = new UnitOfWork(new SysSession("test"));
+		TestDataObject referring = new TestDataObject();
+		TestDataObject referred = new TestDataObject();
+
+		unitOfWork.register(new TestObjectManager(1), "referring", referring);
+		unitOfWork.register(new TestObjectManager(0), "referred", referred);
+
+		List<UnitOfWork.Registration> registrations = unitOfWork.getRegistrationsInOrder();
+		assertSame(referred, registrations.get(0).obj);
+		assertSame(referring, registrations.get(1).obj);
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testRepeatedRegistrationsAreCoalesced() {
+		UnitOfWork unitOfWork = new UnitOfWork(new SysSession("test"));
+		TestObjectManager manager = new TestObjectManager(0);
+		TestDataObject obj = new TestDataObject();
+		UnitOfWork.Action action = new UnitOfWork.Action() {
+			public void perform() {
+			}
+		};
+
+		unitOfWork.register(manager, "things", obj);
+		unitOfWork.register(manager, "things", obj);
+		unitOfWork.registerAction("globals", action);
+		unitOfWork.registerAction("globals", action);
+
+		assertEquals(2, unitOfWork.getRegisteredCount());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testRollbackDropsInsertedAndResetsUpdatedObjects() {
+		Connection conn = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+			new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					return null;
+				}
+			});
+		UnitOfWork unitOfWork = new UnitOfWork(new SysSession("test"));
+		TestObjectManager manager = new TestObjectManager(0);
+		TestDataObject inserted = new TestDataObject();
+		TestDataObject updated = new TestDataObject();
+
+		unitOfWork.begin(new DatabaseConnection("test", conn));
+		unitOfWork.registerInsert(manager, inserted);
+		unitOfWork.register(manager, "test", inserted);
+		unitOfWork.register(manager, "test", updated);
+		unitOfWork.rollback();
+
+		assertEquals(1, manager.droppedObjects.size());
+		assertSame(inserted, manager.droppedObjects.get(0));
+		assertEquals(1, manager.rolledBackObjects.size());
+		assertSame(updated, manager.rolledBackObjects.get(0));
+		assertFalse(unitOfWork.isInTransaction());
+	}
+
+}
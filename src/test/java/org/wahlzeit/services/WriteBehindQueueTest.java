@@ -0,0 +1,101 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.services;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for the WriteBehindQueue class; the workers are not started.
+ */
+public class WriteBehindQueueTest {
+
+	private final ObjectManager manager = new TestObjectManager();
+
+	/**
+	 *
+	 */
+	@Test
+	public void testWritesOfWaitingObjectAreCoalesced() {
+		WriteBehindQueue queue = new WriteBehindQueue(10, 1, 10, 0);
+		TestDataObject obj = new TestDataObject();
+
+		assertTrue(queue.add(manager, "things", obj));
+		assertTrue(queue.add(manager, "things", obj));
+
+		assertEquals(1, queue.getQueueSize());
+		assertEquals(1, queue.getQueuedCount());
+		assertEquals(1, queue.getCoalescedCount());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testFailedWriteIsQueuedAgain() {
+		Connection conn = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+			new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+					throw new SQLException("database is down");
+				}
+			});
+		final DatabaseConnection dbc = new DatabaseConnection("test", conn);
+		SessionManager.setThreadLocalSession(new SysSession("test") {
+			public DatabaseConnection ensureDatabaseConnection() {
+				return dbc;
+			}
+
+			public void returnDatabaseConnection() {
+			}
+		});
+
+		try {
+			WriteBehindQueue queue = new WriteBehindQueue(10, 1, 10, 0);
+			TestDataObject obj = new TestDataObject();
+			obj.incWriteCount();
+			queue.add(manager, "things", obj);
+
+			List<WriteBehindQueue.Write> writes = new ArrayList<WriteBehindQueue.Write>();
+			queue.workers[0].queue.drainTo(writes);
+			queue.flush(writes);
+
+			assertEquals(1, queue.getFailedCount());
+			assertEquals(1, queue.getRetriedCount());
+			assertEquals(1, queue.workers[0].retries.size());
+			assertTrue(obj.isDirty());
+
+			assertTrue(queue.add(manager, "things", obj));
+			assertEquals(1, queue.getCoalescedCount());
+		} finally {
+			SessionManager.dropThreadLocalSession();
+		}
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testFullQueueDeclines() {
+		WriteBehindQueue queue = new WriteBehindQueue(1, 1, 10, 0);
+
+		assertTrue(queue.add(manager, "things", new TestDataObject()));
+		assertFalse(queue.add(manager, "things", new TestDataObject()));
+
+		assertEquals(1, queue.getQueueSize());
+		assertEquals(1, queue.getDeclinedCount());
+	}
+
+}
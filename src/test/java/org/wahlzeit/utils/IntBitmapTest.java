@@ -0,0 +1,84 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.utils;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for the IntBitmap class.
+ */
+public class IntBitmapTest {
+
+	/**
+	 *
+	 */
+	@Test
+	public void testSparseValuesAcrossContainers() {
+		IntBitmap bitmap = IntBitmap.fromArray(new int[] { 70000, 5, 3, 5, 1 << 20 });
+
+		assertEquals(4, bitmap.size());
+		assertTrue(bitmap.contains(70000));
+		assertFalse(bitmap.contains(4));
+		assertArrayEquals(new int[] { 3, 5, 70000, 1 << 20 }, bitmap.toArray());
+		assertEquals(70000, bitmap.select(2));
+
+		assertTrue(bitmap.remove(70000));
+		assertFalse(bitmap.remove(70000));
+		assertEquals(1 << 20, bitmap.select(2));
+		assertEquals(3, bitmap.size());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testDenseValuesSwitchContainers() {
+		IntBitmap bitmap = new IntBitmap();
+		for (int i = 0; i < 10000; i++) {
+			bitmap.add(2 * i);
+		}
+
+		assertEquals(10000, bitmap.size());
+		assertTrue(bitmap.contains(19998));
+		assertFalse(bitmap.contains(19999));
+		assertEquals(2 * 7777, bitmap.select(7777));
+		assertTrue(bitmap.getSizeInBytes() <= 8192 + 2);
+
+		for (int i = 0; i < 9000; i++) {
+			bitmap.remove(2 * i);
+		}
+
+		assertEquals(1000, bitmap.size());
+		assertEquals(18000, bitmap.select(0));
+		assertEquals(19998, bitmap.toArray()[999]);
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testSelectMatchesToArray() {
+		IntBitmap bitmap = new IntBitmap();
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			bitmap.add(random.nextInt(1 << 16)); // one bitmap container
+			bitmap.add(random.nextInt(1 << 22)); // many array containers
+		}
+		bitmap.freeze();
+
+		int[] values = bitmap.toArray();
+		for (int rank = 0; rank < values.length; rank++) {
+			assertEquals(values[rank], bitmap.select(rank));
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * SPDX-FileCopyrightText: 2006-2009 Dirk Riehle <dirk@riehle.org> https://dirkriehle.com
+ * SPDX-License-Identifier: AGPL-3.0-or-later
+ */
+package org.wahlzeit.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Test cases for the RandomPermutation class.
+ */
+public class RandomPermutationTest {
+
+	/**
+	 *
+	 */
+	@Test
+	public void testEveryValueComesUpOnce() {
+		int[] sizes = { 1, 2, 3, 7, 64, 1000 };
+		for (int size : sizes) {
+			RandomPermutation permutation = new RandomPermutation(size, 42L + size);
+			boolean[] isSeen = new boolean[size];
+			for (int i = 0; i < size; i++) {
+				int value = permutation.get(i);
+				assertFalse(isSeen[value]);
+				isSeen[value] = true;
+			}
+		}
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testSeedChangesOrder() {
+		RandomPermutation first = new RandomPermutation(1000, 1L);
+		RandomPermutation second = new RandomPermutation(1000, 2L);
+		int noSame = 0;
+		for (int i = 0; i < 1000; i++) {
+			noSame += (first.get(i) == second.get(i)) ? 1 : 0;
+		}
+
+		assertEquals(0, noSame / 100);
+	}
+
+}